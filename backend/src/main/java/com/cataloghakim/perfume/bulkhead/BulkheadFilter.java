@@ -0,0 +1,122 @@
+package com.cataloghakim.perfume.bulkhead;
+
+import com.cataloghakim.perfume.exception.GlobalExceptionHandler;
+import com.cataloghakim.perfume.exception.ServiceOverloadedException;
+import com.cataloghakim.perfume.ratelimit.LoadShedder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.cors.DefaultCorsProcessor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Gives each workload class its own bounded share of request threads, and tags the thread so its database
+// connections count against the class's quota (see WorkloadQuotaDataSource). Registered in BulkheadConfig ahead of
+// the security chain, so the JWT filter's user and revocation lookups count against the request's class too.
+// A class that is full rejects at once by default (max-queue 0): a queued request would park a Tomcat thread that
+// another class's share needs.
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadFilter.class);
+
+    private final Map<WorkloadClass, LoadShedder> bulkheads = new EnumMap<>(WorkloadClass.class);
+    private final ObjectMapper objectMapper;
+    private final CorsConfigurationSource corsConfigurationSource;
+    private final DefaultCorsProcessor corsProcessor = new DefaultCorsProcessor();
+
+    public BulkheadFilter(Environment environment, ObjectMapper objectMapper,
+                          CorsConfigurationSource corsConfigurationSource) {
+        this.objectMapper = objectMapper;
+        this.corsConfigurationSource = corsConfigurationSource;
+        int maxThreads = environment.getProperty("server.tomcat.threads.max", Integer.class, 200);
+        Map<WorkloadClass, Integer> defaultMaxConcurrent = WorkloadClass.defaultMaxConcurrent(maxThreads);
+        int threadsNeeded = 0;
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            String prefix = "app.bulkhead." + workloadClass.key() + ".";
+            int maxConcurrent = environment.getProperty(prefix + "max-concurrent", Integer.class,
+                    defaultMaxConcurrent.get(workloadClass));
+            int maxQueue = environment.getProperty(prefix + "max-queue", Integer.class, 0);
+            bulkheads.put(workloadClass, new LoadShedder(
+                    workloadClass.key(),
+                    maxConcurrent,
+                    maxQueue,
+                    environment.getProperty(prefix + "max-wait-ms", Long.class, 500L),
+                    0));
+            threadsNeeded += maxConcurrent + maxQueue;
+        }
+        // Virtual threads are not a fixed pool, so only platform threads can run out
+        if (threadsNeeded > maxThreads
+                && !environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            logger.warn("Bulkheads admit up to {} requests at once but Tomcat has {} threads; a saturated class can "
+                    + "take threads other classes need", threadsNeeded, maxThreads);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // Preflights are answered by the security chain's CORS filter without touching the database
+        if (CorsUtils.isPreFlightRequest(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        WorkloadClass workloadClass = WorkloadClass.forPath(
+                request.getRequestURI().substring(request.getContextPath().length()));
+        LoadShedder bulkhead = bulkheads.get(workloadClass);
+        try {
+            bulkhead.acquire();
+        } catch (ServiceOverloadedException e) {
+            writeOverloaded(request, response, e);
+            return;
+        }
+
+        long start = System.nanoTime();
+        WorkloadContext.set(workloadClass);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            WorkloadContext.clear();
+            bulkhead.release(System.nanoTime() - start);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        bulkheads.forEach((workloadClass, bulkhead) -> stats.put(workloadClass.key(), bulkhead.getStats()));
+        return stats;
+    }
+
+    // Same body GlobalExceptionHandler produces for ServiceOverloadedException; controller advice never sees filters.
+    // The security chain has not run yet, so the CORS headers that let the page read the 503 are added here.
+    private void writeOverloaded(HttpServletRequest request, HttpServletResponse response, ServiceOverloadedException e)
+            throws IOException {
+        corsProcessor.processRequest(corsConfigurationSource.getCorsConfiguration(request), request, response);
+        GlobalExceptionHandler.ErrorResponse errorResponse = new GlobalExceptionHandler.ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable",
+                e.getMessage(),
+                "uri=" + request.getRequestURI()
+        );
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
@@ -0,0 +1,91 @@
+package com.cataloghakim.perfume.bulkhead;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+// Each class reserves a share of the request threads and of each pool's connections. The shares add up to 100%,
+// so a class that saturates its own share cannot take anything another class has reserved
+public enum WorkloadClass {
+    ADMIN("/admin/", 10, 15),
+    AUTH("/auth/", 15, 15),
+    PUBLIC("/public/", 40, 35),
+    FILES("/files/", 20, 10),
+    OTHER(null, 15, 25);
+
+    private final String pathPrefix;
+    private final int threadPercent;
+    private final int connectionPercent;
+
+    WorkloadClass(String pathPrefix, int threadPercent, int connectionPercent) {
+        this.pathPrefix = pathPrefix;
+        this.threadPercent = threadPercent;
+        this.connectionPercent = connectionPercent;
+    }
+
+    // path is relative to the context path, e.g. /public/brands
+    public static WorkloadClass forPath(String path) {
+        for (WorkloadClass workloadClass : values()) {
+            if (workloadClass.pathPrefix != null && path.startsWith(workloadClass.pathPrefix)) {
+                return workloadClass;
+            }
+        }
+        return OTHER;
+    }
+
+    // Name used in app.bulkhead.<name>.* properties and in metrics
+    public String key() {
+        return name().toLowerCase();
+    }
+
+    // Concurrent requests per class out of maxThreads request threads (20/30/80/40/30 of Tomcat's 200)
+    public static Map<WorkloadClass, Integer> defaultMaxConcurrent(int maxThreads) {
+        return split(maxThreads, workloadClass -> workloadClass.threadPercent);
+    }
+
+    // Connections per class out of a pool of poolSize (1 each of prod's 5, 1/1/4/1/3 of Hikari's default 10)
+    public static Map<WorkloadClass, Integer> defaultMaxConnections(int poolSize) {
+        return split(poolSize, workloadClass -> workloadClass.connectionPercent);
+    }
+
+    // Largest-remainder split that adds up to total, with at least one for every class. Only a total smaller than
+    // the number of classes is oversubscribed, as every class still gets one.
+    private static Map<WorkloadClass, Integer> split(int total, ToIntFunction<WorkloadClass> percent) {
+        Map<WorkloadClass, Integer> shares = new EnumMap<>(WorkloadClass.class);
+        int assigned = 0;
+        for (WorkloadClass workloadClass : values()) {
+            int share = Math.max(1, total * percent.applyAsInt(workloadClass) / 100);
+            shares.put(workloadClass, share);
+            assigned += share;
+        }
+        while (assigned < total) {
+            WorkloadClass next = null;
+            double largestShortfall = Double.NEGATIVE_INFINITY;
+            for (WorkloadClass workloadClass : values()) {
+                double shortfall = total * percent.applyAsInt(workloadClass) / 100.0 - shares.get(workloadClass);
+                // Ties go to the class with the larger share
+                if (shortfall > largestShortfall
+                        || shortfall == largestShortfall && percent.applyAsInt(workloadClass) > percent.applyAsInt(next)) {
+                    largestShortfall = shortfall;
+                    next = workloadClass;
+                }
+            }
+            shares.merge(next, 1, Integer::sum);
+            assigned++;
+        }
+        while (assigned > total && assigned > values().length) {
+            WorkloadClass next = null;
+            double largestExcess = Double.NEGATIVE_INFINITY;
+            for (WorkloadClass workloadClass : values()) {
+                double excess = shares.get(workloadClass) - total * percent.applyAsInt(workloadClass) / 100.0;
+                if (shares.get(workloadClass) > 1 && excess > largestExcess) {
+                    largestExcess = excess;
+                    next = workloadClass;
+                }
+            }
+            shares.merge(next, -1, Integer::sum);
+            assigned--;
+        }
+        return shares;
+    }
+}
@@ -0,0 +1,23 @@
+package com.cataloghakim.perfume.bulkhead;
+
+// The workload class of the request the current thread is serving; threads outside a request count as OTHER
+public final class WorkloadContext {
+
+    private static final ThreadLocal<WorkloadClass> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    public static WorkloadClass current() {
+        WorkloadClass workloadClass = CURRENT.get();
+        return workloadClass != null ? workloadClass : WorkloadClass.OTHER;
+    }
+
+    static void set(WorkloadClass workloadClass) {
+        CURRENT.set(workloadClass);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,31 @@
+package com.cataloghakim.perfume.config;
+
+import com.cataloghakim.perfume.bulkhead.BulkheadFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.cors.CorsConfigurationSource;
+
+@Configuration
+@ConditionalOnProperty(name = "app.bulkhead.enabled", havingValue = "true")
+public class BulkheadConfig {
+
+    @Bean
+    public BulkheadFilter bulkheadFilter(Environment environment, ObjectMapper objectMapper,
+                                         CorsConfigurationSource corsConfigurationSource) {
+        return new BulkheadFilter(environment, objectMapper, corsConfigurationSource);
+    }
+
+    // Right before the security chain, so the thread is tagged while the JWT filter loads the user
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilterRegistration(BulkheadFilter bulkheadFilter) {
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(bulkheadFilter);
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 2);
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
@@ -0,0 +1,103 @@
+package com.cataloghakim.perfume.config;
+
+import com.cataloghakim.perfume.bulkhead.WorkloadClass;
+import com.cataloghakim.perfume.datasource.ConcurrencyLimitedDataSource;
+import com.cataloghakim.perfume.datasource.FaultInjectingDataSource;
+import com.cataloghakim.perfume.datasource.WorkloadQuotaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Wraps every Hikari pool (Boot's single one, or the primary and replica pools of ReadReplicaConfig) in the
+// enabled limits. Workload quotas sit outside the global cap, so a request waiting on its class's quota does not
+// also hold a global permit. Injected faults sit innermost, so they look like a slow or failing pool to every
+// layer above.
+@Configuration
+public class DataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceConfig.class);
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor limitedDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource pool)) {
+                    return bean;
+                }
+                DataSource dataSource = pool;
+                if (environment.getProperty("app.datasource.fault-injection.enabled", Boolean.class, false)) {
+                    dataSource = faultInjecting(environment, beanName, dataSource);
+                }
+                if (environment.getProperty("app.datasource.concurrency-limit.enabled", Boolean.class, false)) {
+                    dataSource = concurrencyLimited(environment, beanName, dataSource, pool);
+                }
+                if (environment.getProperty("app.bulkhead.enabled", Boolean.class, false)) {
+                    dataSource = workloadQuotas(environment, beanName, dataSource, pool);
+                }
+                return dataSource;
+            }
+        };
+    }
+
+    // Virtual threads make request concurrency effectively unbounded; the database is where it has to stop.
+    // Each connection pool gets its own cap, sized to the pool unless app.datasource.max-concurrency is set
+    private static DataSource concurrencyLimited(Environment environment, String beanName, DataSource target,
+                                                 HikariDataSource pool) {
+        int maxConcurrency = environment.getProperty("app.datasource.max-concurrency", Integer.class, 0);
+        if (maxConcurrency <= 0) {
+            maxConcurrency = poolSize(pool);
+        }
+        long acquireTimeoutMs = pool.getConnectionTimeout();
+
+        logger.info("Database concurrency of {} limited to {} connections ({} ms acquire timeout)",
+                beanName, maxConcurrency, acquireTimeoutMs);
+        return new ConcurrencyLimitedDataSource(target, maxConcurrency, acquireTimeoutMs);
+    }
+
+    // Hikari only fills in its default size when the pool starts, after this post-processor has run
+    private static int poolSize(HikariDataSource pool) {
+        return pool.getMaximumPoolSize() > 0 ? pool.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+    }
+
+    private static DataSource faultInjecting(Environment environment, String beanName, DataSource target) {
+        long latencyMs = environment.getProperty("app.datasource.fault-injection.latency-ms", Long.class, 0L);
+        double failureRate = environment.getProperty("app.datasource.fault-injection.failure-rate", Double.class, 0.0);
+
+        logger.warn("Fault injection enabled on {} ({} ms latency, failure rate {})", beanName, latencyMs, failureRate);
+        return new FaultInjectingDataSource(target, latencyMs, failureRate);
+    }
+
+    private static DataSource workloadQuotas(Environment environment, String beanName, DataSource target,
+                                             HikariDataSource pool) {
+        int poolSize = poolSize(pool);
+        Map<WorkloadClass, Integer> defaults = WorkloadClass.defaultMaxConnections(poolSize);
+        Map<WorkloadClass, Integer> maxConnections = new EnumMap<>(WorkloadClass.class);
+        int reserved = 0;
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            int limit = environment.getProperty("app.bulkhead." + workloadClass.key() + ".max-connections",
+                    Integer.class, defaults.get(workloadClass));
+            maxConnections.put(workloadClass, limit);
+            // A class without a quota can take the whole pool
+            reserved += limit > 0 ? limit : poolSize;
+        }
+        if (reserved > poolSize) {
+            logger.warn("Workload quotas of {} add up to {} connections but the pool has {}; one class can take "
+                    + "connections another class needs", beanName, reserved, poolSize);
+        }
+        long maxWaitMs = environment.getProperty("app.bulkhead.connection-wait-ms", Long.class,
+                pool.getConnectionTimeout());
+
+        logger.info("Database connections of {} split into workload quotas {}", beanName, maxConnections);
+        return new WorkloadQuotaDataSource(target, maxConnections, maxWaitMs);
+    }
+}
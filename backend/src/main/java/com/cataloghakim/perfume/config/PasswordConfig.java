@@ -1,16 +1,52 @@
 package com.cataloghakim.perfume.config;
 
+import com.cataloghakim.perfume.security.BoundedPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class PasswordConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordConfig.class);
+
+    // BCryptPasswordEncoder's own default; calibration never goes below it
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 14;
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${app.password.strength:0}") int configuredStrength,
+            @Value("${app.password.target-hash-ms:250}") long targetHashMs,
+            @Value("${app.password.hashing.threads:0}") int configuredThreads,
+            @Value("${app.password.hashing.queue-capacity:64}") int queueCapacity
+    ) {
+        int strength = configuredStrength > 0 ? configuredStrength : calibrateStrength(targetHashMs);
+        int threads = configuredThreads > 0
+                ? configuredThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        logger.info("Password hashing: BCrypt strength {}, {} threads, queue capacity {}", strength, threads, queueCapacity);
+        return new BoundedPasswordEncoder(strength, threads, queueCapacity);
     }
-}
 
+    // Each extra BCrypt round doubles the cost, so one timed hash at the minimum strength is enough to extrapolate
+    private int calibrateStrength(long targetHashMs) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_STRENGTH);
+        probe.encode("calibration-warmup");
+
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        double hashMs = (System.nanoTime() - start) / 1_000_000.0;
 
+        int strength = MIN_STRENGTH;
+        while (strength < MAX_STRENGTH && hashMs * 2 <= targetHashMs) {
+            hashMs *= 2;
+            strength++;
+        }
+        return strength;
+    }
+}
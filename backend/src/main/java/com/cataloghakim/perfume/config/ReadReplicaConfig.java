@@ -0,0 +1,93 @@
+package com.cataloghakim.perfume.config;
+
+import com.cataloghakim.perfume.datasource.PrimaryReadFilter;
+import com.cataloghakim.perfume.datasource.ReadWriteRoutingDataSource;
+import com.cataloghakim.perfume.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// Only active when a replica URL is configured; otherwise Boot's single auto-configured DataSource is used as before
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica.url:}'.isEmpty()")
+public class ReadReplicaConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Credentials default to the primary's, which is what a streaming replica of the same cluster expects
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Value("${app.datasource.replica.url}") String url,
+            @Value("${app.datasource.replica.username:}") String username,
+            @Value("${app.datasource.replica.password:}") String password
+    ) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        if (!username.isEmpty()) {
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+        }
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica,
+            @Value("${app.datasource.replica.max-lag-ms:5000}") long maxLagMs,
+            @Value("${app.datasource.replica.fallback-to-primary:true}") boolean fallbackToPrimary,
+            @Value("${app.datasource.replica.primary-after-write-ms:5000}") long primaryAfterWriteMs
+    ) {
+        logger.info("Read-only transactions routed to the replica (max lag {} ms, fallback to primary {}, "
+                + "primary for {} ms after a write)", maxLagMs, fallbackToPrimary, primaryAfterWriteMs);
+        return new ReadWriteRoutingDataSource(primary, replica, maxLagMs, fallbackToPrimary, primaryAfterWriteMs);
+    }
+
+    @Bean
+    public FilterRegistrationBean<PrimaryReadFilter> primaryReadFilterRegistration() {
+        FilterRegistrationBean<PrimaryReadFilter> registration = new FilterRegistrationBean<>(new PrimaryReadFilter());
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+
+    // Connections are fetched on first use, after the transaction manager has marked the transaction read-only
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("replicaDataSource") DataSource replica,
+            ReadWriteRoutingDataSource routingDataSource
+    ) {
+        return new ReplicaLagMonitor(replica, routingDataSource);
+    }
+}
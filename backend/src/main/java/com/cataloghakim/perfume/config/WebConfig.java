@@ -0,0 +1,20 @@
+package com.cataloghakim.perfume.config;
+
+import com.cataloghakim.perfume.ratelimit.SearchProtectionInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private SearchProtectionInterceptor searchProtectionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(searchProtectionInterceptor)
+                .addPathPatterns("/public/perfumes/search", "/search/**");
+    }
+}
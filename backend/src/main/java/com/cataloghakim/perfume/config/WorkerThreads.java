@@ -0,0 +1,24 @@
+package com.cataloghakim.perfume.config;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Thread factory for the I/O-bound worker pools; CPU-bound pools (image resizing, BCrypt) stay on platform threads
+public final class WorkerThreads {
+
+    private WorkerThreads() {
+    }
+
+    // Virtual threads are always daemons; platform ones are made daemons so they never hold up shutdown
+    public static ThreadFactory factory(String namePrefix, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(namePrefix, 1).factory();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
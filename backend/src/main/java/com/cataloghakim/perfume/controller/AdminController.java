@@ -1,16 +1,36 @@
 package com.cataloghakim.perfume.controller;
 
+import com.cataloghakim.perfume.bulkhead.BulkheadFilter;
+import com.cataloghakim.perfume.datasource.ConcurrencyLimitedDataSource;
+import com.cataloghakim.perfume.datasource.FaultInjectingDataSource;
+import com.cataloghakim.perfume.datasource.ReadWriteRoutingDataSource;
+import com.cataloghakim.perfume.datasource.WorkloadQuotaDataSource;
+import com.cataloghakim.perfume.ratelimit.SearchProtectionInterceptor;
+import com.cataloghakim.perfume.security.BoundedPasswordEncoder;
 import com.cataloghakim.perfume.service.UserService;
+import com.cataloghakim.perfume.service.JwtService;
 import com.cataloghakim.perfume.service.CategoryService;
 import com.cataloghakim.perfume.service.BrandService;
 import com.cataloghakim.perfume.service.PerfumeService;
+import com.cataloghakim.perfume.service.ImageVariantService;
+import com.cataloghakim.perfume.service.HotImageCache;
+import com.cataloghakim.perfume.service.OrphanImageCollector;
+import com.cataloghakim.perfume.service.ImageIndexService;
+import com.cataloghakim.perfume.service.RemoteImageMirrorService;
+import com.cataloghakim.perfume.service.CatalogReadService;
+import com.cataloghakim.perfume.dto.ImageMetadataDTO;
+import com.cataloghakim.perfume.storage.S3ImageStorage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/admin")
@@ -29,6 +49,45 @@ public class AdminController {
     @Autowired
     private PerfumeService perfumeService;
     
+    @Autowired
+    private JwtService jwtService;
+    
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
+    @Autowired
+    private HotImageCache hotImageCache;
+    
+    @Autowired
+    private OrphanImageCollector orphanImageCollector;
+    
+    @Autowired
+    private ImageIndexService imageIndexService;
+    
+    @Autowired
+    private RemoteImageMirrorService remoteImageMirrorService;
+
+    @Autowired
+    private CatalogReadService catalogReadService;
+
+    @Autowired
+    private SearchProtectionInterceptor searchProtectionInterceptor;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired(required = false)
+    private ReadWriteRoutingDataSource readWriteRoutingDataSource;
+
+    @Autowired(required = false)
+    private BulkheadFilter bulkheadFilter;
+
+    @Autowired(required = false)
+    private S3ImageStorage s3ImageStorage;
+    
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -71,7 +130,7 @@ public class AdminController {
             
             userService.changePassword(userId, newPassword);
             return ResponseEntity.ok().build();
-        } catch (RuntimeException e) {
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
     }
@@ -90,7 +149,7 @@ public class AdminController {
             userService.createAdminUser(username, password, email);
             return ResponseEntity.ok(Map.of("message", "Admin user created successfully"));
             
-        } catch (RuntimeException e) {
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
@@ -102,4 +161,117 @@ public class AdminController {
         health.put("timestamp", java.time.LocalDateTime.now().toString());
         return ResponseEntity.ok(health);
     }
+    
+    // Served entirely from the image_metadata index, without touching upload storage
+    @GetMapping("/images")
+    public ResponseEntity<Map<String, Object>> getImages(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean unreferenced) {
+        Page<ImageMetadataDTO> images = imageIndexService.getImages(Math.max(page, 0),
+                Math.min(Math.max(size, 1), 200), unreferenced);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", images.getContent());
+        response.put("page", images.getNumber());
+        response.put("size", images.getSize());
+        response.put("totalElements", images.getTotalElements());
+        response.put("totalPages", images.getTotalPages());
+        return ResponseEntity.ok(response);
+    }
+    
+    // Runs a mirroring pass now instead of waiting for the schedule; returns that run's report
+    @PostMapping("/images/mirror")
+    public ResponseEntity<Map<String, Object>> mirrorRemoteImages() {
+        return ResponseEntity.ok(remoteImageMirrorService.mirrorAll());
+    }
+    
+    @GetMapping("/system/metrics")
+    public ResponseEntity<Map<String, Object>> getSystemMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("userDetailsCache", userService.getUserDetailsCacheStats());
+        metrics.put("verifiedTokenCache", jwtService.getVerifiedTokenCacheStats());
+        metrics.put("tokenRevocation", userService.getTokenRevocationStats());
+        metrics.put("passwordHashing", passwordEncoder.getStats());
+        metrics.put("imageVariants", imageVariantService.getStats());
+        metrics.put("hotImageCache", hotImageCache.getStats());
+        metrics.put("orphanImageGc", orphanImageCollector.getStats());
+        metrics.put("remoteImageMirror", remoteImageMirrorService.getStats());
+        metrics.put("catalogReads", catalogReadService.getStats());
+        metrics.put("searchProtection", searchProtectionInterceptor.getStats());
+        metrics.put("databaseConcurrency", getPoolStats(this::getConcurrencyStats));
+        if (bulkheadFilter != null) {
+            metrics.put("bulkheads", bulkheadFilter.getStats());
+            metrics.put("connectionQuotas", getPoolStats(this::getConnectionQuotaStats));
+        }
+        if (readWriteRoutingDataSource != null) {
+            metrics.put("readReplicaRouting", readWriteRoutingDataSource.getStats());
+        }
+        if (s3ImageStorage != null) {
+            metrics.put("s3LocalCopies", s3ImageStorage.getStats());
+        }
+        metrics.put("faultInjection", getPoolStats(this::getFaultInjectionStats));
+        metrics.put("virtualThreads", Thread.currentThread().isVirtual());
+        return ResponseEntity.ok(metrics);
+    }
+
+    // Outage drills: slows down and/or fails connection checkouts on every pool. Needs the fault-injecting
+    // DataSource to be installed at startup (app.datasource.fault-injection.enabled)
+    @PostMapping("/system/fault-injection")
+    public ResponseEntity<Map<String, Object>> configureFaultInjection(@RequestBody Map<String, Number> request) {
+        long latencyMs = request.getOrDefault("latencyMs", 0).longValue();
+        double failureRate = request.getOrDefault("failureRate", 0).doubleValue();
+
+        Map<String, Object> response = new HashMap<>();
+        if (unwrap(dataSource, FaultInjectingDataSource.class) == null) {
+            response.put("success", false);
+            response.put("message", "Fault injection is not enabled");
+            return ResponseEntity.badRequest().body(response);
+        }
+        getPoolStats(pool -> {
+            unwrap(pool, FaultInjectingDataSource.class).configure(latencyMs, failureRate);
+            return Map.of();
+        });
+        response.put("success", true);
+        response.put("message", "Fault injection updated");
+        response.put("faultInjection", getPoolStats(this::getFaultInjectionStats));
+        return ResponseEntity.ok(response);
+    }
+
+    // One entry per connection pool when reads are routed to a replica
+    private Map<String, Object> getPoolStats(Function<DataSource, Map<String, Object>> statsOfPool) {
+        if (readWriteRoutingDataSource == null) {
+            return statsOfPool.apply(dataSource);
+        }
+        Map<String, Object> stats = new HashMap<>();
+        readWriteRoutingDataSource.getResolvedDataSources()
+                .forEach((key, pool) -> stats.put(key.toString(), statsOfPool.apply(pool)));
+        return stats;
+    }
+
+    private Map<String, Object> getConcurrencyStats(DataSource pool) {
+        ConcurrencyLimitedDataSource limited = unwrap(pool, ConcurrencyLimitedDataSource.class);
+        return limited != null ? limited.getStats() : Map.of("enabled", false);
+    }
+
+    private Map<String, Object> getConnectionQuotaStats(DataSource pool) {
+        WorkloadQuotaDataSource quotas = unwrap(pool, WorkloadQuotaDataSource.class);
+        return quotas != null ? quotas.getStats() : Map.of("enabled", false);
+    }
+
+    private Map<String, Object> getFaultInjectionStats(DataSource pool) {
+        FaultInjectingDataSource faults = unwrap(pool, FaultInjectingDataSource.class);
+        return faults != null ? faults.getStats() : Map.of("enabled", false);
+    }
+
+    private <T> T unwrap(DataSource pool, Class<T> type) {
+        try {
+            if (pool.isWrapperFor(type)) {
+                return pool.unwrap(type);
+            }
+        } catch (SQLException e) {
+            // not wrapped
+        }
+        return null;
+    }
 }
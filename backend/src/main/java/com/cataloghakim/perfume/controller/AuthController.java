@@ -2,6 +2,7 @@ package com.cataloghakim.perfume.controller;
 
 import com.cataloghakim.perfume.dto.LoginRequestDTO;
 import com.cataloghakim.perfume.dto.LoginResponseDTO;
+import com.cataloghakim.perfume.security.CatalogUserDetails;
 import com.cataloghakim.perfume.service.JwtService;
 import com.cataloghakim.perfume.service.UserService;
 import jakarta.validation.Valid;
@@ -10,6 +11,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
@@ -39,9 +41,8 @@ public class AuthController {
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             String token = jwtService.generateToken(userDetails);
             
-            // Get user details for response
-            var user = userService.findByUsername(userDetails.getUsername());
-            String email = user.map(u -> u.getEmail()).orElse("");
+            // The authenticated principal already carries the e-mail
+            String email = userDetails instanceof CatalogUserDetails catalogUser ? catalogUser.getEmail() : "";
             
             LoginResponseDTO response = new LoginResponseDTO(
                     token,
@@ -52,7 +53,7 @@ public class AuthController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
+        } catch (AuthenticationException e) {
             LoginResponseDTO response = new LoginResponseDTO(
                     null,
                     null,
@@ -98,7 +99,7 @@ public class AuthController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             LoginResponseDTO response = new LoginResponseDTO(
                     null,
                     null,
@@ -2,6 +2,7 @@ package com.cataloghakim.perfume.controller;
 
 import com.cataloghakim.perfume.dto.BrandDTO;
 import com.cataloghakim.perfume.dto.BrandRequestDTO;
+import com.cataloghakim.perfume.service.CatalogReadService;
 import com.cataloghakim.perfume.service.BrandService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +19,9 @@ public class BrandController {
     @Autowired
     private BrandService brandService;
     
+    @Autowired
+    private CatalogReadService catalogReadService;
+    
     @GetMapping("/brands")
     public ResponseEntity<List<BrandDTO>> getAllBrands() {
         List<BrandDTO> brands = brandService.getAllBrands();
@@ -77,7 +81,7 @@ public class BrandController {
     
     @GetMapping("/public/brands")
     public ResponseEntity<List<BrandDTO>> getPublicBrands() {
-        List<BrandDTO> brands = brandService.getAllBrands();
+        List<BrandDTO> brands = catalogReadService.getAllBrands();
         return ResponseEntity.ok()
                 .header("Cache-Control", "no-cache, no-store, must-revalidate")
                 .header("Pragma", "no-cache")
@@ -87,7 +91,7 @@ public class BrandController {
     
     @GetMapping("/public/brands/category/{categoryId}")
     public ResponseEntity<List<BrandDTO>> getPublicBrandsByCategory(@PathVariable Long categoryId) {
-        List<BrandDTO> brands = brandService.getBrandsByCategory(categoryId);
+        List<BrandDTO> brands = catalogReadService.getBrandsByCategory(categoryId);
         return ResponseEntity.ok(brands);
     }
 }
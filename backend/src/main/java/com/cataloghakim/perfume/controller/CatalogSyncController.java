@@ -0,0 +1,25 @@
+package com.cataloghakim.perfume.controller;
+
+import com.cataloghakim.perfume.service.CatalogSyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/sync")
+@PreAuthorize("hasRole('ADMIN')")
+public class CatalogSyncController {
+
+    @Autowired
+    private CatalogSyncService catalogSyncService;
+
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getSyncStatus() {
+        return ResponseEntity.ok(catalogSyncService.getStatus());
+    }
+}
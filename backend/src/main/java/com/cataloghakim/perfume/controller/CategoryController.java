@@ -2,6 +2,7 @@ package com.cataloghakim.perfume.controller;
 
 import com.cataloghakim.perfume.dto.CategoryDTO;
 import com.cataloghakim.perfume.dto.CategoryRequestDTO;
+import com.cataloghakim.perfume.service.CatalogReadService;
 import com.cataloghakim.perfume.service.CategoryService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,10 +19,13 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
     
+    @Autowired
+    private CatalogReadService catalogReadService;
+    
     // Public endpoint for home page
     @GetMapping("/public/categories")
     public ResponseEntity<List<CategoryDTO>> getPublicCategories() {
-        List<CategoryDTO> categories = categoryService.getAllCategories();
+        List<CategoryDTO> categories = catalogReadService.getAllCategories();
         return ResponseEntity.ok(categories);
     }
     
@@ -1,39 +1,48 @@
 package com.cataloghakim.perfume.controller;
 
+import com.cataloghakim.perfume.service.BatchUploadService;
+import com.cataloghakim.perfume.service.FileDeliveryService;
 import com.cataloghakim.perfume.service.FileStorageService;
+import com.cataloghakim.perfume.service.ImageVariantService;
+import com.cataloghakim.perfume.service.StoredFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 public class FileUploadController {
 
-    @Value("${app.upload.dir}")
-    private String uploadDir;
-
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private FileDeliveryService fileDeliveryService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private BatchUploadService batchUploadService;
+
     @PostMapping("/admin/upload")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file) {
         try {
             String filename = fileStorageService.storeFile(file);
+            imageVariantService.scheduleVariants(filename);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -51,49 +60,97 @@ public class FileUploadController {
         }
     }
 
-    @GetMapping("/files/{filename:.+}")
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
+    // Raw image body instead of multipart: the request is read once, straight into the upload directory
+    @PostMapping("/admin/upload/stream")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> uploadStream(HttpServletRequest request) {
         try {
-            Path filePath = Paths.get(uploadDir).resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                // Determine content type
-                String contentType = "application/octet-stream";
-                String fileExtension = getFileExtension(filename).toLowerCase();
-                
-                switch (fileExtension) {
-                    case ".jpg":
-                    case ".jpeg":
-                        contentType = "image/jpeg";
-                        break;
-                    case ".png":
-                        contentType = "image/png";
-                        break;
-                    case ".gif":
-                        contentType = "image/gif";
-                        break;
-                    case ".webp":
-                        contentType = "image/webp";
-                        break;
-                    case ".svg":
-                        contentType = "image/svg+xml";
-                        break;
-                }
+            String filename = fileStorageService.storeStream(request.getInputStream(), request.getContentLengthLong());
+            imageVariantService.scheduleVariants(filename);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("filename", filename);
+            response.put("url", "/api/files/" + filename);
+            response.put("message", "File uploaded successfully");
+            
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to upload file: " + e.getMessage());
+            
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
 
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                        .header("Cache-Control", "no-cache, no-store, must-revalidate")
-                        .header("Pragma", "no-cache")
-                        .header("Expires", "0")
-                        .body(resource);
+    // A raw application/zip body, or multipart parts (images and/or ZIP archives); ZIPs are never extracted to disk
+    @PostMapping("/admin/upload/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> uploadBatch(HttpServletRequest request) {
+        try {
+            List<Map<String, Object>> manifest = new ArrayList<>();
+            if (request instanceof MultipartHttpServletRequest multipartRequest) {
+                List<MultipartFile> images = new ArrayList<>();
+                for (MultipartFile file : multipartRequest.getMultiFileMap().values().stream().flatMap(List::stream).toList()) {
+                    if (isZip(file.getContentType(), file.getOriginalFilename())) {
+                        manifest.addAll(batchUploadService.storeZip(file.getInputStream()));
+                    } else {
+                        images.add(file);
+                    }
+                }
+                manifest.addAll(batchUploadService.storeParts(images));
+            } else if (isZip(request.getContentType(), null)) {
+                manifest.addAll(batchUploadService.storeZip(request.getInputStream()));
             } else {
-                return ResponseEntity.notFound().build();
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "Expected a ZIP body or multipart files");
+                return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(response);
             }
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
+
+            long failed = manifest.stream().filter(result -> !Boolean.TRUE.equals(result.get("success"))).count();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", failed == 0);
+            response.put("stored", manifest.size() - failed);
+            response.put("failed", failed);
+            response.put("files", manifest);
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to process batch upload: " + e.getMessage());
+            
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @GetMapping("/files/{filename:.+}")
+    public void serveFile(@PathVariable String filename,
+                          @RequestParam(value = "w", required = false) Integer width,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        // A variant's ETag depends on the negotiated format, so only the original can be answered by name
+        if (width == null && fileDeliveryService.writeNotModifiedByETag(filename, request, response)) {
+            return;
+        }
+
+        StoredFile storedFile = fileStorageService.getStoredFile(filename);
+        if (storedFile == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        boolean immutable = true;
+        if (width != null && width > 0) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            ImageVariantService.ResolvedVariant variant =
+                    imageVariantService.resolveVariant(storedFile, width, request.getHeader(HttpHeaders.ACCEPT));
+            storedFile = variant.file();
+            immutable = !variant.pending();
         }
+
+        fileDeliveryService.serve(storedFile, immutable, request, response);
     }
 
     @DeleteMapping("/admin/files/{filename:.+}")
@@ -101,6 +158,7 @@ public class FileUploadController {
     public ResponseEntity<?> deleteFile(@PathVariable String filename) {
         try {
             fileStorageService.deleteFile(filename);
+            imageVariantService.evict(filename);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -116,14 +174,9 @@ public class FileUploadController {
         }
     }
 
-    private String getFileExtension(String filename) {
-        if (filename == null || filename.isEmpty()) {
-            return "";
-        }
-        int lastDotIndex = filename.lastIndexOf('.');
-        if (lastDotIndex == -1) {
-            return "";
-        }
-        return filename.substring(lastDotIndex);
+    private boolean isZip(String contentType, String filename) {
+        return (contentType != null && (contentType.startsWith("application/zip")
+                || contentType.startsWith("application/x-zip-compressed")))
+                || (filename != null && filename.toLowerCase().endsWith(".zip"));
     }
 }
@@ -3,6 +3,7 @@ package com.cataloghakim.perfume.controller;
 import com.cataloghakim.perfume.dto.PerfumeDTO;
 import com.cataloghakim.perfume.dto.PerfumeRequestDTO;
 import com.cataloghakim.perfume.dto.SearchRequestDTO;
+import com.cataloghakim.perfume.service.CatalogReadService;
 import com.cataloghakim.perfume.service.PerfumeService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +20,9 @@ public class PerfumeController {
     @Autowired
     private PerfumeService perfumeService;
     
+    @Autowired
+    private CatalogReadService catalogReadService;
+    
     @GetMapping("/perfumes")
     public ResponseEntity<List<PerfumeDTO>> getAllPerfumes() {
         List<PerfumeDTO> perfumes = perfumeService.getAllPerfumes();
@@ -103,25 +107,25 @@ public class PerfumeController {
     // Public endpoints
     @GetMapping("/public/perfumes")
     public ResponseEntity<List<PerfumeDTO>> getPublicPerfumes() {
-        List<PerfumeDTO> perfumes = perfumeService.getAllPerfumes();
+        List<PerfumeDTO> perfumes = catalogReadService.getAllPerfumes();
         return ResponseEntity.ok(perfumes);
     }
     
     @GetMapping("/public/perfumes/brand/{brandId}")
     public ResponseEntity<List<PerfumeDTO>> getPublicPerfumesByBrand(@PathVariable Long brandId) {
-        List<PerfumeDTO> perfumes = perfumeService.getPerfumesByBrand(brandId);
+        List<PerfumeDTO> perfumes = catalogReadService.getPerfumesByBrand(brandId);
         return ResponseEntity.ok(perfumes);
     }
     
     @GetMapping("/public/perfumes/category/{categoryId}")
     public ResponseEntity<List<PerfumeDTO>> getPublicPerfumesByCategory(@PathVariable Long categoryId) {
-        List<PerfumeDTO> perfumes = perfumeService.getPerfumesByCategory(categoryId);
+        List<PerfumeDTO> perfumes = catalogReadService.getPerfumesByCategory(categoryId);
         return ResponseEntity.ok(perfumes);
     }
     
     @PostMapping("/public/perfumes/search")
     public ResponseEntity<List<PerfumeDTO>> publicSearchAndFilter(@RequestBody SearchRequestDTO searchRequest) {
-        List<PerfumeDTO> perfumes = perfumeService.searchAndFilter(searchRequest);
+        List<PerfumeDTO> perfumes = catalogReadService.searchAndFilter(searchRequest);
         return ResponseEntity.ok(perfumes);
     }
 }
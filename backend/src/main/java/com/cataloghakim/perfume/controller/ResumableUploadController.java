@@ -0,0 +1,135 @@
+package com.cataloghakim.perfume.controller;
+
+import com.cataloghakim.perfume.entity.UploadSession;
+import com.cataloghakim.perfume.exception.UploadOffsetConflictException;
+import com.cataloghakim.perfume.service.ImageVariantService;
+import com.cataloghakim.perfume.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+
+// Resumable uploads: create a session, PUT chunks at offsets (resuming from GET's offset after a drop), then finalize
+@RestController
+@RequestMapping("/admin/uploads")
+@PreAuthorize("hasRole('ADMIN')")
+public class ResumableUploadController {
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @PostMapping
+    public ResponseEntity<?> createSession(@RequestBody Map<String, Object> request, Principal principal) {
+        Object size = request.get("size");
+        if (!(size instanceof Number)) {
+            return error(HttpStatus.BAD_REQUEST, "size is required");
+        }
+        if (((Number) size).longValue() <= 0) {
+            return error(HttpStatus.BAD_REQUEST, "size must be positive");
+        }
+        Object filename = request.get("filename");
+        UploadSession session = resumableUploadService.createSession(((Number) size).longValue(),
+                filename == null ? null : filename.toString(), principal.getName());
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(session));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getSession(@PathVariable String id, Principal principal) {
+        UploadSession session = resumableUploadService.getSession(id, principal.getName());
+        if (session == null) {
+            return error(HttpStatus.NOT_FOUND, "Upload session not found");
+        }
+        return ResponseEntity.ok(toResponse(session));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String id,
+                                         @RequestParam long offset,
+                                         HttpServletRequest request,
+                                         Principal principal) {
+        try {
+            UploadSession session = resumableUploadService.appendChunk(id, offset, request.getInputStream(),
+                    request.getContentLengthLong(), principal.getName());
+            if (session == null) {
+                return error(HttpStatus.NOT_FOUND, "Upload session not found");
+            }
+            return ResponseEntity.ok(toResponse(session));
+        } catch (UploadOffsetConflictException e) {
+            return conflict(e);
+        } catch (IOException e) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store chunk: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/finalize")
+    public ResponseEntity<?> finalizeUpload(@PathVariable String id, Principal principal) {
+        try {
+            String filename = resumableUploadService.finalizeUpload(id, principal.getName());
+            if (filename == null) {
+                return error(HttpStatus.NOT_FOUND, "Upload session not found");
+            }
+            imageVariantService.scheduleVariants(filename);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("filename", filename);
+            response.put("url", "/api/files/" + filename);
+            response.put("message", "File uploaded successfully");
+            return ResponseEntity.ok(response);
+        } catch (UploadOffsetConflictException e) {
+            return conflict(e);
+        } catch (IOException e) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload file: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> abort(@PathVariable String id, Principal principal) {
+        try {
+            if (!resumableUploadService.abort(id, principal.getName())) {
+                return error(HttpStatus.NOT_FOUND, "Upload session not found");
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Upload session cancelled");
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to cancel upload: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> toResponse(UploadSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("uploadId", session.getId());
+        response.put("size", session.getTotalSize());
+        response.put("offset", session.getReceivedBytes());
+        response.put("updatedAt", session.getUpdatedAt());
+        return response;
+    }
+
+    private ResponseEntity<?> conflict(UploadOffsetConflictException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", e.getMessage());
+        response.put("offset", e.getExpectedOffset());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    private ResponseEntity<?> error(HttpStatus status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
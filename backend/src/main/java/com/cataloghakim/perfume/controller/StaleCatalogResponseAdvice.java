@@ -0,0 +1,44 @@
+package com.cataloghakim.perfume.controller;
+
+import com.cataloghakim.perfume.service.CatalogReadService;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Marks responses built from the catalog snapshot while the database is degraded, so clients and caches can
+// tell them apart from fresh data
+@ControllerAdvice
+public class StaleCatalogResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(CatalogReadService.STALE_SINCE_ATTRIBUTE)
+                instanceof Instant staleSince) {
+            long ageSeconds = Math.max(0, Duration.between(staleSince, Instant.now()).getSeconds());
+            HttpHeaders headers = response.getHeaders();
+            headers.set(HttpHeaders.WARNING, STALE_WARNING);
+            headers.set(HttpHeaders.AGE, Long.toString(ageSeconds));
+            headers.setCacheControl("no-store");
+        }
+        return body;
+    }
+}
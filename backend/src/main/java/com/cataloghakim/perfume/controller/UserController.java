@@ -75,7 +75,7 @@ public class UserController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Failed to change password: " + e.getMessage());
             return ResponseEntity.badRequest().body(response);
@@ -106,7 +106,7 @@ public class UserController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Failed to create user: " + e.getMessage());
             return ResponseEntity.badRequest().body(response);
@@ -124,7 +124,7 @@ public class UserController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Failed to update user: " + e.getMessage());
             return ResponseEntity.badRequest().body(response);
@@ -0,0 +1,33 @@
+package com.cataloghakim.perfume.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+// Base for the wrappers DataSourceConfig puts around a Hikari pool bean. Spring destroys the pool instance it
+// created even though the wrapper is what gets exposed; close() covers everything else that only holds the
+// outermost wrapper, and passes the call down the chain to the pool.
+public abstract class CloseableDelegatingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    protected CloseableDelegatingDataSource(DataSource target) {
+        super(target);
+    }
+
+    // Narrower than AutoCloseable's throws Exception, which would let close() throw InterruptedException
+    @Override
+    public void close() throws SQLException {
+        if (getTargetDataSource() instanceof AutoCloseable target) {
+            try {
+                target.close();
+            } catch (SQLException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new SQLException("Could not close " + target, e);
+            }
+        }
+    }
+}
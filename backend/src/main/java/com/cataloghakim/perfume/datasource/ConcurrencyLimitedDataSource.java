@@ -0,0 +1,83 @@
+package com.cataloghakim.perfume.datasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Holds a permit for as long as a connection is open, so thousands of virtual threads queue here in FIFO order
+// instead of all spinning on the connection pool's own handoff
+public class ConcurrencyLimitedDataSource extends CloseableDelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMs;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    public ConcurrencyLimitedDataSource(DataSource target, int maxConcurrency, long acquireTimeoutMs) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return ReleasingConnection.wrap(super.getConnection(), permits::release);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return ReleasingConnection.wrap(super.getConnection(username, password), permits::release);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long acquiredCount = acquired.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", true);
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("inUse", maxConcurrency - permits.availablePermits());
+        stats.put("waiting", permits.getQueueLength());
+        stats.put("acquired", acquiredCount);
+        stats.put("timeouts", timeouts.get());
+        stats.put("averageWaitMs", acquiredCount == 0 ? 0.0 : waitNanos.get() / 1_000_000.0 / acquiredCount);
+        return stats;
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + acquireTimeoutMs + "ms waiting for a database slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database slot", e);
+        }
+        acquired.incrementAndGet();
+        waitNanos.addAndGet(System.nanoTime() - start);
+    }
+}
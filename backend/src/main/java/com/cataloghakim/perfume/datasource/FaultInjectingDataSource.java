@@ -0,0 +1,71 @@
+package com.cataloghakim.perfume.datasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Simulates a degraded database for outage drills: every connection checkout is delayed, and a share of them
+// fail as if the pool had timed out. Only installed when app.datasource.fault-injection.enabled is set; the
+// latency and failure rate can then be changed at runtime from the admin API.
+public final class FaultInjectingDataSource extends CloseableDelegatingDataSource {
+
+    private volatile long latencyMs;
+    private volatile double failureRate;
+
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public FaultInjectingDataSource(DataSource target, long latencyMs, double failureRate) {
+        super(target);
+        configure(latencyMs, failureRate);
+    }
+
+    public void configure(long latencyMs, double failureRate) {
+        this.latencyMs = Math.max(0, latencyMs);
+        this.failureRate = Math.min(1.0, Math.max(0.0, failureRate));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        injectFault();
+        return super.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        injectFault();
+        return super.getConnection(username, password);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", true);
+        stats.put("latencyMs", latencyMs);
+        stats.put("failureRate", failureRate);
+        stats.put("delayed", delayed.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private void injectFault() throws SQLException {
+        long delay = latencyMs;
+        if (delay > 0) {
+            delayed.incrementAndGet();
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted during injected latency", e);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            failed.incrementAndGet();
+            throw new SQLTransientConnectionException("Injected connection failure");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.cataloghakim.perfume.datasource;
+
+// Marks the current thread's work as needing the primary even for read-only transactions, e.g. an admin request
+// that must see the write it just made. Set by PrimaryReadFilter; threads outside a request are not pinned.
+public final class PrimaryReadContext {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private PrimaryReadContext() {
+    }
+
+    public static boolean isPinned() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    static void clear() {
+        PINNED.remove();
+    }
+}
@@ -0,0 +1,34 @@
+package com.cataloghakim.perfume.datasource;
+
+import com.cataloghakim.perfume.bulkhead.WorkloadClass;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Only the anonymous storefront reads (/public/**, /files/**) may be served by the replica. Admin CRUD, auth and
+// user requests read from the primary, so an admin reloading a list right after saving sees the change.
+// Registered in ReadReplicaConfig, ahead of the security chain so token and user lookups are pinned too.
+public class PrimaryReadFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        WorkloadClass workloadClass = WorkloadClass.forPath(
+                request.getRequestURI().substring(request.getContextPath().length()));
+        if (workloadClass == WorkloadClass.PUBLIC || workloadClass == WorkloadClass.FILES) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        PrimaryReadContext.pin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            PrimaryReadContext.clear();
+        }
+    }
+}
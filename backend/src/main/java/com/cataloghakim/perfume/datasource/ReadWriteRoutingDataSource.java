@@ -0,0 +1,112 @@
+package com.cataloghakim.perfume.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Read-only transactions go to the replica while it is reachable and within the lag budget; everything else,
+// including work outside a transaction, goes to the primary. Must sit behind a LazyConnectionDataSourceProxy so
+// the connection is only fetched once the transaction's read-only flag is known.
+//
+// Reads stay on the primary where replica lag would show up as a lost write: on threads pinned by
+// PrimaryReadContext (admin and auth requests), and on every thread for primary-after-write-ms after this node
+// commits a write, which covers the catalog snapshot refresh and cache reloads a write triggers. Writes made on
+// another node are only visible here once the replica has them, within max-lag-ms.
+public final class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final long maxLagMs;
+    private final boolean fallbackToPrimary;
+    private final long primaryAfterWriteNanos;
+    private final AtomicLong lastWriteNanos;
+
+    private volatile boolean replicaReachable = true;
+    private volatile long replicaLagMs;
+
+    private final AtomicLong primaryRoutes = new AtomicLong();
+    private final AtomicLong replicaRoutes = new AtomicLong();
+    private final AtomicLong fallbackRoutes = new AtomicLong();
+    private final AtomicLong pinnedRoutes = new AtomicLong();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long maxLagMs, boolean fallbackToPrimary,
+                                      long primaryAfterWriteMs) {
+        this.maxLagMs = maxLagMs;
+        this.fallbackToPrimary = fallbackToPrimary;
+        this.primaryAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, primaryAfterWriteMs));
+        this.lastWriteNanos = new AtomicLong(System.nanoTime() - primaryAfterWriteNanos);
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.incrementAndGet();
+            recordWrite();
+            return PRIMARY;
+        }
+        if (PrimaryReadContext.isPinned() || isWithinWriteWindow()) {
+            pinnedRoutes.incrementAndGet();
+            return PRIMARY;
+        }
+        if (fallbackToPrimary && !isReplicaUsable()) {
+            fallbackRoutes.incrementAndGet();
+            return PRIMARY;
+        }
+        replicaRoutes.incrementAndGet();
+        return REPLICA;
+    }
+
+    // Called by ReplicaLagMonitor; a negative lag means the replica could not be reached
+    public void updateReplicaLag(long lagMs) {
+        replicaReachable = lagMs >= 0;
+        replicaLagMs = Math.max(0, lagMs);
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaReachable && (maxLagMs <= 0 || replicaLagMs <= maxLagMs);
+    }
+
+    public boolean isWithinWriteWindow() {
+        return System.nanoTime() - lastWriteNanos.get() < primaryAfterWriteNanos;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicaReachable", replicaReachable);
+        stats.put("replicaLagMs", replicaLagMs);
+        stats.put("maxLagMs", maxLagMs);
+        stats.put("fallbackToPrimary", fallbackToPrimary);
+        stats.put("primaryRoutes", primaryRoutes.get());
+        stats.put("replicaRoutes", replicaRoutes.get());
+        stats.put("fallbackRoutes", fallbackRoutes.get());
+        stats.put("pinnedRoutes", pinnedRoutes.get());
+        stats.put("primaryAfterWriteMs", TimeUnit.NANOSECONDS.toMillis(primaryAfterWriteNanos));
+        stats.put("withinWriteWindow", isWithinWriteWindow());
+        return stats;
+    }
+
+    // Any read-write transaction counts as a write once it commits; a rollback changed nothing. Connections taken
+    // outside a transaction (lazy loading in the view, the proxy's startup probe) are reads here; every write in
+    // this codebase runs in a transaction.
+    private void recordWrite() {
+        if (primaryAfterWriteNanos == 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWriteNanos.set(System.nanoTime());
+            }
+        });
+    }
+}
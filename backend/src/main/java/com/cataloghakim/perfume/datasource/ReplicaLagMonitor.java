@@ -0,0 +1,54 @@
+package com.cataloghakim.perfume.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // Zero when the replica has replayed everything it received (an idle primary would otherwise look like lag),
+    // and zero on a server that is not in recovery at all, such as a second standalone database in development
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) END";
+
+    private final DataSource replica;
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    public ReplicaLagMonitor(DataSource replica, ReadWriteRoutingDataSource routingDataSource) {
+        this.replica = replica;
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:5000}")
+    public void check() {
+        boolean wasUsable = routingDataSource.isReplicaUsable();
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(2);
+            try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                routingDataSource.updateReplicaLag(resultSet.getLong(1));
+            }
+        } catch (SQLException e) {
+            routingDataSource.updateReplicaLag(-1);
+            if (wasUsable) {
+                logger.warn("Read replica unreachable: {}", e.getMessage());
+            }
+        }
+
+        boolean usable = routingDataSource.isReplicaUsable();
+        if (wasUsable != usable) {
+            logger.info(usable ? "Read replica back in rotation" : "Read replica out of rotation, reads go to the primary");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.cataloghakim.perfume.datasource;
+
+import com.cataloghakim.perfume.bulkhead.WorkloadClass;
+import com.cataloghakim.perfume.bulkhead.WorkloadContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps how many of the pool's connections each workload class may hold at once, so a slow admin export or a
+// login storm cannot drain the pool the storefront reads from. Classes without a quota share the rest freely.
+public class WorkloadQuotaDataSource extends CloseableDelegatingDataSource {
+
+    private final Map<WorkloadClass, Semaphore> quotas = new EnumMap<>(WorkloadClass.class);
+    private final Map<WorkloadClass, Integer> limits = new EnumMap<>(WorkloadClass.class);
+    private final Map<WorkloadClass, AtomicLong> timeouts = new EnumMap<>(WorkloadClass.class);
+    private final long maxWaitMs;
+
+    // A limit of 0 or less leaves the class unrestricted
+    public WorkloadQuotaDataSource(DataSource target, Map<WorkloadClass, Integer> maxConnections, long maxWaitMs) {
+        super(target);
+        this.maxWaitMs = maxWaitMs;
+        maxConnections.forEach((workloadClass, limit) -> {
+            if (limit > 0) {
+                quotas.put(workloadClass, new Semaphore(limit, true));
+                limits.put(workloadClass, limit);
+                timeouts.put(workloadClass, new AtomicLong());
+            }
+        });
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Semaphore quota = acquire();
+        try {
+            Connection connection = super.getConnection();
+            return quota == null ? connection : ReleasingConnection.wrap(connection, quota::release);
+        } catch (SQLException | RuntimeException e) {
+            if (quota != null) {
+                quota.release();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Semaphore quota = acquire();
+        try {
+            Connection connection = super.getConnection(username, password);
+            return quota == null ? connection : ReleasingConnection.wrap(connection, quota::release);
+        } catch (SQLException | RuntimeException e) {
+            if (quota != null) {
+                quota.release();
+            }
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        quotas.forEach((workloadClass, quota) -> {
+            int limit = limits.get(workloadClass);
+            Map<String, Object> classStats = new LinkedHashMap<>();
+            classStats.put("maxConnections", limit);
+            classStats.put("inUse", limit - quota.availablePermits());
+            classStats.put("waiting", quota.getQueueLength());
+            classStats.put("timeouts", timeouts.get(workloadClass).get());
+            stats.put(workloadClass.key(), classStats);
+        });
+        return stats;
+    }
+
+    private Semaphore acquire() throws SQLException {
+        WorkloadClass workloadClass = WorkloadContext.current();
+        Semaphore quota = quotas.get(workloadClass);
+        if (quota == null) {
+            return null;
+        }
+        try {
+            if (!quota.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                timeouts.get(workloadClass).incrementAndGet();
+                throw new SQLTransientConnectionException("Timed out after " + maxWaitMs
+                        + "ms waiting for a database connection within the " + workloadClass.key() + " quota");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+        return quota;
+    }
+}
@@ -8,6 +8,10 @@ public class BrandDTO {
     private String name;
     private String description;
     private String imageUrl;
+    private String imageBlurHash;
+    private String imageDominantColor;
+    private Integer imageWidth;
+    private Integer imageHeight;
     private Long categoryId;
     private String categoryName;
     private List<PerfumeDTO> perfumes;
@@ -67,6 +71,38 @@ public class BrandDTO {
         this.imageUrl = imageUrl;
     }
     
+    public String getImageBlurHash() {
+        return imageBlurHash;
+    }
+    
+    public void setImageBlurHash(String imageBlurHash) {
+        this.imageBlurHash = imageBlurHash;
+    }
+    
+    public String getImageDominantColor() {
+        return imageDominantColor;
+    }
+    
+    public void setImageDominantColor(String imageDominantColor) {
+        this.imageDominantColor = imageDominantColor;
+    }
+    
+    public Integer getImageWidth() {
+        return imageWidth;
+    }
+    
+    public void setImageWidth(Integer imageWidth) {
+        this.imageWidth = imageWidth;
+    }
+    
+    public Integer getImageHeight() {
+        return imageHeight;
+    }
+    
+    public void setImageHeight(Integer imageHeight) {
+        this.imageHeight = imageHeight;
+    }
+    
     public Long getCategoryId() {
         return categoryId;
     }
@@ -0,0 +1,114 @@
+package com.cataloghakim.perfume.dto;
+
+import java.time.Instant;
+import java.util.Set;
+
+public class ImageMetadataDTO {
+    
+    private String filename;
+    private String hash;
+    private long size;
+    private Integer width;
+    private Integer height;
+    private String contentType;
+    private String blurHash;
+    private String dominantColor;
+    private Instant createdAt;
+    private Set<Long> brandIds;
+    
+    // Constructors
+    public ImageMetadataDTO() {}
+    
+    public ImageMetadataDTO(String filename, String hash, long size, Integer width, Integer height,
+                            String contentType, Instant createdAt, Set<Long> brandIds) {
+        this.filename = filename;
+        this.hash = hash;
+        this.size = size;
+        this.width = width;
+        this.height = height;
+        this.contentType = contentType;
+        this.createdAt = createdAt;
+        this.brandIds = brandIds;
+    }
+    
+    // Getters and Setters
+    public String getFilename() {
+        return filename;
+    }
+    
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+    
+    public String getHash() {
+        return hash;
+    }
+    
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public void setSize(long size) {
+        this.size = size;
+    }
+    
+    public Integer getWidth() {
+        return width;
+    }
+    
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+    
+    public Integer getHeight() {
+        return height;
+    }
+    
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+    
+    public String getBlurHash() {
+        return blurHash;
+    }
+    
+    public void setBlurHash(String blurHash) {
+        this.blurHash = blurHash;
+    }
+    
+    public String getDominantColor() {
+        return dominantColor;
+    }
+    
+    public void setDominantColor(String dominantColor) {
+        this.dominantColor = dominantColor;
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public Set<Long> getBrandIds() {
+        return brandIds;
+    }
+    
+    public void setBrandIds(Set<Long> brandIds) {
+        this.brandIds = brandIds;
+    }
+}
@@ -25,6 +25,17 @@ public class Brand {
     
     private String imageUrl;
     
+    // Placeholder of the image behind imageUrl, so cards can be laid out and tinted before the image loads
+    @Column(length = 64)
+    private String imageBlurHash;
+    
+    @Column(length = 7)
+    private String imageDominantColor;
+    
+    private Integer imageWidth;
+    
+    private Integer imageHeight;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     @NotNull(message = "Category is required")
@@ -76,6 +87,38 @@ public class Brand {
         this.imageUrl = imageUrl;
     }
     
+    public String getImageBlurHash() {
+        return imageBlurHash;
+    }
+    
+    public void setImageBlurHash(String imageBlurHash) {
+        this.imageBlurHash = imageBlurHash;
+    }
+    
+    public String getImageDominantColor() {
+        return imageDominantColor;
+    }
+    
+    public void setImageDominantColor(String imageDominantColor) {
+        this.imageDominantColor = imageDominantColor;
+    }
+    
+    public Integer getImageWidth() {
+        return imageWidth;
+    }
+    
+    public void setImageWidth(Integer imageWidth) {
+        this.imageWidth = imageWidth;
+    }
+    
+    public Integer getImageHeight() {
+        return imageHeight;
+    }
+    
+    public void setImageHeight(Integer imageHeight) {
+        this.imageHeight = imageHeight;
+    }
+    
     public Category getCategory() {
         return category;
     }
@@ -0,0 +1,141 @@
+package com.cataloghakim.perfume.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+@Entity
+@Table(name = "image_metadata", indexes = @Index(name = "idx_image_metadata_created_at", columnList = "createdAt"))
+public class ImageMetadata {
+    
+    @Id
+    @Column(length = 80)
+    private String filename;
+    
+    // SHA-256 of the content; the filename is this hash plus the sniffed extension
+    @Column(nullable = false, length = 64)
+    private String hash;
+    
+    @Column(name = "size_bytes", nullable = false)
+    private long size;
+    
+    private Integer width;
+    
+    private Integer height;
+    
+    @Column(nullable = false, length = 50)
+    private String contentType;
+    
+    @Column(length = 64)
+    private String blurHash;
+    
+    @Column(length = 7)
+    private String dominantColor;
+    
+    @Column(nullable = false)
+    private Instant createdAt;
+    
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "image_metadata_brands", joinColumns = @JoinColumn(name = "filename"))
+    @Column(name = "brand_id")
+    @BatchSize(size = 100)
+    private Set<Long> brandIds = new HashSet<>();
+    
+    // Constructors
+    public ImageMetadata() {}
+    
+    public ImageMetadata(String filename, String hash, long size, Integer width, Integer height,
+                         String contentType, Instant createdAt) {
+        this.filename = filename;
+        this.hash = hash;
+        this.size = size;
+        this.width = width;
+        this.height = height;
+        this.contentType = contentType;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public String getFilename() {
+        return filename;
+    }
+    
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+    
+    public String getHash() {
+        return hash;
+    }
+    
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public void setSize(long size) {
+        this.size = size;
+    }
+    
+    public Integer getWidth() {
+        return width;
+    }
+    
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+    
+    public Integer getHeight() {
+        return height;
+    }
+    
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+    
+    public String getBlurHash() {
+        return blurHash;
+    }
+    
+    public void setBlurHash(String blurHash) {
+        this.blurHash = blurHash;
+    }
+    
+    public String getDominantColor() {
+        return dominantColor;
+    }
+    
+    public void setDominantColor(String dominantColor) {
+        this.dominantColor = dominantColor;
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public Set<Long> getBrandIds() {
+        return brandIds;
+    }
+    
+    public void setBrandIds(Set<Long> brandIds) {
+        this.brandIds = brandIds;
+    }
+}
@@ -0,0 +1,55 @@
+package com.cataloghakim.perfume.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "job_leases")
+public class JobLease {
+    
+    @Id
+    @Column(length = 64)
+    private String name;
+    
+    // Node currently running the job
+    @Column(nullable = false, length = 64)
+    private String owner;
+    
+    // Another node may take the job over after this instant, e.g. when the owner died mid-run
+    @Column(nullable = false)
+    private Instant expiresAt;
+    
+    // Constructors
+    public JobLease() {}
+    
+    public JobLease(String name, String owner, Instant expiresAt) {
+        this.name = name;
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getOwner() {
+        return owner;
+    }
+    
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+    
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -29,6 +29,10 @@ public class Perfume {
     @NotNull(message = "Brand is required")
     private Brand brand;
     
+    // Content hash of the supplier feed row this perfume was last synced from
+    @Column(name = "sync_hash", length = 64)
+    private String syncHash;
+    
     // Constructors
     public Perfume() {}
     
@@ -70,4 +74,12 @@ public class Perfume {
     public void setBrand(Brand brand) {
         this.brand = brand;
     }
+    
+    public String getSyncHash() {
+        return syncHash;
+    }
+    
+    public void setSyncHash(String syncHash) {
+        this.syncHash = syncHash;
+    }
 }
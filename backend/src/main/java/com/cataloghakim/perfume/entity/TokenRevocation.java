@@ -0,0 +1,42 @@
+package com.cataloghakim.perfume.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "token_revocations")
+public class TokenRevocation {
+    
+    @Id
+    @Column(length = 50)
+    private String username;
+    
+    // Tokens for this username issued before this instant are rejected
+    @Column(nullable = false)
+    private Instant revokedBefore;
+    
+    // Constructors
+    public TokenRevocation() {}
+    
+    public TokenRevocation(String username, Instant revokedBefore) {
+        this.username = username;
+        this.revokedBefore = revokedBefore;
+    }
+    
+    // Getters and Setters
+    public String getUsername() {
+        return username;
+    }
+    
+    public void setUsername(String username) {
+        this.username = username;
+    }
+    
+    public Instant getRevokedBefore() {
+        return revokedBefore;
+    }
+    
+    public void setRevokedBefore(Instant revokedBefore) {
+        this.revokedBefore = revokedBefore;
+    }
+}
@@ -0,0 +1,101 @@
+package com.cataloghakim.perfume.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "upload_sessions", indexes = @Index(name = "idx_upload_sessions_updated_at", columnList = "updatedAt"))
+public class UploadSession {
+    
+    @Id
+    @Column(length = 36)
+    private String id;
+    
+    @Column(nullable = false)
+    private long totalSize;
+    
+    // Bytes known to be durably stored; chunks starting beyond this offset are rejected so the parts leave no gaps
+    @Column(nullable = false)
+    private long receivedBytes;
+    
+    @Column(nullable = false, length = 50)
+    private String createdBy;
+    
+    @Column(length = 255)
+    private String originalFilename;
+    
+    @Column(nullable = false)
+    private Instant createdAt;
+    
+    @Column(nullable = false)
+    private Instant updatedAt;
+    
+    // Constructors
+    public UploadSession() {}
+    
+    public UploadSession(String id, long totalSize, String createdBy, String originalFilename, Instant createdAt) {
+        this.id = id;
+        this.totalSize = totalSize;
+        this.createdBy = createdBy;
+        this.originalFilename = originalFilename;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public long getTotalSize() {
+        return totalSize;
+    }
+    
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+    
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+    
+    public void setReceivedBytes(long receivedBytes) {
+        this.receivedBytes = receivedBytes;
+    }
+    
+    public String getCreatedBy() {
+        return createdBy;
+    }
+    
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+    
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+    
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,10 @@
+package com.cataloghakim.perfume.exception;
+
+public class FileTooLargeException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public FileTooLargeException(String message) {
+        super(message);
+    }
+}
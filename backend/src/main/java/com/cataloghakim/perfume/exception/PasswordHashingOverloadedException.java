@@ -0,0 +1,10 @@
+package com.cataloghakim.perfume.exception;
+
+public class PasswordHashingOverloadedException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
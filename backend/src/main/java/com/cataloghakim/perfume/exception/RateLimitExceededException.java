@@ -0,0 +1,17 @@
+package com.cataloghakim.perfume.exception;
+
+public class RateLimitExceededException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final long retryAfterSeconds;
+    
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
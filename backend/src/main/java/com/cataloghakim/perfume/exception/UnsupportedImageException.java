@@ -0,0 +1,13 @@
+package com.cataloghakim.perfume.exception;
+
+import java.io.IOException;
+
+// The content is not an image we accept; sending the same bytes again cannot succeed
+public class UnsupportedImageException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UnsupportedImageException(String message) {
+        super(message);
+    }
+}
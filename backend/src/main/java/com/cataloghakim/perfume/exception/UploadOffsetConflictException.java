@@ -0,0 +1,17 @@
+package com.cataloghakim.perfume.exception;
+
+public class UploadOffsetConflictException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final long expectedOffset;
+    
+    public UploadOffsetConflictException(String message, long expectedOffset) {
+        super(message);
+        this.expectedOffset = expectedOffset;
+    }
+    
+    public long getExpectedOffset() {
+        return expectedOffset;
+    }
+}
@@ -0,0 +1,104 @@
+package com.cataloghakim.perfume.ratelimit;
+
+import com.cataloghakim.perfume.exception.ServiceOverloadedException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps concurrent executions and sheds load early instead of letting requests pile up behind a slow database:
+// arrivals are rejected at once when the wait queue is full or recent latency is over the threshold, and waiters
+// give up after a short bounded wait.
+public class LoadShedder {
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final String name;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxQueueWaitMs;
+    private final long latencyThresholdMs;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong averageLatencyBits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong shedQueueFull = new AtomicLong();
+    private final AtomicLong shedLatency = new AtomicLong();
+    private final AtomicLong shedTimeout = new AtomicLong();
+
+    public LoadShedder(String name, int maxConcurrent, int maxQueue, long maxQueueWaitMs, long latencyThresholdMs) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxQueueWaitMs = maxQueueWaitMs;
+        this.latencyThresholdMs = latencyThresholdMs;
+    }
+
+    // Every successful acquire() must be paired with release()
+    public void acquire() {
+        if (permits.tryAcquire()) {
+            admitted.incrementAndGet();
+            return;
+        }
+        // Only queued arrivals are shed for latency; a free slot always admits, which keeps the average current
+        if (latencyThresholdMs > 0 && getAverageLatencyMs() > latencyThresholdMs) {
+            shedLatency.incrementAndGet();
+            throw new ServiceOverloadedException("The " + name + " service is responding slowly, please retry shortly");
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            shedQueueFull.incrementAndGet();
+            throw new ServiceOverloadedException("The " + name + " service is busy, please retry shortly");
+        }
+        try {
+            if (!permits.tryAcquire(maxQueueWaitMs, TimeUnit.MILLISECONDS)) {
+                shedTimeout.incrementAndGet();
+                throw new ServiceOverloadedException("The " + name + " service is busy, please retry shortly");
+            }
+            admitted.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Interrupted while waiting for the " + name + " service");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release(long elapsedNanos) {
+        permits.release();
+        double latencyMs = elapsedNanos / 1_000_000.0;
+        while (true) {
+            long currentBits = averageLatencyBits.get();
+            double current = Double.longBitsToDouble(currentBits);
+            double updated = current == 0.0 ? latencyMs : current + LATENCY_SMOOTHING * (latencyMs - current);
+            if (averageLatencyBits.compareAndSet(currentBits, Double.doubleToLongBits(updated))) {
+                return;
+            }
+        }
+    }
+
+    public double getAverageLatencyMs() {
+        return Double.longBitsToDouble(averageLatencyBits.get());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("inFlight", maxConcurrent - permits.availablePermits());
+        stats.put("waiting", waiting.get());
+        stats.put("maxQueue", maxQueue);
+        stats.put("averageLatencyMs", getAverageLatencyMs());
+        stats.put("latencyThresholdMs", latencyThresholdMs);
+        stats.put("admitted", admitted.get());
+        stats.put("shedQueueFull", shedQueueFull.get());
+        stats.put("shedLatency", shedLatency.get());
+        stats.put("shedTimeout", shedTimeout.get());
+        return stats;
+    }
+}
@@ -0,0 +1,112 @@
+package com.cataloghakim.perfume.ratelimit;
+
+import com.cataloghakim.perfume.exception.RateLimitExceededException;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Guards the unauthenticated LIKE-scan search endpoints: a per-client token bucket first (429), then a shared
+// concurrency limit with load shedding (503). Rejections are thrown so GlobalExceptionHandler renders them.
+@Component
+public class SearchProtectionInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = SearchProtectionInterceptor.class.getName() + ".start";
+
+    @Value("${app.rate-limit.search.requests-per-second:2}")
+    private double requestsPerSecond;
+
+    @Value("${app.rate-limit.search.burst:10}")
+    private int burst;
+
+    @Value("${app.rate-limit.max-buckets:100000}")
+    private int maxBuckets;
+
+    @Value("${app.rate-limit.client-ip-header:}")
+    private String clientIpHeader;
+
+    @Value("${app.load-shedding.search.max-concurrent:3}")
+    private int maxConcurrent;
+
+    @Value("${app.load-shedding.search.max-queue:20}")
+    private int maxQueue;
+
+    @Value("${app.load-shedding.search.max-queue-wait-ms:500}")
+    private long maxQueueWaitMs;
+
+    @Value("${app.load-shedding.search.latency-threshold-ms:2000}")
+    private long latencyThresholdMs;
+
+    private TokenBucketRateLimiter rateLimiter;
+    private LoadShedder loadShedder;
+
+    @PostConstruct
+    public void init() {
+        rateLimiter = new TokenBucketRateLimiter(requestsPerSecond, burst, maxBuckets);
+        loadShedder = new LoadShedder("search", maxConcurrent, maxQueue, maxQueueWaitMs, latencyThresholdMs);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+
+        // The matched pattern groups /search/{searchTerm} into one route regardless of the term
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        long waitNanos = rateLimiter.tryAcquire(route, resolveClientIp(request));
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (long) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+            throw new RateLimitExceededException("Too many search requests, please slow down", retryAfterSeconds);
+        }
+
+        loadShedder.acquire();
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start instanceof Long startNanos) {
+            request.removeAttribute(START_ATTRIBUTE);
+            loadShedder.release(System.nanoTime() - startNanos);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        rateLimiter.evictIdle();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rateLimit", rateLimiter.getStats());
+        stats.put("loadShedding", loadShedder.getStats());
+        return stats;
+    }
+
+    // Behind a proxy the last X-Forwarded-For entry is the one the proxy itself appended, so clients cannot forge it
+    private String resolveClientIp(HttpServletRequest request) {
+        if (!clientIpHeader.isEmpty()) {
+            String forwarded = request.getHeader(clientIpHeader);
+            if (forwarded != null && !forwarded.isBlank()) {
+                String last = forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+                if (!last.isEmpty()) {
+                    return last;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,85 @@
+package com.cataloghakim.perfume.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets stored as a single "theoretical arrival time" each (GCRA), so taking a token is one CAS and no bucket
+// ever needs a lock or a refill timer. A bucket whose arrival time has passed is full again, which makes dropping it
+// lossless: that is all idle eviction does.
+public class TokenBucketRateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxBuckets;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong limited = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public TokenBucketRateLimiter(double tokensPerSecond, int burst, int maxBuckets) {
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, burst - 1);
+        this.maxBuckets = maxBuckets;
+    }
+
+    // Returns 0 when a token was taken, otherwise how long until the next one is available
+    public long tryAcquire(String route, String client) {
+        long now = System.nanoTime();
+        AtomicLong bucket = bucketFor(route, client, now);
+        while (true) {
+            long theoreticalArrival = bucket.get();
+            long base = theoreticalArrival - now > 0 ? theoreticalArrival : now;
+            long waitNanos = base - now - burstToleranceNanos;
+            if (waitNanos > 0) {
+                limited.incrementAndGet();
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(theoreticalArrival, base + emissionIntervalNanos)) {
+                allowed.incrementAndGet();
+                return 0;
+            }
+        }
+    }
+
+    // Removes every bucket that has refilled completely
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        evicted.addAndGet(Math.max(0, before - buckets.size()));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buckets", buckets.size());
+        stats.put("maxBuckets", maxBuckets);
+        stats.put("allowed", allowed.get());
+        stats.put("limited", limited.get());
+        stats.put("overflowed", overflowed.get());
+        stats.put("evicted", evicted.get());
+        return stats;
+    }
+
+    // Once the table is full of active clients, newcomers share one bucket per route rather than growing it further
+    private AtomicLong bucketFor(String route, String client, long now) {
+        String key = route + '|' + client;
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            evictIdle();
+            if (buckets.size() >= maxBuckets) {
+                overflowed.incrementAndGet();
+                key = route + "|overflow";
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+}
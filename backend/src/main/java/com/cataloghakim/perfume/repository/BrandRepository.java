@@ -1,6 +1,7 @@
 package com.cataloghakim.perfume.repository;
 
 import com.cataloghakim.perfume.entity.Brand;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -21,9 +22,28 @@ public interface BrandRepository extends JpaRepository<Brand, Long> {
     @Query("SELECT b FROM Brand b LEFT JOIN FETCH b.perfumes WHERE b.id = :id")
     Optional<Brand> findByIdWithPerfumes(@Param("id") Long id);
     
-    @Query("SELECT b FROM Brand b LEFT JOIN FETCH b.perfumes WHERE b.category.id = :categoryId")
+    @Query("SELECT b FROM Brand b LEFT JOIN FETCH b.perfumes WHERE b.category.id = :categoryId ORDER BY b.id")
     List<Brand> findByCategoryIdWithPerfumes(@Param("categoryId") Long categoryId);
     
-    @Query("SELECT DISTINCT b FROM Brand b LEFT JOIN FETCH b.perfumes")
+    @Query("SELECT DISTINCT b FROM Brand b LEFT JOIN FETCH b.perfumes ORDER BY b.id")
     List<Brand> findAllWithPerfumes();
+    
+    @Query("SELECT DISTINCT b.imageUrl FROM Brand b WHERE b.imageUrl IS NOT NULL AND b.imageUrl <> ''")
+    List<String> findAllImageUrls();
+    
+    @Query("SELECT b.id, b.imageUrl FROM Brand b WHERE b.imageUrl IS NOT NULL AND b.imageUrl <> ''")
+    List<Object[]> findImageReferences();
+    
+    // Same forms StoredFile.filenameFromImageUrl accepts: a bare name, a path or URL ending in it, with or without a query
+    @Query("SELECT COUNT(b) > 0 FROM Brand b WHERE b.imageUrl = :filename"
+            + " OR b.imageUrl LIKE CONCAT(:filename, '?%')"
+            + " OR b.imageUrl LIKE CONCAT('%/', :filename)"
+            + " OR b.imageUrl LIKE CONCAT('%/', :filename, '?%')")
+    boolean existsByImageFilename(@Param("filename") String filename);
+    
+    @Query("SELECT b FROM Brand b WHERE b.imageBlurHash IS NULL AND b.imageUrl IS NOT NULL AND b.id > :after ORDER BY b.id")
+    List<Brand> findMissingPlaceholders(@Param("after") Long after, Pageable pageable);
+    
+    @Query("SELECT b.id, b.imageUrl FROM Brand b WHERE LOWER(b.imageUrl) LIKE 'http://%' OR LOWER(b.imageUrl) LIKE 'https://%'")
+    List<Object[]> findRemoteImageReferences();
 }
@@ -0,0 +1,33 @@
+package com.cataloghakim.perfume.repository;
+
+import com.cataloghakim.perfume.entity.ImageMetadata;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ImageMetadataRepository extends JpaRepository<ImageMetadata, String> {
+    
+    @Query("SELECT i FROM ImageMetadata i WHERE :brandId MEMBER OF i.brandIds")
+    List<ImageMetadata> findByBrandId(@Param("brandId") Long brandId);
+    
+    @Query(value = "SELECT i FROM ImageMetadata i WHERE i.brandIds IS EMPTY",
+           countQuery = "SELECT COUNT(i) FROM ImageMetadata i WHERE i.brandIds IS EMPTY")
+    Page<ImageMetadata> findUnreferenced(Pageable pageable);
+    
+    @Query("SELECT DISTINCT i.filename FROM ImageMetadata i WHERE i.brandIds IS NOT EMPTY")
+    List<String> findReferencedFilenames();
+    
+    // Keyset pages by filename, for walking the whole index in short transactions
+    @Query("SELECT i FROM ImageMetadata i WHERE i.filename > :after ORDER BY i.filename")
+    List<ImageMetadata> findPageAfter(@Param("after") String after, Pageable pageable);
+    
+    @Query("SELECT i FROM ImageMetadata i WHERE i.blurHash IS NULL AND i.contentType <> 'image/svg+xml'"
+            + " AND i.filename > :after ORDER BY i.filename")
+    List<ImageMetadata> findMissingPlaceholders(@Param("after") String after, Pageable pageable);
+}
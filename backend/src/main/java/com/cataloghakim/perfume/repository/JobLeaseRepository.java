@@ -0,0 +1,25 @@
+package com.cataloghakim.perfume.repository;
+
+import com.cataloghakim.perfume.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+    
+    // Takes over an expired lease or extends our own; the row lock makes concurrent claims mutually exclusive
+    @Modifying
+    @Query("UPDATE JobLease l SET l.owner = :owner, l.expiresAt = :expiresAt"
+            + " WHERE l.name = :name AND (l.expiresAt < :now OR l.owner = :owner)")
+    int claim(@Param("name") String name, @Param("owner") String owner,
+              @Param("expiresAt") Instant expiresAt, @Param("now") Instant now);
+    
+    @Modifying
+    @Query("UPDATE JobLease l SET l.expiresAt = :now WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") Instant now);
+}
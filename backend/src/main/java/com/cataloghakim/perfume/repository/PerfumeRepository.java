@@ -12,16 +12,16 @@ import java.util.Optional;
 @Repository
 public interface PerfumeRepository extends JpaRepository<Perfume, Long> {
     
-    List<Perfume> findByBrandId(Long brandId);
+    List<Perfume> findByBrandIdOrderById(Long brandId);
     
-    List<Perfume> findByBrandCategoryId(Long categoryId);
+    List<Perfume> findByBrandCategoryIdOrderById(Long categoryId);
     
     @Query("SELECT p FROM Perfume p JOIN p.brand b WHERE " +
            "(:searchTerm IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(b.name) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
            "(:brandName IS NULL OR LOWER(b.name) LIKE LOWER(CONCAT('%', :brandName, '%'))) AND " +
            "(:minNumber IS NULL OR p.number >= :minNumber) AND " +
-           "(:maxNumber IS NULL OR p.number <= :maxNumber)")
+           "(:maxNumber IS NULL OR p.number <= :maxNumber) ORDER BY p.id")
     List<Perfume> searchAndFilter(@Param("searchTerm") String searchTerm,
                                   @Param("brandName") String brandName,
                                   @Param("minNumber") Integer minNumber,
@@ -37,4 +37,8 @@ public interface PerfumeRepository extends JpaRepository<Perfume, Long> {
     
     @Query("SELECT p FROM Perfume p WHERE p.number BETWEEN :minNumber AND :maxNumber")
     List<Perfume> findByNumberRange(@Param("minNumber") Integer minNumber, @Param("maxNumber") Integer maxNumber);
+    
+    // id, number and sync hash only, so a feed diff does not hydrate every perfume
+    @Query("SELECT p.id, p.number, p.syncHash FROM Perfume p")
+    List<Object[]> findSyncState();
 }
@@ -0,0 +1,18 @@
+package com.cataloghakim.perfume.repository;
+
+import com.cataloghakim.perfume.entity.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, String> {
+    
+    @Modifying
+    @Query("DELETE FROM TokenRevocation t WHERE t.revokedBefore < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,26 @@
+package com.cataloghakim.perfume.repository;
+
+import com.cataloghakim.perfume.entity.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    
+    List<UploadSession> findByUpdatedAtBefore(Instant cutoff);
+    
+    // Raises receivedBytes to end unless it is already past it; matches nothing once the session is gone
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.receivedBytes = CASE WHEN s.receivedBytes < :end THEN :end"
+            + " ELSE s.receivedBytes END, s.updatedAt = :now WHERE s.id = :id AND s.receivedBytes >= :start")
+    int recordChunk(@Param("id") String id, @Param("start") long start, @Param("end") long end,
+                    @Param("now") Instant now);
+}
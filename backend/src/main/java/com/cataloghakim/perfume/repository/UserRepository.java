@@ -2,8 +2,10 @@ package com.cataloghakim.perfume.repository;
 
 import com.cataloghakim.perfume.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +18,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
     
     boolean existsByEmail(String email);
+    
+    @Query("SELECT u.username FROM User u WHERE u.enabled = false")
+    List<String> findDisabledUsernames();
 }
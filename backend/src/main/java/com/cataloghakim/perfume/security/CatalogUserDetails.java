@@ -0,0 +1,28 @@
+package com.cataloghakim.perfume.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+// Spring Security user that also carries the e-mail, so login can answer without a second user lookup
+public class CatalogUserDetails extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String email;
+
+    public CatalogUserDetails(String username, String password, String email, boolean enabled,
+                              Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.email = email;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public CatalogUserDetails copy() {
+        return new CatalogUserDetails(getUsername(), getPassword(), email, isEnabled(), getAuthorities());
+    }
+}
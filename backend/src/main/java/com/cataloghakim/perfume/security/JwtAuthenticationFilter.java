@@ -1,13 +1,18 @@
 package com.cataloghakim.perfume.security;
 
 import com.cataloghakim.perfume.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -15,6 +20,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -25,6 +31,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
     
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    
+    @Value("${app.auth.stateless:false}")
+    private boolean stateless;
+    
     @Override
     protected void doFilterInternal(
             HttpServletRequest request,
@@ -34,7 +46,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
+        final Claims claims;
         
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -42,12 +54,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        // Signature and expiry are checked here once; the claims are reused for the rest of the request
+        claims = jwtService.verifyToken(jwt);
         
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (claims != null && claims.getSubject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = stateless
+                    ? userFromClaims(claims)
+                    : this.userDetailsService.loadUserByUsername(claims.getSubject());
             
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null && claims.getSubject().equals(userDetails.getUsername())) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -62,4 +78,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+    
+    // Stateless mode trusts the verified roles claim and only consults the in-memory revocation list
+    private UserDetails userFromClaims(Claims claims) {
+        if (tokenRevocationList.isRevoked(claims.getSubject(), JwtService.issuedAt(claims))) {
+            return null;
+        }
+        
+        List<?> roles = claims.get("roles", List.class);
+        List<GrantedAuthority> authorities = roles == null
+                ? List.of()
+                : roles.stream()
+                        .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                        .toList();
+        
+        return User.withUsername(claims.getSubject())
+                .password("")
+                .authorities(authorities)
+                .build();
+    }
 }
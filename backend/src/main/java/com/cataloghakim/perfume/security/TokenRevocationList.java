@@ -0,0 +1,211 @@
+package com.cataloghakim.perfume.security;
+
+import com.cataloghakim.perfume.entity.TokenRevocation;
+import com.cataloghakim.perfume.repository.TokenRevocationRepository;
+import com.cataloghakim.perfume.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class TokenRevocationList {
+
+    private static final int HASH_FUNCTIONS = 4;
+
+    @Value("${app.auth.revocation.bloom-bits:65536}")
+    private int bloomBits;
+
+    @Value("${jwt.expiration}")
+    private long jwtExpiration;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRevocationRepository tokenRevocationRepository;
+
+    // The Bloom filter answers "definitely not disabled" for almost every request without touching the exact set
+    private volatile BloomFilter disabledFilter;
+    private final Set<String> disabledUsers = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    // Bumped by every local disable or enable, so a reload can tell that its query may have missed one
+    private final AtomicLong localChanges = new AtomicLong();
+
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong bloomFalsePositives = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void load() {
+        // Entries older than the token lifetime can no longer match a live token
+        tokenRevocationRepository.deleteOlderThan(Instant.now().minusMillis(jwtExpiration));
+        reload();
+        loaded = true;
+    }
+
+    // Other nodes only write to the database, so revocations and disables made there are picked up from it here;
+    // a change made on another node takes effect on this one within the reload interval
+    @Scheduled(initialDelayString = "${app.auth.revocation.reload-interval-ms:10000}",
+            fixedDelayString = "${app.auth.revocation.reload-interval-ms:10000}")
+    public void scheduledReload() {
+        if (loaded) {
+            reload();
+        }
+    }
+
+    void reload() {
+        long expiredBefore = System.currentTimeMillis() - jwtExpiration;
+        for (TokenRevocation revocation : tokenRevocationRepository.findAll()) {
+            revokedBefore.merge(revocation.getUsername(), revocation.getRevokedBefore().toEpochMilli(), Math::max);
+        }
+        // Cutoffs older than the token lifetime can no longer match a live token
+        revokedBefore.values().removeIf(cutoff -> cutoff < expiredBefore);
+
+        long changesBefore = localChanges.get();
+        Set<String> disabled = new HashSet<>(userRepository.findDisabledUsernames());
+        // A local disable that committed while the query ran may be missing from its result, so nothing is dropped
+        // this time; the next reload removes what is really gone
+        boolean removed = localChanges.get() == changesBefore && disabledUsers.retainAll(disabled);
+        boolean added = disabledUsers.addAll(disabled);
+        if (removed || added || disabledFilter == null) {
+            rebuildFilter();
+        }
+        reloads.incrementAndGet();
+    }
+
+    public boolean isRevoked(String username, Date issuedAt) {
+        checks.incrementAndGet();
+
+        if (disabledFilter != null && disabledFilter.mightContain(username)) {
+            if (disabledUsers.contains(username)) {
+                rejected.incrementAndGet();
+                return true;
+            }
+            bloomFalsePositives.incrementAndGet();
+        }
+
+        // Inclusive: a token issued in the cutoff's millisecond (or, for tokens with only a whole-second iat, in its
+        // second) may predate the change
+        Long cutoff = revokedBefore.get(username);
+        if (cutoff != null && (issuedAt == null || issuedAt.getTime() <= cutoff)) {
+            rejected.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // Called once the disable has committed, so a reload can never read the row from before it
+    public void disable(String username) {
+        localChanges.incrementAndGet();
+        disabledUsers.add(username);
+        BloomFilter filter = disabledFilter;
+        if (filter != null) {
+            filter.add(username);
+        } else {
+            rebuildFilter();
+        }
+    }
+
+    public void enable(String username) {
+        localChanges.incrementAndGet();
+        if (disabledUsers.remove(username)) {
+            // Bloom filters cannot forget, so rebuild from the exact set
+            rebuildFilter();
+        }
+    }
+
+    public void revokeIssuedBefore(String username, Instant instant) {
+        revokedBefore.merge(username, instant.toEpochMilli(), Math::max);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("disabledUsers", disabledUsers.size());
+        stats.put("revokedUsers", revokedBefore.size());
+        stats.put("bloomBits", bloomBits);
+        stats.put("reloads", reloads.get());
+        stats.put("checks", checks.get());
+        stats.put("rejected", rejected.get());
+        stats.put("bloomFalsePositives", bloomFalsePositives.get());
+        return stats;
+    }
+
+    private synchronized void rebuildFilter() {
+        BloomFilter filter = new BloomFilter(bloomBits);
+        for (String username : disabledUsers) {
+            filter.add(username);
+        }
+        disabledFilter = filter;
+    }
+
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final int size;
+
+        private BloomFilter(int size) {
+            this.size = Math.max(64, size);
+            this.bits = new AtomicLongArray((this.size + 63) / 64);
+        }
+
+        private void add(String value) {
+            long hash = hash64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                int bit = Math.floorMod(h1 + i * h2, size);
+                long mask = 1L << (bit & 63);
+                int word = bit >>> 6;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        private boolean mightContain(String value) {
+            long hash = hash64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                int bit = Math.floorMod(h1 + i * h2, size);
+                if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a over the UTF-8 bytes, mixed so both halves are usable as independent hashes
+        private static long hash64(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
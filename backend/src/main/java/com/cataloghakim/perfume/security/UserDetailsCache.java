@@ -0,0 +1,130 @@
+package com.cataloghakim.perfume.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class UserDetailsCache {
+
+    // Evictions only reach this node's cache, so the TTL is how long another node can keep serving a user's old
+    // roles or password hash; disables reach every node sooner through TokenRevocationList
+    @Value("${app.auth.user-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${app.auth.user-cache.max-size:1000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<String, CachedUser> entries = new ConcurrentHashMap<>();
+
+    // Bumped on every eviction so a load that raced with a user update cannot re-cache stale data
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserDetails get(String username) {
+        CachedUser cached = entries.get(username);
+        if (cached == null || cached.isExpired()) {
+            if (cached != null) {
+                entries.remove(username, cached);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        // Hand out a copy: the authentication manager erases credentials on the principal it returns
+        return copyOf(cached.details);
+    }
+
+    public long stamp() {
+        return generation.get();
+    }
+
+    public void put(UserDetails details, long stamp) {
+        if (generation.get() != stamp) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            makeRoom();
+        }
+        entries.put(details.getUsername(), new CachedUser(copyOf(details),
+                System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    public void evict(String username) {
+        generation.incrementAndGet();
+        if (username != null && entries.remove(username) != null) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private UserDetails copyOf(UserDetails details) {
+        if (details instanceof CatalogUserDetails catalogUser) {
+            return catalogUser.copy();
+        }
+        return User.withUserDetails(details).build();
+    }
+
+    private void makeRoom() {
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired());
+
+        // Still full: drop the entry closest to expiry
+        while (entries.size() >= maxSize) {
+            String oldest = null;
+            long oldestExpiry = Long.MAX_VALUE;
+            for (Map.Entry<String, CachedUser> entry : entries.entrySet()) {
+                if (entry.getValue().expiresAt < oldestExpiry) {
+                    oldestExpiry = entry.getValue().expiresAt;
+                    oldest = entry.getKey();
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            entries.remove(oldest);
+        }
+    }
+
+    private static final class CachedUser {
+        private final UserDetails details;
+        private final long expiresAt;
+
+        private CachedUser(UserDetails details, long expiresAt) {
+            this.details = details;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.config.WorkerThreads;
+import com.cataloghakim.perfume.exception.FileTooLargeException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+@Service
+public class BatchUploadService {
+
+    @Value("${app.upload.batch.concurrency:4}")
+    private int concurrency;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.upload.batch.max-files:200}")
+    private int maxFiles;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        // The pool size still bounds concurrency; in virtual-thread mode blocked workers no longer pin OS threads
+        executor = Executors.newFixedThreadPool(concurrency, WorkerThreads.factory("upload-batch-", virtualThreads));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Entries are read one at a time from the stream; at most `concurrency` of them are held in memory while stored
+    public List<Map<String, Object>> storeZip(InputStream body) throws IOException {
+        Batch batch = new Batch();
+        try (ZipInputStream zip = new ZipInputStream(body)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || isHidden(entry.getName())) {
+                    continue;
+                }
+                if (batch.size() >= maxFiles) {
+                    batch.reject(entry.getName(), "Batch exceeds the limit of " + maxFiles + " files");
+                    continue;
+                }
+
+                batch.acquire();
+                byte[] content;
+                try {
+                    content = readEntry(zip);
+                } catch (FileTooLargeException e) {
+                    batch.release();
+                    batch.reject(entry.getName(), e.getMessage());
+                    continue;
+                }
+                batch.submit(entry.getName(), () -> fileStorageService.storeStream(
+                        new ByteArrayInputStream(content), content.length));
+            }
+        }
+        return batch.manifest();
+    }
+
+    // Multipart parts are already spooled by the container, so they only need to be stored concurrently
+    public List<Map<String, Object>> storeParts(List<MultipartFile> files) throws IOException {
+        Batch batch = new Batch();
+        for (MultipartFile file : files) {
+            String name = file.getOriginalFilename() != null ? file.getOriginalFilename() : file.getName();
+            if (batch.size() >= maxFiles) {
+                batch.reject(name, "Batch exceeds the limit of " + maxFiles + " files");
+                continue;
+            }
+            batch.acquire();
+            batch.submit(name, () -> fileStorageService.storeFile(file));
+        }
+        return batch.manifest();
+    }
+
+    private byte[] readEntry(ZipInputStream zip) throws IOException {
+        long maxBytes = fileStorageService.getMaxUploadBytes();
+        byte[] content = zip.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBytes + 1));
+        if (content.length > maxBytes) {
+            throw new FileTooLargeException("File exceeds the maximum upload size");
+        }
+        return content;
+    }
+
+    // macOS archives carry __MACOSX/ resource forks and ._ files next to the real images
+    private boolean isHidden(String entryName) {
+        String name = entryName.substring(entryName.lastIndexOf('/') + 1);
+        return entryName.startsWith("__MACOSX/") || name.startsWith(".");
+    }
+
+    private interface StoreTask {
+        String store() throws IOException;
+    }
+
+    private final class Batch {
+        private final Semaphore permits = new Semaphore(concurrency);
+        private final List<Map<String, Object>> results = new ArrayList<>();
+        private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        private int size() {
+            return results.size();
+        }
+
+        private void acquire() throws IOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for an upload slot", e);
+            }
+        }
+
+        private void release() {
+            permits.release();
+        }
+
+        private void reject(String originalName, String message) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("originalName", originalName);
+            result.put("success", false);
+            result.put("message", message);
+            results.add(result);
+        }
+
+        private void submit(String originalName, StoreTask task) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("originalName", originalName);
+            results.add(result);
+            pending.add(CompletableFuture.runAsync(() -> {
+                try {
+                    String filename = task.store();
+                    imageVariantService.scheduleVariants(filename);
+                    result.put("success", true);
+                    result.put("filename", filename);
+                    result.put("url", "/api/files/" + filename);
+                } catch (IOException | RuntimeException e) {
+                    result.put("success", false);
+                    result.put("message", e.getMessage());
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+
+        // join() also publishes the workers' writes to each result map
+        private List<Map<String, Object>> manifest() {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+            return results;
+        }
+    }
+}
@@ -18,12 +18,19 @@ import java.util.stream.Collectors;
 @Transactional
 public class BrandService {
     
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    
     @Autowired
     private BrandRepository brandRepository;
     
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private ImageIndexService imageIndexService;
+    
+    @Transactional(readOnly = true)
     public List<BrandDTO> getAllBrands() {
         List<Brand> brands = brandRepository.findAllWithPerfumes();
         return brands.stream()
@@ -31,6 +38,7 @@ public class BrandService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<BrandDTO> getBrandsByCategory(Long categoryId) {
         List<Brand> brands = brandRepository.findByCategoryIdWithPerfumes(categoryId);
         return brands.stream()
@@ -38,6 +46,7 @@ public class BrandService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public Optional<BrandDTO> getBrandById(Long id) {
         return brandRepository.findByIdWithPerfumes(id)
                 .map(this::convertToDTO);
@@ -57,9 +66,12 @@ public class BrandService {
         brand.setName(requestDTO.getName());
         brand.setDescription(requestDTO.getDescription());
         brand.setImageUrl(requestDTO.getImageUrl());
+        imageIndexService.applyToBrand(brand, imageIndexService.findByImageUrl(brand.getImageUrl()));
         brand.setCategory(category);
         
         Brand savedBrand = brandRepository.save(brand);
+        imageIndexService.updateReferences(savedBrand.getId(), null, savedBrand.getImageUrl());
+        catalogVersionService.bump();
         return convertToDTO(savedBrand);
     }
     
@@ -81,12 +93,16 @@ public class BrandService {
             throw new RuntimeException("Brand with name '" + requestDTO.getName() + "' already exists in this category");
         }
         
+        String previousImageUrl = brand.getImageUrl();
         brand.setName(requestDTO.getName());
         brand.setDescription(requestDTO.getDescription());
         brand.setImageUrl(requestDTO.getImageUrl());
+        imageIndexService.applyToBrand(brand, imageIndexService.findByImageUrl(brand.getImageUrl()));
         brand.setCategory(category);
         
         Brand updatedBrand = brandRepository.save(brand);
+        imageIndexService.updateReferences(id, previousImageUrl, updatedBrand.getImageUrl());
+        catalogVersionService.bump();
         return Optional.of(convertToDTO(updatedBrand));
     }
     
@@ -102,6 +118,22 @@ public class BrandService {
         }
         
         brandRepository.deleteById(id);
+        imageIndexService.updateReferences(id, brand.get().getImageUrl(), null);
+        catalogVersionService.bump();
+        return true;
+    }
+    
+    // Compare-and-set, so an imageUrl edited by an admin while the image was being fetched is kept
+    public boolean replaceImageUrl(Long id, String expectedImageUrl, String newImageUrl) {
+        Optional<Brand> brand = brandRepository.findById(id);
+        if (brand.isEmpty() || !expectedImageUrl.equals(brand.get().getImageUrl())) {
+            return false;
+        }
+        brand.get().setImageUrl(newImageUrl);
+        imageIndexService.applyToBrand(brand.get(), imageIndexService.findByImageUrl(newImageUrl));
+        brandRepository.save(brand.get());
+        imageIndexService.updateReferences(id, expectedImageUrl, newImageUrl);
+        catalogVersionService.bump();
         return true;
     }
     
@@ -111,6 +143,10 @@ public class BrandService {
         dto.setName(brand.getName());
         dto.setDescription(brand.getDescription());
         dto.setImageUrl(brand.getImageUrl());
+        dto.setImageBlurHash(brand.getImageBlurHash());
+        dto.setImageDominantColor(brand.getImageDominantColor());
+        dto.setImageWidth(brand.getImageWidth());
+        dto.setImageHeight(brand.getImageHeight());
         dto.setCategoryId(brand.getCategory().getId());
         dto.setCategoryName(brand.getCategory().getName());
         
@@ -0,0 +1,311 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.datasource.PrimaryReadContext;
+import com.cataloghakim.perfume.dto.BrandDTO;
+import com.cataloghakim.perfume.dto.CategoryDTO;
+import com.cataloghakim.perfume.dto.PerfumeDTO;
+import com.cataloghakim.perfume.dto.SearchRequestDTO;
+import com.cataloghakim.perfume.exception.ServiceOverloadedException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Catalog list reads behind the public list endpoints; the admin endpoints read the services directly, so an
+// admin never sees snapshot data. A burst of identical requests (typically after a deploy or a catalog write)
+// runs the query once; the rest wait for that result, for up to single-flight.max-wait-ms, instead of each
+// taking a connection. Keys include the catalog version, so a request that arrives after a write never joins a
+// read that started before it, and whether the caller is pinned to the primary, so a read-your-writes request
+// never joins one that may be served by a lagging replica.
+//
+// Reads also go through a circuit breaker. While the database is failing or slow, requests are answered from the
+// last good snapshot of the catalog (marked stale for the response, see StaleCatalogResponseAdvice) instead of
+// waiting on connection timeouts. The snapshot follows this node's catalog writes, and is also refreshed once it
+// is max-age-ms old, so writes made through other nodes reach it too.
+@Service
+public class CatalogReadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogReadService.class);
+
+    // Request attribute holding the Instant the stale data was read at
+    public static final String STALE_SINCE_ATTRIBUTE = CatalogReadService.class.getName() + ".staleSince";
+
+    @Value("${app.catalog.stale.enabled:true}")
+    private boolean staleEnabled;
+
+    @Value("${app.catalog.stale.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.catalog.stale.slow-call-ms:3000}")
+    private long slowCallMs;
+
+    @Value("${app.catalog.stale.open-duration-ms:10000}")
+    private long openDurationMs;
+
+    @Value("${app.catalog.stale.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    @Value("${app.catalog.stale.max-age-ms:600000}")
+    private long maxAgeMs;
+
+    @Value("${app.catalog.single-flight.max-wait-ms:3000}")
+    private long singleFlightMaxWaitMs;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private BrandService brandService;
+
+    @Autowired
+    private PerfumeService perfumeService;
+
+    @Autowired
+    private CatalogSnapshotStore catalogSnapshotStore;
+
+    private SingleFlight singleFlight;
+    private CircuitBreaker circuitBreaker;
+
+    private volatile CatalogSnapshot snapshot;
+    private volatile long lastRefreshMillis;
+
+    @PostConstruct
+    public void init() {
+        singleFlight = new SingleFlight(singleFlightMaxWaitMs);
+        circuitBreaker = new CircuitBreaker(failureThreshold, slowCallMs);
+        if (staleEnabled) {
+            snapshot = catalogSnapshotStore.load();
+        }
+    }
+
+    public List<CategoryDTO> getAllCategories() {
+        return read(key("categories"), categoryService::getAllCategories, CatalogSnapshot::categories);
+    }
+
+    public List<BrandDTO> getAllBrands() {
+        return read(key("brands"), brandService::getAllBrands, CatalogSnapshot::brands);
+    }
+
+    public List<BrandDTO> getBrandsByCategory(Long categoryId) {
+        return read(key("brands-by-category", categoryId),
+                () -> brandService.getBrandsByCategory(categoryId),
+                stale -> stale.brands().stream()
+                        .filter(brand -> Objects.equals(brand.getCategoryId(), categoryId))
+                        .toList());
+    }
+
+    public List<PerfumeDTO> getAllPerfumes() {
+        return read(key("perfumes"), perfumeService::getAllPerfumes, CatalogSnapshot::perfumes);
+    }
+
+    public List<PerfumeDTO> getPerfumesByBrand(Long brandId) {
+        return read(key("perfumes-by-brand", brandId),
+                () -> perfumeService.getPerfumesByBrand(brandId),
+                stale -> stale.perfumes().stream()
+                        .filter(perfume -> Objects.equals(perfume.getBrandId(), brandId))
+                        .toList());
+    }
+
+    public List<PerfumeDTO> getPerfumesByCategory(Long categoryId) {
+        return read(key("perfumes-by-category", categoryId),
+                () -> perfumeService.getPerfumesByCategory(categoryId),
+                stale -> stale.perfumes().stream()
+                        .filter(perfume -> Objects.equals(perfume.getCategoryId(), categoryId))
+                        .toList());
+    }
+
+    public List<PerfumeDTO> searchAndFilter(SearchRequestDTO searchRequest) {
+        CallKey key = key("search", new SearchKey(searchRequest.getSearchTerm(), searchRequest.getBrandName(),
+                searchRequest.getMinNumber(), searchRequest.getMaxNumber()));
+        return read(key,
+                () -> perfumeService.searchAndFilter(searchRequest),
+                stale -> stale.perfumes().stream()
+                        .filter(perfume -> matches(perfume, searchRequest))
+                        .toList());
+    }
+
+    // Probes the database while the breaker is open, and otherwise keeps the snapshot in step with catalog writes
+    // and no older than max-age-ms
+    @Scheduled(initialDelayString = "${app.catalog.stale.probe-interval-ms:5000}",
+            fixedDelayString = "${app.catalog.stale.probe-interval-ms:5000}")
+    public void maintainSnapshot() {
+        if (!staleEnabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (circuitBreaker.isOpen()) {
+            if (now - circuitBreaker.getOpenedAtMillis() < openDurationMs) {
+                return;
+            }
+            try {
+                refreshSnapshot();
+                circuitBreaker.close();
+                logger.info("Catalog database reachable again, serving fresh data");
+            } catch (DataAccessException | TransactionException e) {
+                circuitBreaker.trip();
+                logger.debug("Catalog recovery probe failed: {}", e.getMessage());
+            }
+            return;
+        }
+
+        CatalogSnapshot current = snapshot;
+        boolean changed = current == null || current.catalogVersion() != catalogVersionService.getVersion();
+        long age = now - lastRefreshMillis;
+        if (!(changed && age >= refreshIntervalMs) && age < maxAgeMs) {
+            return;
+        }
+        try {
+            refreshSnapshot();
+        } catch (DataAccessException | TransactionException e) {
+            circuitBreaker.recordFailure();
+            logger.warn("Could not refresh the catalog snapshot: {}", e.getMessage());
+        }
+    }
+
+    // Images the stale snapshot still shows; the orphan collector keeps them even after the database moved on
+    public List<String> getSnapshotImageUrls() {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            return List.of();
+        }
+        return current.brands().stream()
+                .map(BrandDTO::getImageUrl)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public Map<String, Object> getStats() {
+        CatalogSnapshot current = snapshot;
+        Map<String, Object> stale = new LinkedHashMap<>();
+        stale.put("enabled", staleEnabled);
+        stale.put("circuitBreaker", circuitBreaker.getStats());
+        stale.put("snapshotTakenAt", current != null ? current.takenAt().toString() : null);
+        stale.put("snapshotCatalogVersion", current != null ? current.catalogVersion() : null);
+        stale.put("snapshotMaxAgeMs", maxAgeMs);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("singleFlight", singleFlight.getStats());
+        stats.put("serveStale", stale);
+        return stats;
+    }
+
+    private <T> T read(CallKey key, Supplier<T> loader, Function<CatalogSnapshot, T> staleView) {
+        // A waiter that outlasts a slow leader answers from the snapshot, or gets a 503 when there is none
+        CatalogRead<T> result = singleFlight.execute(key,
+                () -> readThroughBreaker(loader, staleView),
+                () -> serveStale(staleView, null));
+        // Every coalesced caller marks its own response, not just the one that ran the query
+        if (result.staleSince() != null) {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            if (attributes != null) {
+                attributes.setAttribute(STALE_SINCE_ATTRIBUTE, result.staleSince(), RequestAttributes.SCOPE_REQUEST);
+            }
+        }
+        return result.value();
+    }
+
+    private <T> CatalogRead<T> readThroughBreaker(Supplier<T> loader, Function<CatalogSnapshot, T> staleView) {
+        if (!staleEnabled) {
+            return new CatalogRead<>(loader.get(), null);
+        }
+        if (circuitBreaker.isOpen()) {
+            circuitBreaker.recordShortCircuit();
+            return serveStale(staleView, null);
+        }
+
+        long start = System.nanoTime();
+        try {
+            T value = loader.get();
+            circuitBreaker.recordSuccess(System.nanoTime() - start);
+            return new CatalogRead<>(value, null);
+        } catch (DataAccessException | TransactionException e) {
+            circuitBreaker.recordFailure();
+            return serveStale(staleView, e);
+        }
+    }
+
+    private <T> CatalogRead<T> serveStale(Function<CatalogSnapshot, T> staleView, RuntimeException failure) {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            if (failure != null) {
+                throw failure;
+            }
+            throw new ServiceOverloadedException("The catalog is temporarily unavailable, please retry shortly");
+        }
+        return new CatalogRead<>(staleView.apply(current), current.takenAt());
+    }
+
+    // The version is read first, so a write that lands during the reads leaves the snapshot marked as behind
+    private void refreshSnapshot() {
+        long version = catalogVersionService.getVersion();
+        CatalogSnapshot fresh = new CatalogSnapshot(
+                version,
+                Instant.now(),
+                categoryService.getAllCategories(),
+                brandService.getAllBrands(),
+                perfumeService.getAllPerfumes());
+        snapshot = fresh;
+        lastRefreshMillis = System.currentTimeMillis();
+        catalogSnapshotStore.save(fresh);
+    }
+
+    // In-memory equivalent of PerfumeRepository.searchAndFilter; perfume numbers are text, so bounds compare as text
+    private boolean matches(PerfumeDTO perfume, SearchRequestDTO request) {
+        String name = lower(perfume.getName());
+        String brandName = lower(perfume.getBrandName());
+        if (request.getSearchTerm() != null) {
+            String term = lower(request.getSearchTerm());
+            if (!name.contains(term) && !brandName.contains(term)) {
+                return false;
+            }
+        }
+        if (request.getBrandName() != null && !brandName.contains(lower(request.getBrandName()))) {
+            return false;
+        }
+        String number = perfume.getNumber() != null ? perfume.getNumber() : "";
+        if (request.getMinNumber() != null && number.compareTo(request.getMinNumber().toString()) < 0) {
+            return false;
+        }
+        return request.getMaxNumber() == null || number.compareTo(request.getMaxNumber().toString()) <= 0;
+    }
+
+    private String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private CallKey key(String operation) {
+        return key(operation, null);
+    }
+
+    private CallKey key(String operation, Object argument) {
+        return new CallKey(operation, argument, catalogVersionService.getVersion(), PrimaryReadContext.isPinned());
+    }
+
+    private record CallKey(String operation, Object argument, long catalogVersion, boolean primary) {
+    }
+
+    private record SearchKey(String searchTerm, String brandName, Integer minNumber, Integer maxNumber) {
+    }
+
+    private record CatalogRead<T>(T value, Instant staleSince) {
+    }
+}
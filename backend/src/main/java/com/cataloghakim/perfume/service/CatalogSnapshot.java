@@ -0,0 +1,16 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.dto.BrandDTO;
+import com.cataloghakim.perfume.dto.CategoryDTO;
+import com.cataloghakim.perfume.dto.PerfumeDTO;
+
+import java.time.Instant;
+import java.util.List;
+
+// The whole public catalog as last read from the database; kept in memory and on disk for serve-stale mode
+public record CatalogSnapshot(long catalogVersion,
+                              Instant takenAt,
+                              List<CategoryDTO> categories,
+                              List<BrandDTO> brands,
+                              List<PerfumeDTO> perfumes) {
+}
@@ -0,0 +1,60 @@
+package com.cataloghakim.perfume.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+// Keeps the last good catalog on local disk so a node restarted during a database outage can still serve it.
+// The default location is a dot-file in the upload directory, which storage listings and the orphan GC skip.
+@Component
+public class CatalogSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotStore.class);
+
+    @Value("${app.catalog.stale.snapshot-file:${app.upload.dir:uploads}/.catalog-snapshot.json}")
+    private String snapshotFile;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public CatalogSnapshot load() {
+        Path path = Paths.get(snapshotFile);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            CatalogSnapshot snapshot = objectMapper.readValue(path.toFile(), CatalogSnapshot.class);
+            logger.info("Loaded catalog snapshot taken at {}", snapshot.takenAt());
+            return snapshot;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable catalog snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    // Written to a temporary file and moved into place, so a crash never leaves a truncated snapshot behind
+    public void save(CatalogSnapshot snapshot) {
+        Path path = Paths.get(snapshotFile).toAbsolutePath();
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), ".catalog-snapshot", ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), snapshot);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write catalog snapshot {}: {}", path, e.getMessage());
+        }
+    }
+}
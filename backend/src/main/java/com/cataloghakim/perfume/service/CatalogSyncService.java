@@ -0,0 +1,523 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.entity.Brand;
+import com.cataloghakim.perfume.entity.Category;
+import com.cataloghakim.perfume.entity.Perfume;
+import com.cataloghakim.perfume.repository.BrandRepository;
+import com.cataloghakim.perfume.repository.CategoryRepository;
+import com.cataloghakim.perfume.repository.PerfumeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class CatalogSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSyncService.class);
+
+    private static final String FEED_EXTENSION = ".csv";
+    private static final String DEFAULT_CATEGORY_COLOR = "#6b7280";
+    private static final char FIELD_SEPARATOR = '\u001F';
+    private static final int MAX_REPORTED_CONFLICTS = 20;
+
+    @Value("${app.sync.dir:}")
+    private String syncDir;
+
+    @Value("${app.sync.batch-size:200}")
+    private int batchSize;
+
+    // A feed that would remove more than this share of the feed-sourced perfumes is rejected as truncated
+    @Value("${app.sync.max-delete-ratio:0.5}")
+    private double maxDeleteRatio;
+
+    @Autowired
+    private PerfumeRepository perfumeRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final SyncProgress progress = new SyncProgress();
+
+    private volatile WatchService watchService;
+    private Thread watcherThread;
+
+    @PostConstruct
+    public void startWatcher() throws IOException {
+        if (syncDir == null || syncDir.isBlank()) {
+            return;
+        }
+
+        Path feedDir = Paths.get(syncDir);
+        Files.createDirectories(feedDir);
+
+        watchService = feedDir.getFileSystem().newWatchService();
+        feedDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watcherThread = new Thread(() -> watchLoop(feedDir), "catalog-sync-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    @PreDestroy
+    public void stopWatcher() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        return progress.toMap(catalogVersionService.getVersion());
+    }
+
+    private void watchLoop(Path feedDir) {
+        // Feeds dropped while the app was down are picked up before waiting for new events
+        processPendingFeeds(feedDir);
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        processPendingFeeds(feedDir);
+                        continue;
+                    }
+                    Path feed = feedDir.resolve((Path) event.context());
+                    if (isFeed(feed)) {
+                        processFeed(feed);
+                    }
+                }
+                if (!key.reset()) {
+                    logger.warn("Catalog sync directory {} is no longer accessible", feedDir);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void processPendingFeeds(Path feedDir) {
+        try (DirectoryStream<Path> feeds = Files.newDirectoryStream(feedDir, "*" + FEED_EXTENSION)) {
+            for (Path feed : feeds) {
+                processFeed(feed);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to list catalog feeds in {}", feedDir, e);
+        }
+    }
+
+    private void processFeed(Path feed) {
+        if (!Files.isRegularFile(feed)) {
+            return;
+        }
+        try {
+            awaitStableSize(feed);
+            syncFeed(feed);
+            archive(feed, "processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Catalog sync of {} failed", feed, e);
+            try {
+                archive(feed, "failed");
+            } catch (IOException moveError) {
+                logger.error("Failed to move {} out of the sync directory", feed, moveError);
+            }
+        }
+    }
+
+    public synchronized void syncFeed(Path feed) throws IOException {
+        progress.start(feed.getFileName().toString());
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            boolean changed = Boolean.TRUE.equals(transaction.execute(status -> applyFeed(feed)));
+
+            // The whole feed lands as a single catalog version, however many rows it touched
+            if (changed) {
+                catalogVersionService.bump();
+            }
+            progress.finish(null);
+        } catch (RuntimeException e) {
+            progress.finish(e.getMessage());
+            throw e;
+        }
+    }
+
+    private boolean applyFeed(Path feed) {
+        Map<String, SyncedRow> existing = new HashMap<>();
+        for (Object[] row : perfumeRepository.findSyncState()) {
+            // A feed-created row wins over a hand-entered one with the same number, so the feed keeps updating it
+            existing.merge((String) row[1], new SyncedRow((Long) row[0], (String) row[2]),
+                    (first, second) -> first.hash == null ? second : first);
+        }
+
+        Map<String, Brand> brandCache = new HashMap<>();
+        Set<String> seenNumbers = new HashSet<>();
+        List<FeedRow> inserts = new ArrayList<>();
+        Map<Long, FeedRow> updates = new LinkedHashMap<>();
+        boolean changed = false;
+
+        try (BufferedReader reader = Files.newBufferedReader(feed, StandardCharsets.UTF_8)) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                progress.rowsRead.incrementAndGet();
+
+                FeedRow row = FeedRow.parse(line);
+                if (row == null || !seenNumbers.add(row.number)) {
+                    progress.rejected.incrementAndGet();
+                    continue;
+                }
+
+                SyncedRow stored = existing.get(row.number);
+                if (stored == null) {
+                    inserts.add(row);
+                } else if (stored.hash == null) {
+                    // Hand-entered in the admin: the feed never overwrites it, the clash is reported instead
+                    progress.recordConflict(row.number);
+                } else if (!row.hash.equals(stored.hash)) {
+                    updates.put(stored.id, row);
+                } else {
+                    progress.unchanged.incrementAndGet();
+                }
+
+                if (inserts.size() + updates.size() >= batchSize) {
+                    applyBatch(inserts, updates, brandCache);
+                    changed = true;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read catalog feed: " + feed, e);
+        }
+
+        if (!inserts.isEmpty() || !updates.isEmpty()) {
+            applyBatch(inserts, updates, brandCache);
+            changed = true;
+        }
+
+        // Only rows that came from a feed are removed; hand-entered perfumes have no sync hash
+        List<Long> deletions = new ArrayList<>();
+        long syncedRows = 0;
+        for (Map.Entry<String, SyncedRow> entry : existing.entrySet()) {
+            if (entry.getValue().hash == null) {
+                continue;
+            }
+            syncedRows++;
+            if (!seenNumbers.contains(entry.getKey())) {
+                deletions.add(entry.getValue().id);
+            }
+        }
+        checkDeletions(feed, seenNumbers.size(), deletions.size(), syncedRows);
+        for (int from = 0; from < deletions.size(); from += batchSize) {
+            List<Long> chunk = deletions.subList(from, Math.min(from + batchSize, deletions.size()));
+            long batchStart = System.nanoTime();
+            perfumeRepository.deleteAllByIdInBatch(chunk);
+            progress.deleted.addAndGet(chunk.size());
+            progress.recordBatch(System.nanoTime() - batchStart);
+            changed = true;
+        }
+
+        if (progress.conflicts.get() > 0) {
+            logger.warn("Catalog feed {} skipped {} rows whose number belongs to a hand-entered perfume: {}",
+                    feed.getFileName(), progress.conflicts.get(), progress.conflictNumbers);
+        }
+        return changed;
+    }
+
+    // Throwing rolls the whole feed back, inserts and updates included, and the feed is archived as failed
+    private void checkDeletions(Path feed, int validRows, int deletions, long syncedRows) {
+        if (deletions == 0) {
+            return;
+        }
+        if (validRows == 0) {
+            throw new IllegalStateException("Catalog feed " + feed.getFileName()
+                    + " has no valid rows; refusing to delete " + deletions + " synced perfumes");
+        }
+        if (deletions > maxDeleteRatio * syncedRows) {
+            throw new IllegalStateException("Catalog feed " + feed.getFileName() + " would delete " + deletions
+                    + " of " + syncedRows + " synced perfumes, more than app.sync.max-delete-ratio=" + maxDeleteRatio);
+        }
+    }
+
+    private void applyBatch(List<FeedRow> inserts, Map<Long, FeedRow> updates, Map<String, Brand> brandCache) {
+        long batchStart = System.nanoTime();
+
+        List<Perfume> toSave = new ArrayList<>(inserts.size() + updates.size());
+        for (FeedRow row : inserts) {
+            Perfume perfume = new Perfume();
+            row.applyTo(perfume, resolveBrand(row, brandCache));
+            toSave.add(perfume);
+        }
+        for (Perfume perfume : perfumeRepository.findAllById(updates.keySet())) {
+            FeedRow row = updates.get(perfume.getId());
+            row.applyTo(perfume, resolveBrand(row, brandCache));
+            toSave.add(perfume);
+        }
+
+        perfumeRepository.saveAll(toSave);
+        entityManager.flush();
+        entityManager.clear();
+
+        progress.inserted.addAndGet(inserts.size());
+        progress.updated.addAndGet(updates.size());
+        progress.recordBatch(System.nanoTime() - batchStart);
+
+        inserts.clear();
+        updates.clear();
+    }
+
+    private Brand resolveBrand(FeedRow row, Map<String, Brand> brandCache) {
+        return brandCache.computeIfAbsent(row.category + FIELD_SEPARATOR + row.brand, key -> {
+            Category category = categoryRepository.findByName(row.category)
+                    .orElseGet(() -> categoryRepository.save(new Category(row.category, null, DEFAULT_CATEGORY_COLOR)));
+            return brandRepository.findByNameAndCategoryId(row.brand, category.getId())
+                    .orElseGet(() -> brandRepository.save(new Brand(row.brand, null, null, category)));
+        });
+    }
+
+    private void awaitStableSize(Path feed) throws IOException, InterruptedException {
+        // Creation events fire as soon as the supplier starts writing; wait for the size to settle
+        long previous = -1;
+        long current = Files.size(feed);
+        while (current != previous) {
+            Thread.sleep(500);
+            previous = current;
+            current = Files.size(feed);
+        }
+    }
+
+    private void archive(Path feed, String folder) throws IOException {
+        if (!Files.exists(feed)) {
+            return;
+        }
+        Path target = feed.resolveSibling(folder);
+        Files.createDirectories(target);
+        Files.move(feed, target.resolve(Instant.now().toEpochMilli() + "-" + feed.getFileName()),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private boolean isFeed(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(FEED_EXTENSION);
+    }
+
+    private static final class SyncedRow {
+        private final Long id;
+        private final String hash;
+
+        private SyncedRow(Long id, String hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+    }
+
+    // One supplier row: number,name,brand,category
+    private static final class FeedRow {
+        private final String number;
+        private final String name;
+        private final String brand;
+        private final String category;
+        private final String hash;
+
+        private FeedRow(String number, String name, String brand, String category) {
+            this.number = number;
+            this.name = name;
+            this.brand = brand;
+            this.category = category;
+            this.hash = sha256(number + FIELD_SEPARATOR + name + FIELD_SEPARATOR + brand + FIELD_SEPARATOR + category);
+        }
+
+        private static FeedRow parse(String line) {
+            List<String> fields = splitCsv(line);
+            if (fields.size() < 4) {
+                return null;
+            }
+            String number = fields.get(0).trim();
+            String name = fields.get(1).trim();
+            String brand = fields.get(2).trim();
+            String category = fields.get(3).trim();
+
+            // Same limits as the entity constraints, so one bad row cannot roll back the whole feed
+            if (number.isEmpty() || number.length() > 20
+                    || name.length() < 2 || name.length() > 100
+                    || brand.length() < 2 || brand.length() > 100
+                    || category.length() < 2 || category.length() > 50) {
+                return null;
+            }
+            return new FeedRow(number, name, brand, category);
+        }
+
+        private void applyTo(Perfume perfume, Brand resolvedBrand) {
+            perfume.setNumber(number);
+            perfume.setName(name);
+            perfume.setBrand(resolvedBrand);
+            perfume.setSyncHash(hash);
+        }
+
+        private static List<String> splitCsv(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = !quoted;
+                    }
+                } else if (c == ',' && !quoted) {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            fields.add(current.toString());
+            return fields;
+        }
+
+        private static String sha256(String value) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final class SyncProgress {
+        private volatile String state = "IDLE";
+        private volatile String currentFeed;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String lastError;
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong deleted = new AtomicLong();
+        private final AtomicLong conflicts = new AtomicLong();
+        private final List<String> conflictNumbers = new CopyOnWriteArrayList<>();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong batchNanos = new AtomicLong();
+        private volatile long lastBatchNanos;
+
+        private void start(String feed) {
+            state = "RUNNING";
+            currentFeed = feed;
+            startedAt = Instant.now();
+            finishedAt = null;
+            lastError = null;
+            rowsRead.set(0);
+            rejected.set(0);
+            unchanged.set(0);
+            inserted.set(0);
+            updated.set(0);
+            deleted.set(0);
+            conflicts.set(0);
+            conflictNumbers.clear();
+            batches.set(0);
+            batchNanos.set(0);
+            lastBatchNanos = 0;
+        }
+
+        private void recordConflict(String number) {
+            if (conflicts.incrementAndGet() <= MAX_REPORTED_CONFLICTS) {
+                conflictNumbers.add(number);
+            }
+        }
+
+        private void recordBatch(long nanos) {
+            batches.incrementAndGet();
+            batchNanos.addAndGet(nanos);
+            lastBatchNanos = nanos;
+        }
+
+        private void finish(String error) {
+            state = error == null ? "COMPLETED" : "FAILED";
+            lastError = error;
+            finishedAt = Instant.now();
+        }
+
+        private Map<String, Object> toMap(long catalogVersion) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("state", state);
+            status.put("feed", currentFeed);
+            status.put("startedAt", startedAt);
+            status.put("finishedAt", finishedAt);
+            status.put("rowsRead", rowsRead.get());
+            status.put("rejected", rejected.get());
+            status.put("unchanged", unchanged.get());
+            status.put("inserted", inserted.get());
+            status.put("updated", updated.get());
+            status.put("deleted", deleted.get());
+            status.put("conflicts", conflicts.get());
+            status.put("conflictNumbers", List.copyOf(conflictNumbers));
+            status.put("batches", batches.get());
+            status.put("batchTimeMs", batchNanos.get() / 1_000_000);
+            status.put("lastBatchMs", lastBatchNanos / 1_000_000);
+            if (startedAt != null) {
+                Instant end = finishedAt != null ? finishedAt : Instant.now();
+                status.put("elapsedMs", end.toEpochMilli() - startedAt.toEpochMilli());
+            }
+            status.put("lastError", lastError);
+            status.put("catalogVersion", catalogVersion);
+            return status;
+        }
+    }
+}
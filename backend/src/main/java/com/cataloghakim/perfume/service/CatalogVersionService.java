@@ -0,0 +1,33 @@
+package com.cataloghakim.perfume.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class CatalogVersionService {
+
+    // Monotonic version of the public catalog; anything cached against the catalog keys on it
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Inside a transaction the bump waits for the commit: bumping earlier would let a concurrent reader cache
+    // pre-commit rows under the new version. A rolled-back write leaves the version alone.
+    public void bump() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                version.incrementAndGet();
+            }
+        });
+    }
+}
@@ -5,6 +5,7 @@ import com.cataloghakim.perfume.dto.CategoryRequestDTO;
 import com.cataloghakim.perfume.entity.Category;
 import com.cataloghakim.perfume.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,16 +17,21 @@ import java.util.stream.Collectors;
 @Transactional
 public class CategoryService {
     
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Transactional(readOnly = true)
     public List<CategoryDTO> getAllCategories() {
-        List<Category> categories = categoryRepository.findAll();
+        List<Category> categories = categoryRepository.findAll(Sort.by("id"));
         return categories.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public Optional<CategoryDTO> getCategoryById(Long id) {
         return categoryRepository.findByIdWithBrands(id)
                 .map(this::convertToDTO);
@@ -42,6 +48,7 @@ public class CategoryService {
         category.setColor(requestDTO.getColor());
         
         Category savedCategory = categoryRepository.save(category);
+        catalogVersionService.bump();
         return convertToDTO(savedCategory);
     }
     
@@ -64,6 +71,7 @@ public class CategoryService {
         category.setColor(requestDTO.getColor());
         
         Category updatedCategory = categoryRepository.save(category);
+        catalogVersionService.bump();
         return Optional.of(convertToDTO(updatedCategory));
     }
     
@@ -79,6 +87,7 @@ public class CategoryService {
         }
         
         categoryRepository.deleteById(id);
+        catalogVersionService.bump();
         return true;
     }
     
@@ -0,0 +1,88 @@
+package com.cataloghakim.perfume.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Opens after a run of consecutive failures (slow calls count as failures). There is no half-open request traffic:
+// while open, callers are short-circuited and the owner probes in the background, closing it on success.
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long slowCallNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean open;
+    private volatile long openedAtMillis;
+
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong slowCalls = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong timesOpened = new AtomicLong();
+
+    public CircuitBreaker(int failureThreshold, long slowCallMs) {
+        this.failureThreshold = failureThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public long getOpenedAtMillis() {
+        return openedAtMillis;
+    }
+
+    public void recordShortCircuit() {
+        shortCircuited.incrementAndGet();
+    }
+
+    public void recordSuccess(long elapsedNanos) {
+        if (slowCallNanos > 0 && elapsedNanos > slowCallNanos) {
+            slowCalls.incrementAndGet();
+            recordFailure();
+            return;
+        }
+        successes.incrementAndGet();
+        consecutiveFailures.set(0);
+    }
+
+    public void recordFailure() {
+        failures.incrementAndGet();
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && !open) {
+            trip();
+        }
+    }
+
+    // Also used when a probe fails, to restart the open period
+    public synchronized void trip() {
+        if (!open) {
+            timesOpened.incrementAndGet();
+        }
+        openedAtMillis = System.currentTimeMillis();
+        open = true;
+    }
+
+    public synchronized void close() {
+        consecutiveFailures.set(0);
+        open = false;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", open ? "OPEN" : "CLOSED");
+        stats.put("openedAt", open ? Instant.ofEpochMilli(openedAtMillis).toString() : null);
+        stats.put("consecutiveFailures", consecutiveFailures.get());
+        stats.put("failureThreshold", failureThreshold);
+        stats.put("successes", successes.get());
+        stats.put("failures", failures.get());
+        stats.put("slowCalls", slowCalls.get());
+        stats.put("shortCircuited", shortCircuited.get());
+        stats.put("timesOpened", timesOpened.get());
+        return stats;
+    }
+}
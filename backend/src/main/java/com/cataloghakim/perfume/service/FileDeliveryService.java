@@ -0,0 +1,205 @@
+package com.cataloghakim.perfume.service;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class FileDeliveryService {
+
+    // Request attributes of Tomcat's sendfile support (see org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePublic()
+            .immutable()
+            .getHeaderValue();
+
+    // For a response that stands in for a variant still being generated
+    private static final String CACHE_CONTROL_REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    // Answers If-None-Match from the name alone, before any metadata lookup or filesystem access
+    public boolean writeNotModifiedByETag(String filename, HttpServletRequest request, HttpServletResponse response) {
+        String etag = StoredFile.etagFor(filename);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || !(ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return false;
+        }
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        return true;
+    }
+
+    public void serve(StoredFile file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(file, true, request, response);
+    }
+
+    public void serve(StoredFile file, boolean immutable, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // HTTP dates have second precision
+        long lastModified = file.getLastModified() / 1000 * 1000;
+        String etag = file.getETag();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? CACHE_CONTROL : CACHE_CONTROL_REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long ifModifiedSince = request.getHeader(HttpHeaders.IF_NONE_MATCH) == null
+                ? request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE)
+                : -1;
+        if (ifModifiedSince != -1 && lastModified <= ifModifiedSince) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long size = file.getSize();
+        long start = 0;
+        long end = size - 1;
+
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && isIfRangeSatisfied(request, etag, lastModified)) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentType(file.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getFilename() + "\"");
+        response.setContentLengthLong(length);
+
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        ByteBuffer cached = hotImageCache.get(file);
+        if (cached != null) {
+            cached.position((int) start).limit((int) (end + 1));
+            writeBuffer(cached, response);
+            return;
+        }
+        // Never read the whole file on the request thread: this miss goes to disk and the cache fills behind it
+        hotImageCache.loadLater(file);
+
+        // Tomcat streams the file with sendfile once the servlet returns, without copying through the JVM
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    // Tomcat copies the buffer straight into its output buffer; a channel adapter (other containers) would first
+    // copy each chunk into an intermediate byte[]
+    private void writeBuffer(ByteBuffer body, HttpServletResponse response) throws IOException {
+        ServletOutputStream out = response.getOutputStream();
+        if (out instanceof CoyoteOutputStream coyoteOut) {
+            coyoteOut.write(body);
+            return;
+        }
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (body.hasRemaining()) {
+            channel.write(body);
+        }
+    }
+
+    private boolean isIfRangeSatisfied(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Returns {start, end} for a single satisfiable range, an empty array to ignore the header, or null for 416
+    private long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=")) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        // Multipart byteranges are not worth the complexity for images; a full 200 is a valid answer
+        if (spec.contains(",")) {
+            return new long[0];
+        }
+
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -1,30 +1,77 @@
 package com.cataloghakim.perfume.service;
 
+import com.cataloghakim.perfume.exception.FileTooLargeException;
+import com.cataloghakim.perfume.exception.UnsupportedImageException;
+import com.cataloghakim.perfume.storage.ImageStorage;
+import com.cataloghakim.perfume.storage.LocalCopyEvictedEvent;
+import com.cataloghakim.perfume.storage.StoredObject;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 @Service
 public class FileStorageService {
 
+    public static final String VARIANTS_DIR = "variants";
+
+    private static final int UPLOAD_BUFFER_SIZE = 64 * 1024;
+
+    // Enough for every magic number we check and for an SVG's XML prolog
+    private static final int SNIFF_LENGTH = 512;
+
+    private static final int METADATA_CACHE_SEGMENTS = 16;
+
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
-    public String storeFile(MultipartFile file) throws IOException {
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
+    @Value("${app.upload.max-size:10MB}")
+    private DataSize maxUploadSize;
+
+    @Value("${app.files.metadata-cache.max-entries:10000}")
+    private int metadataCacheMaxEntries;
+
+    @Value("${app.files.metadata-cache.ttl-ms:60000}")
+    private long metadataCacheTtlMs;
+
+    @Autowired
+    private HotImageCache hotImageCache;
 
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private ImageIndexService imageIndexService;
+
+    // Size, mtime and content type per stored file, so serving a file needs no stat call. Deletes only clear this
+    // node's caches; entries are re-checked against storage after the TTL, so on shared storage another node stops
+    // serving a deleted image (and drops its hot copy) within that time.
+    private StripedLruCache<String, CachedFile> metadataCache;
+
+    @PostConstruct
+    public void init() {
+        metadataCache = new StripedLruCache<>(metadataCacheMaxEntries, METADATA_CACHE_SEGMENTS);
+    }
+
+    public String storeFile(MultipartFile file) throws IOException {
         // Validate file
         if (file.isEmpty()) {
             throw new IOException("Failed to store empty file");
@@ -42,33 +89,216 @@ public class FileStorageService {
             throw new IOException("Only image files are allowed");
         }
 
-        // Generate unique filename
-        String fileExtension = getFileExtension(originalFilename);
-        String newFilename = UUID.randomUUID().toString() + fileExtension;
+        try (InputStream in = file.getInputStream()) {
+            return storeStream(in, file.getSize());
+        }
+    }
 
-        // Store file
-        Path targetLocation = uploadPath.resolve(newFilename);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    // Single pass over the body: sniffs the format, enforces the size cap and hashes while writing the temp file
+    public String storeStream(InputStream in, long declaredLength) throws IOException {
+        long maxBytes = maxUploadSize.toBytes();
+        if (declaredLength > maxBytes) {
+            throw new FileTooLargeException("File exceeds the maximum upload size of " + maxUploadSize);
+        }
 
+        Path tempFile = imageStorage.createStagingFile();
+        MessageDigest digest = sha256();
+        String fileExtension;
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[UPLOAD_BUFFER_SIZE];
+            int read = in.readNBytes(buffer, 0, SNIFF_LENGTH);
+            if (read == 0) {
+                throw new UnsupportedImageException("Failed to store empty file");
+            }
+            // The extension comes from the content, never from the client's filename
+            fileExtension = sniffExtension(buffer, read);
+            if (fileExtension == null) {
+                throw new UnsupportedImageException("Only image files are allowed");
+            }
+
+            long total = 0;
+            do {
+                total += read;
+                if (total > maxBytes) {
+                    throw new FileTooLargeException("File exceeds the maximum upload size of " + maxUploadSize);
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+            } while ((read = in.read(buffer)) != -1);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        String newFilename = HexFormat.of().formatHex(digest.digest()) + fileExtension;
+
+        // Identical uploads dedupe to the file that is already there; its mtime is refreshed so the
+        // orphan collector's grace period covers the brand that is about to reference it. When it is gone (deleted
+        // since, possibly by another node), the staged copy is stored in its place.
+        if (imageStorage.touch(newFilename)) {
+            Files.deleteIfExists(tempFile);
+        } else {
+            imageStorage.store(newFilename, tempFile);
+        }
+        metadataCache.remove(newFilename);
+
+        imageIndexService.record(getStoredFile(newFilename));
         return newFilename;
     }
 
+    public long getMaxUploadBytes() {
+        return maxUploadSize.toBytes();
+    }
+
+    public StoredFile getStoredFile(String filename) throws IOException {
+        CachedFile cached = metadataCache.get(filename);
+        if (cached != null && System.currentTimeMillis() - cached.checkedAtMillis() < metadataCacheTtlMs) {
+            return cached.file();
+        }
+
+        if (!isValidFilename(filename)) {
+            return null;
+        }
+
+        StoredObject object = imageStorage.fetch(filename);
+        if (object == null) {
+            if (cached != null) {
+                metadataCache.remove(filename);
+                hotImageCache.invalidate(filename);
+            }
+            return null;
+        }
+
+        StoredFile storedFile = new StoredFile(filename, object.getLocalPath(), object.getSize(),
+                object.getLastModified(), resolveContentType(filename));
+        metadataCache.put(filename, new CachedFile(storedFile, System.currentTimeMillis()));
+        return storedFile;
+    }
+
+    // The storage dropped its local copy, so the cached path would no longer resolve
+    @EventListener
+    public void onLocalCopyEvicted(LocalCopyEvictedEvent event) {
+        metadataCache.remove(event.name());
+    }
+
     public void deleteFile(String filename) throws IOException {
-        if (filename != null && !filename.isEmpty()) {
-            Path filePath = Paths.get(uploadDir).resolve(filename);
-            Files.deleteIfExists(filePath);
+        if (isValidFilename(filename)) {
+            metadataCache.remove(filename);
+            hotImageCache.invalidate(filename);
+            imageStorage.delete(filename);
+            deleteVariants(filename);
+            imageIndexService.remove(filename);
+        }
+    }
+
+    // Resized copies live under variants/<width>/ and are named after the original
+    public Path getVariantPath(String filename, int width, String extension) {
+        return Paths.get(uploadDir, VARIANTS_DIR, String.valueOf(width))
+                .resolve(stripExtension(filename) + "-w" + width + extension);
+    }
+
+    private void deleteVariants(String filename) throws IOException {
+        Path variantsRoot = Paths.get(uploadDir, VARIANTS_DIR);
+        if (!Files.isDirectory(variantsRoot)) {
+            return;
+        }
+        String prefix = stripExtension(filename) + "-w";
+        try (DirectoryStream<Path> widthDirs = Files.newDirectoryStream(variantsRoot, Files::isDirectory)) {
+            for (Path widthDir : widthDirs) {
+                try (DirectoryStream<Path> variants = Files.newDirectoryStream(widthDir, prefix + "*")) {
+                    for (Path variant : variants) {
+                        Files.deleteIfExists(variant);
+                    }
+                }
+            }
+        }
+    }
+
+    public static String resolveContentType(String filename) {
+        switch (getFileExtension(filename).toLowerCase()) {
+            case ".jpg":
+            case ".jpeg":
+                return "image/jpeg";
+            case ".png":
+                return "image/png";
+            case ".gif":
+                return "image/gif";
+            case ".webp":
+                return "image/webp";
+            case ".svg":
+                return "image/svg+xml";
+            default:
+                return "application/octet-stream";
         }
     }
 
     public boolean fileExists(String filename) {
-        if (filename == null || filename.isEmpty()) {
+        if (!isValidFilename(filename)) {
             return false;
         }
-        Path filePath = Paths.get(uploadDir).resolve(filename);
-        return Files.exists(filePath);
+        try {
+            return imageStorage.stat(filename) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Stored names are flat: no separators, no dot files (staging, caches) and no traversal
+    private boolean isValidFilename(String filename) {
+        return filename != null && !filename.isEmpty() && !filename.startsWith(".")
+                && filename.indexOf('/') == -1 && filename.indexOf('\\') == -1;
+    }
+
+    private String stripExtension(String filename) {
+        int lastDotIndex = filename.lastIndexOf('.');
+        return lastDotIndex == -1 ? filename : filename.substring(0, lastDotIndex);
     }
 
-    private String getFileExtension(String filename) {
+    private String sniffExtension(byte[] head, int length) {
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return ".jpg";
+        }
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return ".png";
+        }
+        if (startsWith(head, length, 'G', 'I', 'F', '8')) {
+            return ".gif";
+        }
+        if (startsWith(head, length, 'R', 'I', 'F', 'F') && length >= 12
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return ".webp";
+        }
+        String text = new String(head, 0, length, StandardCharsets.ISO_8859_1).toLowerCase();
+        if (text.stripLeading().startsWith("<") && text.contains("<svg")) {
+            return ".svg";
+        }
+        return null;
+    }
+
+    private boolean startsWith(byte[] data, int length, int... prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String getFileExtension(String filename) {
         if (filename == null || filename.isEmpty()) {
             return "";
         }
@@ -78,4 +308,7 @@ public class FileStorageService {
         }
         return filename.substring(lastDotIndex);
     }
+
+    private record CachedFile(StoredFile file, long checkedAtMillis) {
+    }
 }
@@ -0,0 +1,339 @@
+package com.cataloghakim.perfume.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class HotImageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotImageCache.class);
+
+    @Value("${app.files.hot-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.files.hot-cache.max-entry-bytes:2097152}")
+    private long maxEntryBytes;
+
+    @Value("${app.files.hot-cache.load-queue-capacity:64}")
+    private int loadQueueCapacity;
+
+    // Reads never lock: entries is a concurrent map and each hit only stamps its entry. Admission, eviction and
+    // invalidation happen on misses and deletes and take writeLock, so they see a consistent residentBytes.
+    private final ConcurrentHashMap<String, CachedImage> entries = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch = new FrequencySketch(4096);
+    private final Object writeLock = new Object();
+    private long residentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong admissions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong skippedLoads = new AtomicLong();
+
+    // Misses are filled off the request thread, one file at a time; names already queued are not queued again
+    private ThreadPoolExecutor loader;
+    private final Set<String> pendingLoads = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        loader = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(loadQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "hot-image-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    // Returns a read-only view of the cached body, or null; every lookup counts towards the key's frequency
+    public ByteBuffer get(StoredFile file) {
+        String key = file.getFilename();
+        sketch.increment(key);
+        CachedImage cached = entries.get(key);
+        if (cached != null && cached.lastModified != file.getLastModified()) {
+            synchronized (writeLock) {
+                remove(key, cached);
+            }
+            cached = null;
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        cached.touch();
+        hits.incrementAndGet();
+        return cached.body.duplicate();
+    }
+
+    // Queues a load after a miss. The request that missed is served from disk (sendfile or streaming) like any
+    // cold file; a full queue just means this miss does not fill the cache.
+    public void loadLater(StoredFile file) {
+        String key = file.getFilename();
+        if (!isCacheable(file.getSize()) || !pendingLoads.add(key)) {
+            return;
+        }
+        try {
+            loader.execute(() -> {
+                try {
+                    load(file);
+                } catch (IOException e) {
+                    logger.debug("Could not load {} into the hot image cache", key, e);
+                } finally {
+                    pendingLoads.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingLoads.remove(key);
+            skippedLoads.incrementAndGet();
+        }
+    }
+
+    // Loads the file into a direct buffer when TinyLFU admits it; returns the cached body, or null when it stays
+    // on disk
+    ByteBuffer load(StoredFile file) throws IOException {
+        long size = file.getSize();
+        if (!isCacheable(size)) {
+            return null;
+        }
+        synchronized (writeLock) {
+            if (!shouldAdmit(file.getFilename(), size, victimsInLruOrder())) {
+                rejections.incrementAndGet();
+                return null;
+            }
+        }
+
+        ByteBuffer body = ByteBuffer.allocateDirect((int) size);
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            while (body.hasRemaining() && channel.read(body) >= 0) {
+                // keep reading until the buffer is full or the file ends early
+            }
+        }
+        if (body.hasRemaining()) {
+            return null;
+        }
+        body.flip();
+        ByteBuffer readOnly = body.asReadOnlyBuffer();
+
+        synchronized (writeLock) {
+            // Re-check: other requests may have filled the space while the file was read
+            List<Map.Entry<String, CachedImage>> victims = victimsInLruOrder();
+            if (entries.containsKey(file.getFilename()) || !shouldAdmit(file.getFilename(), size, victims)) {
+                rejections.incrementAndGet();
+                return null;
+            }
+            evictFor(size, victims);
+            entries.put(file.getFilename(), new CachedImage(readOnly, file.getLastModified()));
+            residentBytes += size;
+            admissions.incrementAndGet();
+        }
+        return readOnly.duplicate();
+    }
+
+    // Drops the file and any variant derived from it (variants are named <base>-w<width>.<ext>)
+    public void invalidate(String filename) {
+        int lastDotIndex = filename.lastIndexOf('.');
+        String variantPrefix = (lastDotIndex == -1 ? filename : filename.substring(0, lastDotIndex)) + "-w";
+        synchronized (writeLock) {
+            for (Map.Entry<String, CachedImage> entry : entries.entrySet()) {
+                if (entry.getKey().equals(filename) || entry.getKey().startsWith(variantPrefix)) {
+                    remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (writeLock) {
+            stats.put("entries", entries.size());
+            stats.put("residentBytes", residentBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("admissions", admissions.get());
+        stats.put("rejections", rejections.get());
+        stats.put("evictions", evictions.get());
+        stats.put("skippedLoads", skippedLoads.get());
+        stats.put("pendingLoads", pendingLoads.size());
+        return stats;
+    }
+
+    private boolean isCacheable(long size) {
+        return size > 0 && size <= maxEntryBytes && size <= maxBytes;
+    }
+
+    // Only needed once the cache is full, and only on a miss, which is about to read the file anyway
+    private List<Map.Entry<String, CachedImage>> victimsInLruOrder() {
+        if (residentBytes == 0) {
+            return List.of();
+        }
+        List<Map.Entry<String, CachedImage>> victims = new ArrayList<>(entries.entrySet());
+        victims.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccessNanos));
+        return victims;
+    }
+
+    // Free space admits anything; otherwise the candidate must be seen more often than every victim it displaces
+    private boolean shouldAdmit(String key, long size, List<Map.Entry<String, CachedImage>> victims) {
+        if (residentBytes + size <= maxBytes) {
+            return true;
+        }
+        int candidateFrequency = sketch.frequency(key);
+        long reclaimed = 0;
+        for (Map.Entry<String, CachedImage> entry : victims) {
+            if (residentBytes - reclaimed + size <= maxBytes) {
+                break;
+            }
+            if (sketch.frequency(entry.getKey()) >= candidateFrequency) {
+                return false;
+            }
+            reclaimed += entry.getValue().body.capacity();
+        }
+        return residentBytes - reclaimed + size <= maxBytes;
+    }
+
+    private void evictFor(long size, List<Map.Entry<String, CachedImage>> victims) {
+        Iterator<Map.Entry<String, CachedImage>> iterator = victims.iterator();
+        while (residentBytes + size > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CachedImage> victim = iterator.next();
+            if (remove(victim.getKey(), victim.getValue())) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    // Callers hold writeLock; removing by value leaves a newer entry for the same name alone
+    private boolean remove(String key, CachedImage expected) {
+        if (!entries.remove(key, expected)) {
+            return false;
+        }
+        residentBytes -= expected.body.capacity();
+        return true;
+    }
+
+    private static final class CachedImage {
+        // Hits closer together than this do not rewrite the stamp, so a hot entry is not written on every request
+        private static final long TOUCH_GRANULARITY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private final ByteBuffer body;
+        private final long lastModified;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private CachedImage(ByteBuffer body, long lastModified) {
+            this.body = body;
+            this.lastModified = lastModified;
+        }
+
+        private void touch() {
+            long now = System.nanoTime();
+            if (now - lastAccessNanos > TOUCH_GRANULARITY_NANOS) {
+                lastAccessNanos = now;
+            }
+        }
+    }
+
+    // Count-min sketch of 4-bit counters; all counters are halved periodically so old popularity fades. It is
+    // updated without a lock: a lost increment or a reset racing an increment only makes a count approximate,
+    // which admission already tolerates.
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] counters;
+        private final int[] seeds;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int width) {
+            int size = Integer.highestOneBit(Math.max(64, width - 1) << 1);
+            this.counters = new byte[DEPTH][size];
+            this.seeds = new int[DEPTH];
+            for (int i = 0; i < DEPTH; i++) {
+                seeds[i] = ThreadLocalRandom.current().nextInt() | 1;
+            }
+            this.mask = size - 1;
+            this.sampleSize = size * 10;
+        }
+
+        private void increment(String key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = index(hash, i);
+                if (counters[i][index] < MAX_COUNT) {
+                    counters[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, counters[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >>> 1);
+                }
+            }
+            additions /= 2;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * seeds[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            hash ^= hash >>> 11;
+            return hash;
+        }
+    }
+}
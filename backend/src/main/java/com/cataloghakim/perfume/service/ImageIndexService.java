@@ -0,0 +1,336 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.dto.ImageMetadataDTO;
+import com.cataloghakim.perfume.entity.Brand;
+import com.cataloghakim.perfume.entity.ImageMetadata;
+import com.cataloghakim.perfume.repository.BrandRepository;
+import com.cataloghakim.perfume.repository.ImageMetadataRepository;
+import com.cataloghakim.perfume.storage.ImageStorage;
+import com.cataloghakim.perfume.storage.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Service
+public class ImageIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageIndexService.class);
+
+    private static final int BACKFILL_BATCH_SIZE = 100;
+
+    // One node runs the backfill; after a complete run the others skip it on startup for a while
+    private static final String BACKFILL_LEASE = "image-index-backfill";
+    private static final Duration BACKFILL_RUN_DURATION = Duration.ofMinutes(30);
+    private static final Duration BACKFILL_REPEAT_AFTER = Duration.ofHours(12);
+
+    @Autowired
+    private ImageMetadataRepository imageMetadataRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Identical uploads on two requests or nodes both pass the existence check; the insert runs in its own
+    // transaction so the loser sees the duplicate key here instead of failing the upload. The image is decoded
+    // before that transaction starts, so no connection is held while it is read.
+    public void record(StoredFile file) {
+        if (file == null || imageMetadataRepository.existsById(file.getFilename())) {
+            return;
+        }
+        ImageMetadata image = newMetadata(file.getFilename(), file.getSize(), file.getPath(), file.getContentType(),
+                Instant.now());
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> entityManager.persist(image));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("{} was indexed concurrently", file.getFilename());
+        }
+    }
+
+    // Placeholder fields for a brand about to reference imageUrl; null for remote or unindexed images
+    @Transactional(readOnly = true)
+    public ImageMetadata findByImageUrl(String imageUrl) {
+        String filename = StoredFile.filenameFromImageUrl(imageUrl);
+        if (filename == null || imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) {
+            return null;
+        }
+        return imageMetadataRepository.findById(filename).orElse(null);
+    }
+
+    @Transactional
+    public void remove(String filename) {
+        if (imageMetadataRepository.existsById(filename)) {
+            imageMetadataRepository.deleteById(filename);
+        }
+    }
+
+    // Called by BrandService whenever a brand's imageUrl is set, changed or the brand is deleted
+    @Transactional
+    public void updateReferences(Long brandId, String oldImageUrl, String newImageUrl) {
+        String oldFilename = StoredFile.filenameFromImageUrl(oldImageUrl);
+        String newFilename = StoredFile.filenameFromImageUrl(newImageUrl);
+        if (oldFilename != null && !oldFilename.equals(newFilename)) {
+            imageMetadataRepository.findById(oldFilename).ifPresent(image -> image.getBrandIds().remove(brandId));
+        }
+        if (newFilename != null) {
+            imageMetadataRepository.findById(newFilename).ifPresent(image -> image.getBrandIds().add(brandId));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ImageMetadataDTO> getImages(int page, int size, boolean unreferencedOnly) {
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+        Page<ImageMetadata> images = unreferencedOnly
+                ? imageMetadataRepository.findUnreferenced(pageable)
+                : imageMetadataRepository.findAll(pageable);
+        return images.map(this::convertToDTO);
+    }
+
+    // Indexes uploads that predate the table, rebuilds brand references from Brand.imageUrl and fills missing
+    // placeholders. Guarded by a job lease so only one node of a cluster does the work.
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        Thread thread = new Thread(this::backfill, "image-index-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void backfill() {
+        if (!jobLeaseService.tryAcquire(BACKFILL_LEASE, BACKFILL_RUN_DURATION)) {
+            logger.debug("Image index backfill ran recently or is running on another node");
+            return;
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            int indexed = indexMissingObjects(transactionTemplate);
+            rebuildReferences(transactionTemplate);
+            int placeholders = backfillPlaceholders(transactionTemplate);
+            int brands = copyPlaceholdersToBrands(transactionTemplate);
+            if (indexed > 0 || placeholders > 0 || brands > 0) {
+                logger.info("Image index backfill indexed {} uploads, computed {} placeholders and updated {} brands",
+                        indexed, placeholders, brands);
+            }
+            jobLeaseService.tryAcquire(BACKFILL_LEASE, BACKFILL_REPEAT_AFTER);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Image index backfill failed", e);
+            jobLeaseService.release(BACKFILL_LEASE);
+        }
+    }
+
+    private int indexMissingObjects(TransactionTemplate transactionTemplate) throws IOException {
+        int indexed = 0;
+        try (Stream<StoredObject> objects = imageStorage.list()) {
+            Iterator<StoredObject> iterator = objects.iterator();
+            List<StoredObject> batch = new ArrayList<>();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() >= BACKFILL_BATCH_SIZE || !iterator.hasNext()) {
+                    List<ImageMetadata> images = newMetadataForMissing(batch);
+                    if (!images.isEmpty()) {
+                        transactionTemplate.executeWithoutResult(status -> imageMetadataRepository.saveAll(images));
+                    }
+                    indexed += images.size();
+                    batch.clear();
+                }
+            }
+        }
+        return indexed;
+    }
+
+    // Rows for the objects that are not indexed yet, placeholders included; built outside any transaction
+    private List<ImageMetadata> newMetadataForMissing(List<StoredObject> batch) {
+        Set<String> known = new HashSet<>();
+        imageMetadataRepository.findAllById(batch.stream().map(StoredObject::getName).toList())
+                .forEach(image -> known.add(image.getFilename()));
+
+        List<ImageMetadata> images = new ArrayList<>();
+        for (StoredObject object : batch) {
+            if (known.contains(object.getName())) {
+                continue;
+            }
+            String contentType = FileStorageService.resolveContentType(object.getName());
+            images.add(newMetadata(object.getName(), object.getSize(), object.getLocalPath(), contentType,
+                    Instant.ofEpochMilli(object.getLastModified())));
+        }
+        return images;
+    }
+
+    // Brand references come from one projection query; index rows are then fixed up a page per transaction
+    private void rebuildReferences(TransactionTemplate transactionTemplate) {
+        Map<String, Set<Long>> references = new HashMap<>();
+        for (Object[] row : brandRepository.findImageReferences()) {
+            String filename = StoredFile.filenameFromImageUrl((String) row[1]);
+            if (filename != null) {
+                references.computeIfAbsent(filename, key -> new HashSet<>()).add((Long) row[0]);
+            }
+        }
+        String after = "";
+        while (after != null) {
+            String from = after;
+            after = transactionTemplate.execute(status -> {
+                List<ImageMetadata> images = imageMetadataRepository.findPageAfter(from,
+                        PageRequest.of(0, BACKFILL_BATCH_SIZE));
+                for (ImageMetadata image : images) {
+                    Set<Long> brandIds = references.getOrDefault(image.getFilename(), Set.of());
+                    if (!image.getBrandIds().equals(brandIds)) {
+                        image.getBrandIds().clear();
+                        image.getBrandIds().addAll(brandIds);
+                    }
+                }
+                return images.size() < BACKFILL_BATCH_SIZE ? null : images.get(images.size() - 1).getFilename();
+            });
+        }
+    }
+
+    // Fills placeholders for rows indexed before they were computed. Only rows still missing one are read, a
+    // page at a time; images are fetched and decoded outside any transaction, and each page is written in a
+    // short one. Paging is by filename, so an image that cannot be decoded is not read again in this run.
+    private int backfillPlaceholders(TransactionTemplate transactionTemplate) {
+        int computed = 0;
+        String after = "";
+        while (true) {
+            List<ImageMetadata> batch = imageMetadataRepository.findMissingPlaceholders(after,
+                    PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                return computed;
+            }
+            after = batch.get(batch.size() - 1).getFilename();
+
+            Map<String, ImagePlaceholder> placeholders = new HashMap<>();
+            for (ImageMetadata image : batch) {
+                try {
+                    StoredObject object = imageStorage.fetch(image.getFilename());
+                    ImagePlaceholder placeholder = object == null ? null : computePlaceholder(object.getLocalPath());
+                    if (placeholder != null) {
+                        placeholders.put(image.getFilename(), placeholder);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to compute placeholder for {}", image.getFilename(), e);
+                }
+            }
+            if (!placeholders.isEmpty()) {
+                computed += transactionTemplate.execute(status -> applyPlaceholders(placeholders));
+            }
+            if (batch.size() < BACKFILL_BATCH_SIZE) {
+                return computed;
+            }
+        }
+    }
+
+    private int applyPlaceholders(Map<String, ImagePlaceholder> placeholders) {
+        int applied = 0;
+        for (ImageMetadata image : imageMetadataRepository.findAllById(placeholders.keySet())) {
+            if (image.getBlurHash() == null) {
+                applyPlaceholder(image, placeholders.get(image.getFilename()));
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    // Copies placeholders onto brands saved before their image had one, a page of brands per transaction
+    private int copyPlaceholdersToBrands(TransactionTemplate transactionTemplate) {
+        int updated = 0;
+        long after = 0;
+        while (true) {
+            long from = after;
+            List<Brand> batch = transactionTemplate.execute(status -> {
+                List<Brand> brands = brandRepository.findMissingPlaceholders(from,
+                        PageRequest.of(0, BACKFILL_BATCH_SIZE));
+                for (Brand brand : brands) {
+                    ImageMetadata image = findByImageUrl(brand.getImageUrl());
+                    if (image != null && image.getBlurHash() != null) {
+                        applyToBrand(brand, image);
+                    }
+                }
+                return brands;
+            });
+            updated += (int) batch.stream().filter(brand -> brand.getImageBlurHash() != null).count();
+            if (batch.size() < BACKFILL_BATCH_SIZE) {
+                break;
+            }
+            after = batch.get(batch.size() - 1).getId();
+        }
+        if (updated > 0) {
+            catalogVersionService.bump();
+        }
+        return updated;
+    }
+
+    public void applyToBrand(Brand brand, ImageMetadata image) {
+        brand.setImageBlurHash(image == null ? null : image.getBlurHash());
+        brand.setImageDominantColor(image == null ? null : image.getDominantColor());
+        brand.setImageWidth(image == null ? null : image.getWidth());
+        brand.setImageHeight(image == null ? null : image.getHeight());
+    }
+
+    private ImageMetadata newMetadata(String filename, long size, Path path, String contentType, Instant createdAt) {
+        int lastDotIndex = filename.lastIndexOf('.');
+        String hash = lastDotIndex == -1 ? filename : filename.substring(0, lastDotIndex);
+        ImageMetadata image = new ImageMetadata(filename, hash, size, null, null, contentType, createdAt);
+        ImagePlaceholder placeholder = path == null ? null : computePlaceholder(path);
+        if (placeholder != null) {
+            applyPlaceholder(image, placeholder);
+        }
+        return image;
+    }
+
+    ImagePlaceholder computePlaceholder(Path path) {
+        return ImagePlaceholder.compute(path);
+    }
+
+    private void applyPlaceholder(ImageMetadata image, ImagePlaceholder placeholder) {
+        image.setWidth(placeholder.getWidth());
+        image.setHeight(placeholder.getHeight());
+        image.setBlurHash(placeholder.getBlurHash());
+        image.setDominantColor(placeholder.getDominantColor());
+    }
+
+    private ImageMetadataDTO convertToDTO(ImageMetadata image) {
+        ImageMetadataDTO dto = new ImageMetadataDTO(image.getFilename(), image.getHash(), image.getSize(),
+                image.getWidth(), image.getHeight(), image.getContentType(), image.getCreatedAt(),
+                new HashSet<>(image.getBrandIds()));
+        dto.setBlurHash(image.getBlurHash());
+        dto.setDominantColor(image.getDominantColor());
+        return dto;
+    }
+}
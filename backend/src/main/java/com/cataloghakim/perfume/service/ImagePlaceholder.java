@@ -0,0 +1,200 @@
+package com.cataloghakim.perfume.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+// Dimensions, dominant color and BlurHash of an image, computed from a ~32px thumbnail decoded with subsampling
+public class ImagePlaceholder {
+
+    private static final int SAMPLE_SIZE = 32;
+    private static final int COMPONENTS_X = 4;
+    private static final int COMPONENTS_Y = 3;
+    private static final String BASE83 =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private final int width;
+    private final int height;
+    private final String blurHash;
+    private final String dominantColor;
+
+    private ImagePlaceholder(int width, int height, String blurHash, String dominantColor) {
+        this.width = width;
+        this.height = height;
+        this.blurHash = blurHash;
+        this.dominantColor = dominantColor;
+    }
+
+    // Returns null when ImageIO cannot decode the file (SVG, or WebP without a plugin)
+    public static ImagePlaceholder compute(Path path) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (SAMPLE_SIZE * 4));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage sample = shrink(reader.read(0, param));
+
+                int[] pixels = sample.getRGB(0, 0, sample.getWidth(), sample.getHeight(), null, 0, sample.getWidth());
+                return new ImagePlaceholder(width, height,
+                        encodeBlurHash(pixels, sample.getWidth(), sample.getHeight()),
+                        dominantColor(pixels));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public String getBlurHash() {
+        return blurHash;
+    }
+
+    public String getDominantColor() {
+        return dominantColor;
+    }
+
+    private static BufferedImage shrink(BufferedImage source) {
+        double scale = (double) SAMPLE_SIZE / Math.max(source.getWidth(), source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * Math.min(1.0, scale)));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * Math.min(1.0, scale)));
+        BufferedImage sample = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = sample.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, java.awt.Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return sample;
+    }
+
+    // The most populated bucket of a 4-bit-per-channel histogram, reported as that bucket's mean color
+    private static String dominantColor(int[] pixels) {
+        int[] counts = new int[4096];
+        long[][] sums = new long[4096][3];
+        for (int pixel : pixels) {
+            int r = (pixel >> 16) & 0xFF;
+            int g = (pixel >> 8) & 0xFF;
+            int b = pixel & 0xFF;
+            int bucket = (r >> 4) << 8 | (g >> 4) << 4 | (b >> 4);
+            counts[bucket]++;
+            sums[bucket][0] += r;
+            sums[bucket][1] += g;
+            sums[bucket][2] += b;
+        }
+        int best = 0;
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] > counts[best]) {
+                best = i;
+            }
+        }
+        int count = Math.max(1, counts[best]);
+        return String.format("#%02x%02x%02x", sums[best][0] / count, sums[best][1] / count, sums[best][2] / count);
+    }
+
+    // BlurHash (https://blurha.sh): a DCT of the image in linear RGB, quantised into a short base83 string
+    private static String encodeBlurHash(int[] pixels, int width, int height) {
+        double[][] factors = new double[COMPONENTS_X * COMPONENTS_Y][3];
+        for (int j = 0; j < COMPONENTS_Y; j++) {
+            for (int i = 0; i < COMPONENTS_X; i++) {
+                double normalisation = (i == 0 && j == 0) ? 1 : 2;
+                double r = 0;
+                double g = 0;
+                double b = 0;
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        double basis = normalisation
+                                * Math.cos(Math.PI * i * x / width)
+                                * Math.cos(Math.PI * j * y / height);
+                        int pixel = pixels[y * width + x];
+                        r += basis * srgbToLinear((pixel >> 16) & 0xFF);
+                        g += basis * srgbToLinear((pixel >> 8) & 0xFF);
+                        b += basis * srgbToLinear(pixel & 0xFF);
+                    }
+                }
+                double scale = 1.0 / (width * height);
+                factors[j * COMPONENTS_X + i] = new double[] {r * scale, g * scale, b * scale};
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83(hash, (COMPONENTS_X - 1) + (COMPONENTS_Y - 1) * 9, 1);
+
+        double maximumValue = 0;
+        for (int k = 1; k < factors.length; k++) {
+            for (double value : factors[k]) {
+                maximumValue = Math.max(maximumValue, Math.abs(value));
+            }
+        }
+        int quantisedMaximum = factors.length > 1
+                ? (int) Math.max(0, Math.min(82, Math.floor(maximumValue * 166 - 0.5)))
+                : 0;
+        double acMaximum = factors.length > 1 ? (quantisedMaximum + 1) / 166.0 : 1;
+        encode83(hash, quantisedMaximum, 1);
+
+        double[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            int quantR = quantiseAc(ac[0], acMaximum);
+            int quantG = quantiseAc(ac[1], acMaximum);
+            int quantB = quantiseAc(ac[2], acMaximum);
+            encode83(hash, quantR * 19 * 19 + quantG * 19 + quantB, 2);
+        }
+        return hash.toString();
+    }
+
+    private static int quantiseAc(double value, double maximum) {
+        double scaled = value / maximum;
+        double signedPow = Math.copySign(Math.pow(Math.abs(scaled), 0.5), scaled);
+        return (int) Math.max(0, Math.min(18, Math.floor(signedPow * 9 + 9.5)));
+    }
+
+    private static double srgbToLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) Math.round(v * 12.92 * 255)
+                : (int) Math.round((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255);
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / (int) Math.pow(83, length - i)) % 83;
+            out.append(BASE83.charAt(digit));
+        }
+    }
+}
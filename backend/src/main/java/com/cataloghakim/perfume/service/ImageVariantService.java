@@ -0,0 +1,442 @@
+package com.cataloghakim.perfume.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    // Animated GIFs and SVGs are served as uploaded
+    private static final Set<String> RESIZABLE_TYPES = Set.of("image/jpeg", "image/png", "image/webp");
+
+    private static final int CACHE_SEGMENTS = 16;
+
+    @Value("${app.images.variant-widths:160,320,640,1280}")
+    private int[] variantWidths;
+
+    @Value("${app.images.variant-threads:2}")
+    private int variantThreads;
+
+    @Value("${app.images.variant-queue-capacity:100}")
+    private int variantQueueCapacity;
+
+    @Value("${app.images.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${app.images.variant-cache.max-entries:10000}")
+    private int variantCacheMaxEntries;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, CompletableFuture<StoredFile>> inFlight = new ConcurrentHashMap<>();
+    // Variants requested before they existed; each is queued once and the original is served meanwhile
+    private final Set<String> queuedOnDemand = ConcurrentHashMap.newKeySet();
+    private StripedLruCache<String, StoredFile> variantCache;
+    private StripedLruCache<String, Integer> sourceWidths;
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong generatedOnDemand = new AtomicLong();
+    private final AtomicLong skippedScheduling = new AtomicLong();
+    private final AtomicLong generationNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Arrays.sort(variantWidths);
+        variantCache = new StripedLruCache<>(variantCacheMaxEntries, CACHE_SEGMENTS);
+        sourceWidths = new StripedLruCache<>(variantCacheMaxEntries, CACHE_SEGMENTS);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                variantThreads, variantThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(variantQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Pre-generates the default-format variants after an upload; the upload response never waits for this
+    public void scheduleVariants(String filename) {
+        try {
+            executor.execute(() -> {
+                try {
+                    StoredFile original = fileStorageService.getStoredFile(filename);
+                    if (original == null || !isResizable(original)) {
+                        return;
+                    }
+                    for (int width : variantWidths) {
+                        VariantTarget target = target(original, width, null);
+                        if (target != null) {
+                            generateIfMissing(original, target);
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Failed to pre-generate variants for {}", filename, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue full: the variants are generated lazily on first request instead
+            skippedScheduling.incrementAndGet();
+        }
+    }
+
+    // Returns the closest configured width variant, or the original when it is smaller or not resizable. A missing
+    // variant is never generated on the request thread: it is queued and the original is served (pending) until
+    // it is ready.
+    public ResolvedVariant resolveVariant(StoredFile original, int requestedWidth, String accept) throws IOException {
+        VariantTarget target = target(original, requestedWidth, accept);
+        if (target == null) {
+            return new ResolvedVariant(original, false);
+        }
+        StoredFile existing = findVariant(target);
+        if (existing != null) {
+            return new ResolvedVariant(existing, false);
+        }
+        queueVariant(original, target);
+        return new ResolvedVariant(original, true);
+    }
+
+    public void evict(String filename) {
+        sourceWidths.remove(filename);
+        for (int width : variantWidths) {
+            for (OutputFormat format : OutputFormat.values()) {
+                variantCache.remove(fileStorageService.getVariantPath(filename, width, format.extension).toString());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long count = generated.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("widths", variantWidths);
+        stats.put("generated", count);
+        stats.put("generatedOnDemand", generatedOnDemand.get());
+        stats.put("skippedScheduling", skippedScheduling.get());
+        stats.put("queuedOnDemand", queuedOnDemand.size());
+        stats.put("cachedVariants", variantCache.size());
+        stats.put("cacheEvictions", variantCache.getEvictions() + sourceWidths.getEvictions());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("averageGenerationMs", count == 0 ? 0.0 : generationNanos.get() / 1_000_000.0 / count);
+        stats.put("webpOutput", webpWriterAvailable());
+        return stats;
+    }
+
+    private VariantTarget target(StoredFile original, int requestedWidth, String accept) throws IOException {
+        if (!isResizable(original)) {
+            return null;
+        }
+        int width = snapWidth(requestedWidth);
+        Integer sourceWidth = sourceWidth(original);
+        if (sourceWidth == null || sourceWidth <= width) {
+            return null;
+        }
+        OutputFormat format = chooseFormat(original, accept);
+        return new VariantTarget(width, format,
+                fileStorageService.getVariantPath(original.getFilename(), width, format.extension));
+    }
+
+    private StoredFile findVariant(VariantTarget target) throws IOException {
+        String key = target.path().toString();
+        StoredFile cached = variantCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        StoredFile existing = statVariant(target.path(), target.format());
+        if (existing != null) {
+            variantCache.put(key, existing);
+        }
+        return existing;
+    }
+
+    private void queueVariant(StoredFile original, VariantTarget target) {
+        String key = target.path().toString();
+        if (!queuedOnDemand.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateIfMissing(original, target);
+                    generatedOnDemand.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Failed to generate variant {}", key, e);
+                } finally {
+                    queuedOnDemand.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue full: a later request for the same width queues it again
+            queuedOnDemand.remove(key);
+            skippedScheduling.incrementAndGet();
+        }
+    }
+
+    // Runs on the variant executor; a variant the upload pre-generation and an on-demand request both want is
+    // resized once
+    private StoredFile generateIfMissing(StoredFile original, VariantTarget target) throws IOException {
+        StoredFile existing = findVariant(target);
+        if (existing != null) {
+            return existing;
+        }
+
+        String key = target.path().toString();
+        CompletableFuture<StoredFile> created = new CompletableFuture<>();
+        CompletableFuture<StoredFile> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw new IOException("Variant generation failed", e.getCause());
+            }
+        }
+
+        try {
+            StoredFile variant = generate(original, target.width(), target.format(), target.path());
+            variantCache.put(key, variant);
+            created.complete(variant);
+            return variant;
+        } catch (IOException | RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private StoredFile generate(StoredFile original, int width, OutputFormat format, Path variantPath) throws IOException {
+        long start = System.nanoTime();
+
+        BufferedImage source = readSubsampled(original, width);
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+        BufferedImage resized = resize(source, width, height, format.alpha);
+
+        Files.createDirectories(variantPath.getParent());
+        Path tempFile = variantPath.resolveSibling(".variant-" + UUID.randomUUID() + ".tmp");
+        try {
+            write(resized, format, tempFile);
+            Files.move(tempFile, variantPath, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        generated.incrementAndGet();
+        generationNanos.addAndGet(System.nanoTime() - start);
+
+        StoredFile variant = statVariant(variantPath, format);
+        if (variant == null) {
+            throw new IOException("Variant disappeared after writing: " + variantPath);
+        }
+        return variant;
+    }
+
+    private BufferedImage readSubsampled(StoredFile original, int targetWidth) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.getPath().toFile())) {
+            ImageReader reader = firstReader(input);
+            try {
+                reader.setInput(input, true, true);
+                // Decode at most ~2x the target width, so a 6000px upload never needs a full-size raster
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, reader.getWidth(0) / (targetWidth * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Integer sourceWidth(StoredFile original) throws IOException {
+        Integer cached = sourceWidths.get(original.getFilename());
+        if (cached != null) {
+            return cached;
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.getPath().toFile())) {
+            if (input == null) {
+                return null;
+            }
+            ImageReader reader = firstReader(input);
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                sourceWidths.put(original.getFilename(), width);
+                return width;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            // Not decodable by ImageIO (e.g. no WebP reader installed): serve the original
+            return null;
+        }
+    }
+
+    private ImageReader firstReader(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("No image reader available");
+        }
+        return readers.next();
+    }
+
+    private BufferedImage resize(BufferedImage source, int width, int height, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+
+        // Halving steps keep bilinear scaling from aliasing on large reductions
+        do {
+            int nextWidth = Math.max(width, currentWidth / 2);
+            int nextHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                if (!alpha) {
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, nextWidth, nextHeight);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+        } while (currentWidth > width);
+
+        return current;
+    }
+
+    private void write(BufferedImage image, OutputFormat format, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType(format.mimeType);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + format.mimeType);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format == OutputFormat.JPEG) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private StoredFile statVariant(Path variantPath, OutputFormat format) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(variantPath, BasicFileAttributes.class);
+            return new StoredFile(variantPath.getFileName().toString(), variantPath.toAbsolutePath(),
+                    attributes.size(), attributes.lastModifiedTime().toMillis(), format.mimeType);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private int snapWidth(int requestedWidth) {
+        for (int width : variantWidths) {
+            if (width >= requestedWidth) {
+                return width;
+            }
+        }
+        return variantWidths[variantWidths.length - 1];
+    }
+
+    private boolean isResizable(StoredFile file) {
+        return RESIZABLE_TYPES.contains(file.getContentType());
+    }
+
+    // WebP is only produced when an ImageIO WebP writer plugin is on the classpath; the JDK has none
+    private OutputFormat chooseFormat(StoredFile original, String accept) {
+        if (accept != null && accept.contains("image/webp") && webpWriterAvailable()) {
+            return OutputFormat.WEBP;
+        }
+        return "image/png".equals(original.getContentType()) ? OutputFormat.PNG : OutputFormat.JPEG;
+    }
+
+    private boolean webpWriterAvailable() {
+        return ImageIO.getImageWritersByMIMEType(OutputFormat.WEBP.mimeType).hasNext();
+    }
+
+    // pending: the variant is being generated and the original stands in for it, so it must not be cached as the
+    // response for this width
+    public record ResolvedVariant(StoredFile file, boolean pending) {
+    }
+
+    private record VariantTarget(int width, OutputFormat format, Path path) {
+    }
+
+    private enum OutputFormat {
+        JPEG("image/jpeg", ".jpg", false),
+        PNG("image/png", ".png", true),
+        WEBP("image/webp", ".webp", true);
+
+        private final String mimeType;
+        private final String extension;
+        private final boolean alpha;
+
+        OutputFormat(String mimeType, String extension, boolean alpha) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+            this.alpha = alpha;
+        }
+    }
+}
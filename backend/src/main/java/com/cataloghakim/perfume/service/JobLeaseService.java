@@ -0,0 +1,66 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.entity.JobLease;
+import com.cataloghakim.perfume.repository.JobLeaseRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+// Lets one node of a cluster run a job while the others skip it. A lease is a row in job_leases; it expires on
+// its own, so a node that dies mid-run only blocks the job until then.
+@Service
+public class JobLeaseService {
+
+    // Identifies this process; a restarted node is a new owner
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // True when this node now holds the lease for the given duration
+    public boolean tryAcquire(String name, Duration duration) {
+        TransactionTemplate transactionTemplate = newTransaction();
+        Instant now = Instant.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                jobLeaseRepository.claim(name, nodeId, now.plus(duration), now));
+        if (claimed != null && claimed > 0) {
+            return true;
+        }
+        if (jobLeaseRepository.existsById(name)) {
+            return false;
+        }
+        try {
+            // persist, not save: save would merge into a row another node inserted in the meantime
+            transactionTemplate.executeWithoutResult(status ->
+                    entityManager.persist(new JobLease(name, nodeId, now.plus(duration))));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    public void release(String name) {
+        newTransaction().executeWithoutResult(status -> jobLeaseRepository.release(name, nodeId, Instant.now()));
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+}
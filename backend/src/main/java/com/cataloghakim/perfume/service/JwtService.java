@@ -1,9 +1,14 @@
 package com.cataloghakim.perfume.service;
 
+import com.cataloghakim.perfume.security.VerifiedTokenCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -17,15 +22,47 @@ import java.util.function.Function;
 @Service
 public class JwtService {
     
+    // iat only has whole seconds; revocation cutoffs compare against this millisecond copy
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
+    
     @Value("${jwt.secret}")
     private String secretKey;
     
     @Value("${jwt.expiration}")
     private long jwtExpiration;
     
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+    
+    // Key and parser are immutable and thread-safe, so they are built once rather than per claim lookup
+    private Key signingKey;
+    private JwtParser parser;
+    
+    @PostConstruct
+    void initSigningKey() {
+        signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+    
     private Key getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
+    }
+    
+    // Verifies signature and expiry once and returns the claims, or null for any invalid token
+    public Claims verifyToken(String token) {
+        Claims cached = verifiedTokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            Claims claims = extractAllClaims(token);
+            verifiedTokenCache.put(token, claims);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
     
     public String extractUsername(String token) {
@@ -37,22 +74,19 @@ public class JwtService {
     }
     
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        Claims claims = verifiedTokenCache.get(token);
+        if (claims == null) {
+            claims = extractAllClaims(token);
+            verifiedTokenCache.put(token, claims);
+        }
         return claimsResolver.apply(claims);
     }
     
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
+        return parser.parseClaimsJws(token)
                 .getBody();
     }
     
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-    
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("roles", userDetails.getAuthorities().stream()
@@ -62,25 +96,33 @@ public class JwtService {
     }
     
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
+                .setIssuedAt(new Date(now))
+                .claim(ISSUED_AT_MILLIS_CLAIM, now)
+                .setExpiration(new Date(now + jwtExpiration))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
     
+    // Tokens issued before the millisecond claim existed fall back to the whole-second iat
+    public static Date issuedAt(Claims claims) {
+        Number millis = claims.get(ISSUED_AT_MILLIS_CLAIM, Number.class);
+        return millis != null ? new Date(millis.longValue()) : claims.getIssuedAt();
+    }
+    
     public Boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = verifyToken(token);
+        return claims != null && claims.getSubject().equals(userDetails.getUsername());
     }
     
     public Boolean isTokenValid(String token) {
-        try {
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
-        }
+        return verifyToken(token) != null;
+    }
+    
+    public Map<String, Object> getVerifiedTokenCacheStats() {
+        return verifiedTokenCache.getStats();
     }
 }
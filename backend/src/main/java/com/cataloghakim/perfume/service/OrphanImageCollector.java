@@ -0,0 +1,215 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.repository.BrandRepository;
+import com.cataloghakim.perfume.repository.ImageMetadataRepository;
+import com.cataloghakim.perfume.storage.ImageStorage;
+import com.cataloghakim.perfume.storage.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+@Service
+public class OrphanImageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrphanImageCollector.class);
+
+    // An upload is unreferenced until the brand form that uploaded it is saved, so the grace period never drops below this
+    private static final Duration MIN_GRACE_PERIOD = Duration.ofHours(1);
+
+    // Every node schedules the collector; the lease lets one of them run it per interval
+    private static final String GC_LEASE = "orphan-image-gc";
+    private static final Duration GC_RUN_DURATION = Duration.ofMinutes(30);
+
+    @Value("${app.files.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.files.gc.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    @Value("${app.files.gc.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.files.gc.batch-pause-ms:1000}")
+    private long batchPauseMs;
+
+    @Value("${app.files.gc.max-deletes-per-run:1000}")
+    private int maxDeletesPerRun;
+
+    @Value("${app.files.gc.interval-ms:3600000}")
+    private long intervalMs;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private ImageMetadataRepository imageMetadataRepository;
+
+    @Autowired
+    private CatalogReadService catalogReadService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalDeleted = new AtomicLong();
+    private final AtomicLong totalReclaimedBytes = new AtomicLong();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Scheduled(initialDelayString = "${app.files.gc.initial-delay-ms:300000}",
+            fixedDelayString = "${app.files.gc.interval-ms:3600000}")
+    public void collect() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (!jobLeaseService.tryAcquire(GC_LEASE, GC_RUN_DURATION)) {
+                logger.debug("Orphan image collection ran recently or is running on another node");
+                return;
+            }
+            try {
+                runOnce();
+                // Held for most of the interval, so the other nodes' schedules skip this round
+                jobLeaseService.tryAcquire(GC_LEASE, Duration.ofMillis(intervalMs * 9 / 10));
+            } catch (IOException | RuntimeException e) {
+                logger.error("Orphan image collection failed", e);
+                jobLeaseService.release(GC_LEASE);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("totalDeleted", totalDeleted.get());
+        stats.put("totalReclaimedBytes", totalReclaimedBytes.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    private void runOnce() throws IOException {
+        long start = System.currentTimeMillis();
+        Set<String> liveNames = loadLiveNames();
+        long cutoff = Instant.now().minus(getGracePeriod()).toEpochMilli();
+
+        long scanned = 0;
+        long orphans = 0;
+        long deleted = 0;
+        long reclaimedBytes = 0;
+        int inBatch = 0;
+
+        // Streamed listing: stored objects are never materialised as a list, only the live names are held in memory
+        try (Stream<StoredObject> objects = imageStorage.list()) {
+            Iterator<StoredObject> iterator = objects.iterator();
+            while (iterator.hasNext() && deleted < maxDeletesPerRun) {
+                StoredObject object = iterator.next();
+                scanned++;
+                if (liveNames.contains(object.getName())) {
+                    continue;
+                }
+                orphans++;
+                // Recent files may belong to a brand form that has not been saved yet
+                if (object.getLastModified() > cutoff) {
+                    continue;
+                }
+
+                // Re-check right before deleting, since the live set may be minutes old by now: a deduplicated
+                // re-upload refreshes the mtime of an existing file, and a brand may have been pointed at it
+                StoredObject current = imageStorage.stat(object.getName());
+                if (current == null || current.getLastModified() > cutoff
+                        || brandRepository.existsByImageFilename(object.getName())) {
+                    continue;
+                }
+                fileStorageService.deleteFile(object.getName());
+                deleted++;
+                reclaimedBytes += current.getSize();
+
+                if (++inBatch >= batchSize) {
+                    inBatch = 0;
+                    if (!pause()) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        runs.incrementAndGet();
+        totalDeleted.addAndGet(deleted);
+        totalReclaimedBytes.addAndGet(reclaimedBytes);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.ofEpochMilli(start).toString());
+        report.put("durationMs", System.currentTimeMillis() - start);
+        report.put("liveImages", liveNames.size());
+        report.put("scanned", scanned);
+        report.put("orphans", orphans);
+        report.put("deleted", deleted);
+        report.put("reclaimedBytes", reclaimedBytes);
+        lastRun = report;
+
+        if (deleted > 0) {
+            logger.info("Orphan image collection deleted {} files and reclaimed {} bytes", deleted, reclaimedBytes);
+        }
+    }
+
+    Duration getGracePeriod() {
+        Duration configured = Duration.ofHours(Math.max(0, gracePeriodHours));
+        return configured.compareTo(MIN_GRACE_PERIOD) < 0 ? MIN_GRACE_PERIOD : configured;
+    }
+
+    // Every place an image can be referenced from: brand rows, the index's brand references (which can lag the
+    // rows after a failed update) and the snapshot served while the database is down
+    private Set<String> loadLiveNames() {
+        Set<String> liveNames = new HashSet<>(imageMetadataRepository.findReferencedFilenames());
+        for (String imageUrl : brandRepository.findAllImageUrls()) {
+            addName(liveNames, imageUrl);
+        }
+        for (String imageUrl : catalogReadService.getSnapshotImageUrls()) {
+            addName(liveNames, imageUrl);
+        }
+        return liveNames;
+    }
+
+    private void addName(Set<String> liveNames, String imageUrl) {
+        String name = StoredFile.filenameFromImageUrl(imageUrl);
+        if (name != null) {
+            liveNames.add(name);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
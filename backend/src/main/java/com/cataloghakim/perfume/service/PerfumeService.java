@@ -8,6 +8,7 @@ import com.cataloghakim.perfume.entity.Brand;
 import com.cataloghakim.perfume.repository.PerfumeRepository;
 import com.cataloghakim.perfume.repository.BrandRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,33 +20,40 @@ import java.util.stream.Collectors;
 @Transactional
 public class PerfumeService {
     
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    
     @Autowired
     private PerfumeRepository perfumeRepository;
     
     @Autowired
     private BrandRepository brandRepository;
     
+    @Transactional(readOnly = true)
     public List<PerfumeDTO> getAllPerfumes() {
-        List<Perfume> perfumes = perfumeRepository.findAll();
+        List<Perfume> perfumes = perfumeRepository.findAll(Sort.by("id"));
         return perfumes.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<PerfumeDTO> getPerfumesByBrand(Long brandId) {
-        List<Perfume> perfumes = perfumeRepository.findByBrandId(brandId);
+        List<Perfume> perfumes = perfumeRepository.findByBrandIdOrderById(brandId);
         return perfumes.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<PerfumeDTO> getPerfumesByCategory(Long categoryId) {
-        List<Perfume> perfumes = perfumeRepository.findByBrandCategoryId(categoryId);
+        List<Perfume> perfumes = perfumeRepository.findByBrandCategoryIdOrderById(categoryId);
         return perfumes.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public Optional<PerfumeDTO> getPerfumeById(Long id) {
         return perfumeRepository.findById(id)
                 .map(this::convertToDTO);
@@ -62,6 +70,7 @@ public class PerfumeService {
         perfume.setBrand(brand);
         
         Perfume savedPerfume = perfumeRepository.save(perfume);
+        catalogVersionService.bump();
         return convertToDTO(savedPerfume);
     }
     
@@ -82,6 +91,7 @@ public class PerfumeService {
         perfume.setBrand(brand);
         
         Perfume updatedPerfume = perfumeRepository.save(perfume);
+        catalogVersionService.bump();
         return Optional.of(convertToDTO(updatedPerfume));
     }
     
@@ -91,9 +101,11 @@ public class PerfumeService {
         }
         
         perfumeRepository.deleteById(id);
+        catalogVersionService.bump();
         return true;
     }
     
+    @Transactional(readOnly = true)
     public List<PerfumeDTO> searchAndFilter(SearchRequestDTO searchRequest) {
         List<Perfume> perfumes = perfumeRepository.searchAndFilter(
             searchRequest.getSearchTerm(),
@@ -107,6 +119,7 @@ public class PerfumeService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<PerfumeDTO> searchByNameOrBrand(String searchTerm) {
         List<Perfume> perfumes = perfumeRepository.searchByNameOrBrand(searchTerm);
         return perfumes.stream()
@@ -114,6 +127,7 @@ public class PerfumeService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<PerfumeDTO> findByBrandName(String brandName) {
         List<Perfume> perfumes = perfumeRepository.findByBrandName(brandName);
         return perfumes.stream()
@@ -121,6 +135,7 @@ public class PerfumeService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<PerfumeDTO> findByNumberRange(Integer minNumber, Integer maxNumber) {
         List<Perfume> perfumes = perfumeRepository.findByNumberRange(minNumber, maxNumber);
         return perfumes.stream()
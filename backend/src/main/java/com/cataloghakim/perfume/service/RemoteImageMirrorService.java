@@ -0,0 +1,368 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.config.WorkerThreads;
+import com.cataloghakim.perfume.exception.UnsupportedImageException;
+import com.cataloghakim.perfume.repository.BrandRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Service
+public class RemoteImageMirrorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RemoteImageMirrorService.class);
+
+    private static final long MAX_RETRY_AFTER_MS = 30_000;
+    private static final int MAX_REDIRECTS = 5;
+
+    @Value("${app.images.mirror.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.images.mirror.concurrency:4}")
+    private int concurrency;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.images.mirror.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.images.mirror.backoff-ms:500}")
+    private long backoffMs;
+
+    @Value("${app.images.mirror.timeout-ms:20000}")
+    private long timeoutMs;
+
+    // Hosts brand images may be fetched from, including via redirects. Required: while it is empty nothing is
+    // mirrored, since the fetch runs with the server's network access.
+    @Value("${app.images.mirror.allowed-hosts:}")
+    private String allowedHostsProperty;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private BrandService brandService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    private HttpClient httpClient;
+    private ExecutorService fetchers;
+    private Set<String> allowedHosts;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // URLs that failed permanently or exhausted their retries wait progressively longer between runs
+    private final Map<String, FailedFetch> failures = new ConcurrentHashMap<>();
+
+    private final AtomicLong mirrored = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @PostConstruct
+    public void init() {
+        // The pool size still bounds concurrency; in virtual-thread mode blocked workers no longer pin OS threads
+        fetchers = Executors.newFixedThreadPool(concurrency, WorkerThreads.factory("image-mirror-", virtualThreads));
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                // Redirects are followed by hand so every hop is checked like the original URL
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        allowedHosts = Arrays.stream(allowedHostsProperty.split(","))
+                .map(String::trim)
+                .filter(host -> !host.isEmpty())
+                .map(String::toLowerCase)
+                .collect(Collectors.toSet());
+        if (enabled && allowedHosts.isEmpty()) {
+            logger.warn("Remote image mirroring is enabled but app.images.mirror.allowed-hosts is empty; "
+                    + "no remote images will be fetched");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchers.shutdownNow();
+    }
+
+    @Scheduled(initialDelayString = "${app.images.mirror.initial-delay-ms:60000}",
+            fixedDelayString = "${app.images.mirror.interval-ms:900000}")
+    public void scheduledRun() {
+        if (enabled && !allowedHosts.isEmpty()) {
+            mirrorAll();
+        }
+    }
+
+    // Fetches every remote brand image once per distinct URL and points the brands at the stored copy
+    public Map<String, Object> mirrorAll() {
+        if (!running.compareAndSet(false, true)) {
+            return Map.of("running", true);
+        }
+        try {
+            return runOnce();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("allowedHosts", allowedHosts.size());
+        stats.put("running", running.get());
+        stats.put("mirrored", mirrored.get());
+        stats.put("failed", failed.get());
+        stats.put("backingOff", failures.size());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    private Map<String, Object> runOnce() {
+        long start = System.currentTimeMillis();
+
+        Map<String, List<Long>> brandsByUrl = new LinkedHashMap<>();
+        for (Object[] row : brandRepository.findRemoteImageReferences()) {
+            brandsByUrl.computeIfAbsent(((String) row[1]).trim(), url -> new ArrayList<>()).add((Long) row[0]);
+        }
+
+        AtomicInteger fetched = new AtomicInteger();
+        AtomicInteger rewritten = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failedNow = new AtomicInteger();
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> entry : brandsByUrl.entrySet()) {
+            String url = entry.getKey();
+            FailedFetch failure = failures.get(url);
+            if (failure != null && failure.retryAt > System.currentTimeMillis()) {
+                skipped.incrementAndGet();
+                continue;
+            }
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    String filename = fetchWithRetries(url);
+                    failures.remove(url);
+                    fetched.incrementAndGet();
+                    mirrored.incrementAndGet();
+                    imageVariantService.scheduleVariants(filename);
+                    for (Long brandId : entry.getValue()) {
+                        if (brandService.replaceImageUrl(brandId, url, filename)) {
+                            rewritten.incrementAndGet();
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failedNow.incrementAndGet();
+                    failed.incrementAndGet();
+                    failures.merge(url, new FailedFetch(1, backoffUntil(1)),
+                            (previous, ignored) -> new FailedFetch(previous.count + 1, backoffUntil(previous.count + 1)));
+                    logger.warn("Failed to mirror brand image {}: {}", url, e.getMessage());
+                }
+            }, fetchers));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.ofEpochMilli(start).toString());
+        report.put("durationMs", System.currentTimeMillis() - start);
+        report.put("remoteUrls", brandsByUrl.size());
+        report.put("fetched", fetched.get());
+        report.put("brandsRewritten", rewritten.get());
+        report.put("skippedBackingOff", skipped.get());
+        report.put("failed", failedNow.get());
+        lastRun = report;
+
+        if (fetched.get() > 0 || failedNow.get() > 0) {
+            logger.info("Mirrored {} remote brand images ({} failed)", fetched.get(), failedNow.get());
+        }
+        return report;
+    }
+
+    private String fetchWithRetries(String url) throws IOException {
+        URI uri = checkTarget(URI.create(url));
+        for (int attempt = 1; ; attempt++) {
+            long retryAfterMs = -1;
+            try {
+                HttpResponse<InputStream> response = send(uri);
+                try (InputStream body = response.body()) {
+                    int status = response.statusCode();
+                    if (status == 200) {
+                        long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+                        // Size cap, content sniffing and hashing all happen in the same pass as for admin uploads
+                        return fileStorageService.storeStream(body, length);
+                    }
+                    if (status != 429 && status < 500) {
+                        throw new PermanentFetchException("HTTP " + status);
+                    }
+                    retryAfterMs = retryAfterMs(response);
+                    if (attempt >= maxAttempts) {
+                        throw new IOException("HTTP " + status + " after " + attempt + " attempts");
+                    }
+                }
+            } catch (PermanentFetchException | UnsupportedImageException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while fetching " + url, e);
+            }
+
+            sleep(retryAfterMs >= 0 ? retryAfterMs : jitteredBackoff(attempt));
+        }
+    }
+
+    // Sends the request and follows up to MAX_REDIRECTS redirects, checking each Location before connecting
+    private HttpResponse<InputStream> send(URI uri) throws IOException, InterruptedException {
+        for (int redirects = 0; ; redirects++) {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .header("Accept", "image/*")
+                    .header("User-Agent", "perfume-catalog-image-mirror")
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            int status = response.statusCode();
+            if (status != 301 && status != 302 && status != 303 && status != 307 && status != 308) {
+                return response;
+            }
+            response.body().close();
+            if (redirects >= MAX_REDIRECTS) {
+                throw new PermanentFetchException("Too many redirects");
+            }
+            String location = response.headers().firstValue("Location")
+                    .orElseThrow(() -> new PermanentFetchException("HTTP " + status + " without Location"));
+            try {
+                uri = checkTarget(uri.resolve(location));
+            } catch (IllegalArgumentException e) {
+                throw new PermanentFetchException("Invalid redirect location: " + location);
+            }
+        }
+    }
+
+    // Only http(s) URLs on an allowed host whose addresses are all public. The client resolves the host again
+    // when it connects; the allowlist is what limits a rebinding DNS answer to hosts we already trust.
+    private URI checkTarget(URI uri) throws IOException {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase();
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new PermanentFetchException("Scheme not allowed for mirroring: " + uri.getScheme());
+        }
+        String host = uri.getHost() == null ? null : uri.getHost().toLowerCase();
+        if (host == null || !allowedHosts.contains(host)) {
+            throw new PermanentFetchException("Host not allowed for mirroring: " + uri.getHost());
+        }
+        for (InetAddress address : resolve(host)) {
+            if (!isPublicAddress(address)) {
+                throw new PermanentFetchException("Host " + host + " resolves to non-public address "
+                        + address.getHostAddress());
+            }
+        }
+        return uri;
+    }
+
+    InetAddress[] resolve(String host) throws UnknownHostException {
+        return InetAddress.getAllByName(host);
+    }
+
+    static boolean isPublicAddress(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            // 100.64.0.0/10 carrier-grade NAT, 0.0.0.0/8, 255.255.255.255
+            int first = bytes[0] & 0xff;
+            int second = bytes[1] & 0xff;
+            return !(first == 100 && second >= 64 && second < 128) && first != 0 && first != 255;
+        }
+        // fc00::/7 unique local addresses are the IPv6 private ranges
+        return (bytes[0] & 0xfe) != 0xfc;
+    }
+
+    // Only the delta-seconds form is honoured; an HTTP-date falls back to the regular backoff
+    private long retryAfterMs(HttpResponse<?> response) {
+        try {
+            return response.headers().firstValue("Retry-After")
+                    .map(value -> Math.min(Long.parseLong(value.trim()) * 1000, MAX_RETRY_AFTER_MS))
+                    .orElse(-1L);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Exponential backoff with jitter, so concurrent retries against one host spread out
+    private long jitteredBackoff(int attempt) {
+        long ceiling = backoffMs << Math.min(attempt - 1, 10);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private long backoffUntil(int failureCount) {
+        long delay = Duration.ofMinutes(15).toMillis() << Math.min(failureCount - 1, 6);
+        return System.currentTimeMillis() + delay;
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while backing off", e);
+        }
+    }
+
+    private static final class FailedFetch {
+        private final int count;
+        private final long retryAt;
+
+        private FailedFetch(int count, long retryAt) {
+            this.count = count;
+            this.retryAt = retryAt;
+        }
+    }
+
+    // Retrying cannot help (4xx, disallowed host), so the URL goes straight to the between-runs backoff
+    private static final class PermanentFetchException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private PermanentFetchException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.entity.UploadSession;
+import com.cataloghakim.perfume.exception.FileTooLargeException;
+import com.cataloghakim.perfume.exception.UploadOffsetConflictException;
+import com.cataloghakim.perfume.repository.UploadSessionRepository;
+import com.cataloghakim.perfume.storage.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+// Sessions live in the database and chunks in ImageStorage, so consecutive requests of one upload may land on
+// different nodes. Each chunk becomes its own part; the session's receivedBytes is only ever raised by a
+// conditional update, which is what orders concurrent chunks instead of a lock.
+@Service
+public class ResumableUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${app.upload.resumable.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    public UploadSession createSession(long totalSize, String originalFilename, String username) {
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("Upload size must be positive");
+        }
+        if (totalSize > fileStorageService.getMaxUploadBytes()) {
+            throw new FileTooLargeException("File exceeds the maximum upload size");
+        }
+
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), totalSize, username,
+                originalFilename, Instant.now());
+        return uploadSessionRepository.save(session);
+    }
+
+    public UploadSession getSession(String id, String username) {
+        return uploadSessionRepository.findById(id)
+                .filter(session -> session.getCreatedBy().equals(username))
+                .orElse(null);
+    }
+
+    // Stores the chunk as a part covering [offset, offset + bytes received); a retried chunk adds a part that
+    // repeats bytes already held, and the overlap is skipped when the parts are assembled
+    public UploadSession appendChunk(String id, long offset, InputStream body, long contentLength, String username)
+            throws IOException {
+        UploadSession session = getSession(id, username);
+        if (session == null) {
+            return null;
+        }
+        if (offset < 0 || offset > session.getReceivedBytes()) {
+            throw new UploadOffsetConflictException("Chunk must start at or before offset "
+                    + session.getReceivedBytes(), session.getReceivedBytes());
+        }
+        if (contentLength > session.getTotalSize() - offset) {
+            throw new FileTooLargeException("Chunk extends past the declared upload size");
+        }
+
+        Path staged = imageStorage.createStagingFile();
+        long position = offset;
+        IOException interrupted = null;
+        try {
+            try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                try {
+                    while ((read = body.read(buffer)) != -1) {
+                        if (position + read > session.getTotalSize()) {
+                            throw new FileTooLargeException("Chunk extends past the declared upload size");
+                        }
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                        while (chunk.hasRemaining()) {
+                            position += channel.write(chunk);
+                        }
+                    }
+                } catch (IOException e) {
+                    // Connection dropped mid-chunk: keep whatever arrived so the client resumes from there
+                    interrupted = e;
+                }
+                channel.force(false);
+            }
+            if (position > offset) {
+                imageStorage.storeUploadPart(id, partName(offset, position), staged);
+            }
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+
+        if (uploadSessionRepository.recordChunk(id, offset, position, Instant.now()) == 0) {
+            // Finalized, aborted or expired while this chunk was arriving
+            imageStorage.deleteUploadParts(id);
+            return null;
+        }
+        if (interrupted != null) {
+            throw interrupted;
+        }
+        return uploadSessionRepository.findById(id).orElse(null);
+    }
+
+    // Hands the assembled parts to the regular single-pass pipeline (sniffing, size cap, content hash)
+    public String finalizeUpload(String id, String username) throws IOException {
+        UploadSession session = getSession(id, username);
+        if (session == null) {
+            return null;
+        }
+        if (session.getReceivedBytes() != session.getTotalSize()) {
+            throw new UploadOffsetConflictException("Upload is incomplete", session.getReceivedBytes());
+        }
+
+        String filename;
+        try (InputStream in = new PartsInputStream(id, segments(id, session.getTotalSize()))) {
+            filename = fileStorageService.storeStream(in, session.getTotalSize());
+        }
+        deleteSession(session);
+        return filename;
+    }
+
+    public boolean abort(String id, String username) throws IOException {
+        UploadSession session = getSession(id, username);
+        if (session == null) {
+            return false;
+        }
+        deleteSession(session);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.upload.resumable.cleanup-interval-ms:3600000}")
+    public void expireStaleSessions() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(sessionTtlHours));
+        for (UploadSession session : uploadSessionRepository.findByUpdatedAtBefore(cutoff)) {
+            try {
+                deleteSession(session);
+            } catch (IOException e) {
+                logger.warn("Failed to remove expired upload session {}", session.getId(), e);
+            }
+        }
+    }
+
+    // The row goes first: a chunk that is still being written then fails its update and removes its own part
+    private void deleteSession(UploadSession session) throws IOException {
+        uploadSessionRepository.deleteById(session.getId());
+        imageStorage.deleteUploadParts(session.getId());
+    }
+
+    // Zero-padded so that the storage's name order is offset order
+    private static String partName(long start, long end) {
+        return String.format("%019d-%019d-%s", start, end, UUID.randomUUID());
+    }
+
+    // Which part supplies each stretch of the file, skipping bytes that an earlier part already covers
+    private List<Segment> segments(String id, long totalSize) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        long position = 0;
+        for (String partName : imageStorage.listUploadParts(id)) {
+            String[] range = partName.split("-", 3);
+            long start = Long.parseLong(range[0]);
+            long end = Math.min(Long.parseLong(range[1]), totalSize);
+            if (end <= position) {
+                continue;
+            }
+            if (start > position) {
+                break;
+            }
+            segments.add(new Segment(partName, position - start, end - position));
+            position = end;
+        }
+        if (position != totalSize) {
+            throw new UploadOffsetConflictException("Upload is missing data from offset " + position, position);
+        }
+        return segments;
+    }
+
+    private record Segment(String partName, long skip, long length) {
+    }
+
+    // Reads the segments back to back, opening one part at a time
+    private final class PartsInputStream extends InputStream {
+
+        private final String uploadId;
+        private final Iterator<Segment> segments;
+        private InputStream current;
+        private long remaining;
+
+        private PartsInputStream(String uploadId, List<Segment> segments) {
+            this.uploadId = uploadId;
+            this.segments = segments.iterator();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (true) {
+                if (current == null) {
+                    if (!segments.hasNext()) {
+                        return -1;
+                    }
+                    Segment segment = segments.next();
+                    current = imageStorage.openUploadPart(uploadId, segment.partName());
+                    current.skipNBytes(segment.skip());
+                    remaining = segment.length();
+                }
+                int read = remaining == 0 ? -1 : current.read(buffer, offset, (int) Math.min(length, remaining));
+                if (read == -1) {
+                    if (remaining > 0) {
+                        throw new IOException("Part of upload " + uploadId + " ended early");
+                    }
+                    current.close();
+                    current = null;
+                    continue;
+                }
+                remaining -= read;
+                return read;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.cataloghakim.perfume.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Concurrent calls with an equal key share one execution of the loader: the first caller runs it and the rest
+// wait for its result (or its exception). Nothing is kept once the call completes, so this is not a cache.
+// A waiter gives up after maxWaitMs and takes the fallback instead, so a hung leader cannot hold every caller.
+public class SingleFlight {
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitMs;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong waitTimeouts = new AtomicLong();
+
+    // A maxWaitMs of 0 or less lets waiters wait as long as the leader takes
+    public SingleFlight(long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public <V> V execute(Object key, Supplier<V> loader) {
+        return execute(key, loader, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V execute(Object key, Supplier<V> loader, Supplier<V> onWaitTimeout) {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return (V) await(existing);
+            } catch (TimeoutException e) {
+                waitTimeouts.incrementAndGet();
+                return onWaitTimeout.get();
+            }
+        }
+
+        executions.incrementAndGet();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            failures.incrementAndGet();
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long executionCount = executions.get();
+        long coalescedCount = coalesced.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("executions", executionCount);
+        stats.put("coalescedWaiters", coalescedCount);
+        stats.put("failures", failures.get());
+        stats.put("waitTimeouts", waitTimeouts.get());
+        stats.put("maxWaitMs", maxWaitMs);
+        stats.put("coalescedRatio", executionCount + coalescedCount == 0
+                ? 0.0
+                : (double) coalescedCount / (executionCount + coalescedCount));
+        return stats;
+    }
+
+    // Waiters see the leader's own exception rather than a CompletionException wrapper
+    private Object await(CompletableFuture<Object> call) throws TimeoutException {
+        try {
+            return maxWaitMs > 0 ? call.get(maxWaitMs, TimeUnit.MILLISECONDS) : call.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.cataloghakim.perfume.service;
+
+import java.nio.file.Path;
+
+// Immutable metadata of a stored upload; content-addressed files never change once written
+public class StoredFile {
+
+    private final String filename;
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    private final String contentType;
+
+    public StoredFile(String filename, Path path, long size, long lastModified, String contentType) {
+        this.filename = filename;
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    // Stored names never get new content, so the name itself is a strong validator
+    public String getETag() {
+        return etagFor(filename);
+    }
+
+    public static String etagFor(String filename) {
+        return "\"" + filename + "\"";
+    }
+
+    // Brand.imageUrl normally holds a bare filename, but older rows may hold /api/files/<name> or a full URL
+    public static String filenameFromImageUrl(String imageUrl) {
+        if (imageUrl == null) {
+            return null;
+        }
+        String name = imageUrl;
+        int queryIndex = name.indexOf('?');
+        if (queryIndex != -1) {
+            name = name.substring(0, queryIndex);
+        }
+        name = name.substring(name.lastIndexOf('/') + 1);
+        return name.isEmpty() ? null : name;
+    }
+}
@@ -0,0 +1,92 @@
+package com.cataloghakim.perfume.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded map split into independently locked LRU segments, so lookups of different keys rarely contend on a
+// lock. Recency is tracked per segment, which makes eviction approximately least-recently-used overall.
+public final class StripedLruCache<K, V> {
+
+    private final List<Segment<K, V>> segments;
+    private final int mask;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public StripedLruCache(int maxEntries, int concurrency) {
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(concurrency, maxEntries)));
+        int segmentCapacity = maxEntries <= 0 ? 0 : (maxEntries + segmentCount - 1) / segmentCount;
+        this.segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(new Segment<>(segmentCapacity, evictions));
+        }
+        this.mask = segmentCount - 1;
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        if (segment.capacity == 0) {
+            return;
+        }
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments.get((hash ^ (hash >>> 16)) & mask);
+    }
+
+    // Access-ordered, so the eldest entry is the least recently used one
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final AtomicLong evictions;
+
+        private Segment(int capacity, AtomicLong evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            evictions.incrementAndGet();
+            return true;
+        }
+    }
+}
@@ -3,26 +3,36 @@ package com.cataloghakim.perfume.service;
 import com.cataloghakim.perfume.dto.UserProfileDTO;
 import com.cataloghakim.perfume.dto.ChangePasswordDTO;
 import com.cataloghakim.perfume.dto.UserUpdateDTO;
+import com.cataloghakim.perfume.entity.TokenRevocation;
 import com.cataloghakim.perfume.entity.User;
+import com.cataloghakim.perfume.repository.TokenRevocationRepository;
 import com.cataloghakim.perfume.repository.UserRepository;
+import com.cataloghakim.perfume.security.CatalogUserDetails;
+import com.cataloghakim.perfume.security.TokenRevocationList;
+import com.cataloghakim.perfume.security.UserDetailsCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
     
     @Autowired
     private UserRepository userRepository;
@@ -30,8 +40,23 @@ public class UserService implements UserDetailsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    
+    @Autowired
+    private TokenRevocationRepository tokenRevocationRepository;
+    
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = userDetailsCache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long stamp = userDetailsCache.stamp();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
         
@@ -39,13 +64,32 @@ public class UserService implements UserDetailsService {
                 .map(SimpleGrantedAuthority::new)
                 .collect(Collectors.toSet());
         
-        return new org.springframework.security.core.userdetails.User(
+        UserDetails details = new CatalogUserDetails(
                 user.getUsername(),
                 user.getPassword(),
+                user.getEmail(),
                 user.isEnabled(),
-                true, true, true,
                 authorities
         );
+        userDetailsCache.put(details, stamp);
+        return details;
+    }
+    
+    // Called by the authentication provider after a successful login when the stored hash used another work factor
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newEncodedPassword) {
+        User user = getUserByUsername(userDetails.getUsername());
+        user.setPassword(newEncodedPassword);
+        userRepository.save(user);
+        evictCachedUser(user.getUsername());
+        
+        return new CatalogUserDetails(
+                user.getUsername(),
+                newEncodedPassword,
+                user.getEmail(),
+                user.isEnabled(),
+                userDetails.getAuthorities()
+        );
     }
     
     public Optional<User> findByUsername(String username) {
@@ -58,11 +102,11 @@ public class UserService implements UserDetailsService {
     
     public User createUser(String username, String password, String email, Set<String> roles) {
         if (userRepository.existsByUsername(username)) {
-            throw new RuntimeException("Username already exists: " + username);
+            throw new IllegalArgumentException("Username already exists: " + username);
         }
         
         if (userRepository.existsByEmail(email)) {
-            throw new RuntimeException("Email already exists: " + email);
+            throw new IllegalArgumentException("Email already exists: " + email);
         }
         
         User user = new User(username, passwordEncoder.encode(password), email, roles);
@@ -83,32 +127,40 @@ public class UserService implements UserDetailsService {
     
     public void changePassword(Long userId, String newPassword) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
         
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        evictCachedUser(user.getUsername());
+        revokeTokens(user.getUsername());
     }
     
     public void enableUser(Long userId) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
         
         user.setEnabled(true);
         userRepository.save(user);
+        evictCachedUser(user.getUsername());
+        String username = user.getUsername();
+        afterCommit(() -> tokenRevocationList.enable(username));
     }
     
     public void disableUser(Long userId) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
         
         user.setEnabled(false);
         userRepository.save(user);
+        evictCachedUser(user.getUsername());
+        String username = user.getUsername();
+        afterCommit(() -> tokenRevocationList.disable(username));
     }
     
     // New methods for user management
     public User getUserByUsername(String username) {
         return userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found with username: " + username));
+                .orElseThrow(() -> new IllegalArgumentException("User not found with username: " + username));
     }
     
     public User updateProfile(String currentUsername, UserProfileDTO profileDTO) {
@@ -117,15 +169,19 @@ public class UserService implements UserDetailsService {
         // Check if new username is already taken by another user
         if (!user.getUsername().equals(profileDTO.getUsername()) && 
             userRepository.existsByUsername(profileDTO.getUsername())) {
-            throw new RuntimeException("Username already exists: " + profileDTO.getUsername());
+            throw new IllegalArgumentException("Username already exists: " + profileDTO.getUsername());
         }
         
         // Check if new email is already taken by another user
         if (!user.getEmail().equals(profileDTO.getEmail()) && 
             userRepository.existsByEmail(profileDTO.getEmail())) {
-            throw new RuntimeException("Email already exists: " + profileDTO.getEmail());
+            throw new IllegalArgumentException("Email already exists: " + profileDTO.getEmail());
         }
         
+        evictCachedUser(user.getUsername());
+        if (!user.getUsername().equals(profileDTO.getUsername())) {
+            revokeTokens(user.getUsername());
+        }
         user.setUsername(profileDTO.getUsername());
         user.setEmail(profileDTO.getEmail());
         
@@ -137,12 +193,14 @@ public class UserService implements UserDetailsService {
         
         // Verify current password
         if (!passwordEncoder.matches(passwordDTO.getCurrentPassword(), user.getPassword())) {
-            throw new RuntimeException("Current password is incorrect");
+            throw new IllegalArgumentException("Current password is incorrect");
         }
         
         // Set new password
         user.setPassword(passwordEncoder.encode(passwordDTO.getNewPassword()));
         userRepository.save(user);
+        evictCachedUser(user.getUsername());
+        revokeTokens(user.getUsername());
     }
     
     public List<User> getAllUsers() {
@@ -151,11 +209,11 @@ public class UserService implements UserDetailsService {
     
     public User createUser(User user) {
         if (userRepository.existsByUsername(user.getUsername())) {
-            throw new RuntimeException("Username already exists: " + user.getUsername());
+            throw new IllegalArgumentException("Username already exists: " + user.getUsername());
         }
         
         if (userRepository.existsByEmail(user.getEmail())) {
-            throw new RuntimeException("Email already exists: " + user.getEmail());
+            throw new IllegalArgumentException("Email already exists: " + user.getEmail());
         }
         
         // Encode password before saving
@@ -165,18 +223,35 @@ public class UserService implements UserDetailsService {
     
     public User updateUser(Long userId, UserUpdateDTO userDetails) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
         
         // Check if new username is already taken by another user
         if (!user.getUsername().equals(userDetails.getUsername()) && 
             userRepository.existsByUsername(userDetails.getUsername())) {
-            throw new RuntimeException("Username already exists: " + userDetails.getUsername());
+            throw new IllegalArgumentException("Username already exists: " + userDetails.getUsername());
         }
         
         // Check if new email is already taken by another user
         if (!user.getEmail().equals(userDetails.getEmail()) && 
             userRepository.existsByEmail(userDetails.getEmail())) {
-            throw new RuntimeException("Email already exists: " + userDetails.getEmail());
+            throw new IllegalArgumentException("Email already exists: " + userDetails.getEmail());
+        }
+        
+        evictCachedUser(user.getUsername());
+        boolean passwordChanged = userDetails.getPassword() != null && !userDetails.getPassword().trim().isEmpty();
+        
+        // Stateless tokens carry username and roles, so changing either invalidates tokens already issued
+        if (passwordChanged
+                || !user.getUsername().equals(userDetails.getUsername())
+                || !user.getRoles().equals(userDetails.getRoles())) {
+            revokeTokens(user.getUsername());
+        }
+        if (user.isEnabled() != userDetails.isEnabled()) {
+            if (userDetails.isEnabled()) {
+                tokenRevocationList.enable(user.getUsername());
+            } else {
+                tokenRevocationList.disable(user.getUsername());
+            }
         }
         
         user.setUsername(userDetails.getUsername());
@@ -185,7 +260,7 @@ public class UserService implements UserDetailsService {
         user.setRoles(userDetails.getRoles());
         
         // Only update password if it's provided and not empty
-        if (userDetails.getPassword() != null && !userDetails.getPassword().trim().isEmpty()) {
+        if (passwordChanged) {
             user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
         }
         
@@ -194,8 +269,54 @@ public class UserService implements UserDetailsService {
     
     public void deleteUser(Long userId) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
         
         userRepository.delete(user);
+        evictCachedUser(user.getUsername());
+        revokeTokens(user.getUsername());
+        tokenRevocationList.enable(user.getUsername());
+    }
+    
+    public Map<String, Object> getUserDetailsCacheStats() {
+        return userDetailsCache.getStats();
+    }
+    
+    public Map<String, Object> getTokenRevocationStats() {
+        return tokenRevocationList.getStats();
+    }
+    
+    // Tokens issued at or before the cutoff are rejected, compared on the millisecond issued-at claim
+    private void revokeTokens(String username) {
+        Instant cutoff = Instant.now();
+        tokenRevocationRepository.save(new TokenRevocation(username, cutoff));
+        tokenRevocationList.revokeIssuedBefore(username, cutoff);
+    }
+    
+    // The revocation list reloads from the database, so local changes are applied once that agrees with them
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    private void evictCachedUser(String username) {
+        userDetailsCache.evict(username);
+        
+        // Evict again once the change is visible, in case a concurrent request re-read the old row
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    userDetailsCache.evict(username);
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,50 @@
+package com.cataloghakim.perfume.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Where uploaded originals live; objects are addressed by their flat filename (<sha256><ext>)
+public interface ImageStorage {
+
+    // A new empty local file to write an upload into before it is committed with store()
+    Path createStagingFile() throws IOException;
+
+    // Takes ownership of the staged file; returns false when an object with this name already existed
+    boolean store(String name, Path stagedFile) throws IOException;
+
+    // Metadata plus a readable local copy, or null when the object does not exist
+    StoredObject fetch(String name) throws IOException;
+
+    // Metadata only, without materialising the object locally
+    StoredObject stat(String name) throws IOException;
+
+    // Refreshes the object's modification time; returns false when the object does not exist
+    boolean touch(String name) throws IOException;
+
+    void delete(String name) throws IOException;
+
+    // Lazily lists every stored object; the caller must close the stream
+    Stream<StoredObject> list() throws IOException;
+
+    // Chunks of a resumable upload, readable from every node and never part of list(). Takes ownership of the
+    // staged file; part names must be unique within the upload.
+    void storeUploadPart(String uploadId, String partName, Path stagedFile) throws IOException;
+
+    // Part names of the upload in ascending order; empty when there are none
+    List<String> listUploadParts(String uploadId) throws IOException;
+
+    InputStream openUploadPart(String uploadId, String partName) throws IOException;
+
+    void deleteUploadParts(String uploadId) throws IOException;
+
+    // Two levels of two hex characters keep every directory (or key prefix) small: ab/cd/abcd...png
+    static String shardedKey(String name) {
+        String prefix = name.length() >= 4 && name.substring(0, 4).matches("[0-9a-f]{4}")
+                ? name.substring(0, 4)
+                : String.format("%04x", name.hashCode() & 0xffff);
+        return prefix.substring(0, 2) + "/" + prefix.substring(2, 4) + "/" + name;
+    }
+}
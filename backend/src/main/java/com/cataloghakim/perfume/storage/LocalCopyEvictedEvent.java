@@ -0,0 +1,5 @@
+package com.cataloghakim.perfume.storage;
+
+// Published when a storage backend drops its local copy of an object; paths handed out for it no longer resolve
+public record LocalCopyEvictedEvent(String name) {
+}
@@ -0,0 +1,206 @@
+package com.cataloghakim.perfume.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalImageStorage implements ImageStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalImageStorage.class);
+
+    private static final String STAGING_DIR = ".staging";
+    private static final String UPLOAD_PARTS_DIR = ".sessions";
+    private static final String SHARD_PATTERN = "[0-9a-f]{2}";
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    // Uploads from before sharding sit directly in the upload directory; move them into their shards
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateFlatLayout() {
+        Path root = Paths.get(uploadDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        int moved = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, path -> isObjectFile(path) && Files.isRegularFile(path))) {
+            for (Path file : files) {
+                Path target = root.resolve(ImageStorage.shardedKey(file.getFileName().toString()));
+                Files.createDirectories(target.getParent());
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                moved++;
+            }
+        } catch (IOException e) {
+            logger.error("Failed to move uploads in {} into the sharded layout", root, e);
+        }
+        if (moved > 0) {
+            logger.info("Moved {} uploads into the sharded layout", moved);
+        }
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        Path stagingDir = Paths.get(uploadDir, STAGING_DIR);
+        Files.createDirectories(stagingDir);
+        return stagingDir.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    @Override
+    public boolean store(String name, Path stagedFile) throws IOException {
+        Path target = Paths.get(uploadDir).resolve(ImageStorage.shardedKey(name));
+        if (Files.exists(target)) {
+            Files.deleteIfExists(stagedFile);
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        // Staging lives on the same filesystem, so this is a rename
+        Files.move(stagedFile, target, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    @Override
+    public StoredObject fetch(String name) throws IOException {
+        return stat(name);
+    }
+
+    @Override
+    public StoredObject stat(String name) throws IOException {
+        Path root = Paths.get(uploadDir);
+        StoredObject object = statPath(root.resolve(ImageStorage.shardedKey(name)));
+        // Not yet migrated
+        return object != null ? object : statPath(root.resolve(name));
+    }
+
+    @Override
+    public boolean touch(String name) throws IOException {
+        StoredObject object = stat(name);
+        if (object == null) {
+            return false;
+        }
+        try {
+            Files.setLastModifiedTime(object.getLocalPath(), FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Path root = Paths.get(uploadDir);
+        Files.deleteIfExists(root.resolve(ImageStorage.shardedKey(name)));
+        Files.deleteIfExists(root.resolve(name));
+    }
+
+    // Walks only the shard directories (and any unmigrated top-level files), never variants or staging
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        Path root = Paths.get(uploadDir);
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        return Files.list(root)
+                .flatMap(path -> isShardDir(path)
+                        ? listDir(path).flatMap(sub -> isShardDir(sub) ? listDir(sub) : Stream.empty())
+                        : Stream.of(path))
+                .filter(this::isObjectFile)
+                .map(this::statQuietly)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public void storeUploadPart(String uploadId, String partName, Path stagedFile) throws IOException {
+        Path dir = uploadPartsDir(uploadId);
+        Files.createDirectories(dir);
+        Files.move(stagedFile, dir.resolve(partName), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public List<String> listUploadParts(String uploadId) throws IOException {
+        Path dir = uploadPartsDir(uploadId);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> parts = Files.list(dir)) {
+            return parts.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Override
+    public InputStream openUploadPart(String uploadId, String partName) throws IOException {
+        return Files.newInputStream(uploadPartsDir(uploadId).resolve(partName));
+    }
+
+    @Override
+    public void deleteUploadParts(String uploadId) throws IOException {
+        Path dir = uploadPartsDir(uploadId);
+        for (String partName : listUploadParts(uploadId)) {
+            Files.deleteIfExists(dir.resolve(partName));
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private Path uploadPartsDir(String uploadId) {
+        return Paths.get(uploadDir, UPLOAD_PARTS_DIR, uploadId);
+    }
+
+    private boolean isShardDir(Path path) {
+        return path.getFileName().toString().matches(SHARD_PATTERN) && Files.isDirectory(path);
+    }
+
+    private boolean isObjectFile(Path path) {
+        return !path.getFileName().toString().startsWith(".") && !Files.isDirectory(path);
+    }
+
+    private Stream<Path> listDir(Path dir) {
+        try {
+            return Files.list(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private StoredObject statQuietly(Path path) {
+        try {
+            return statPath(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private StoredObject statPath(Path path) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new StoredObject(path.getFileName().toString(), attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), path.toAbsolutePath());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
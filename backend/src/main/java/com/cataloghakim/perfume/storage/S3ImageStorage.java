@@ -0,0 +1,367 @@
+package com.cataloghakim.perfume.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Shared storage for several backend nodes; each node keeps a local copy of the objects it serves.
+// Objects are content-addressed and never change, so a local copy can never be stale. The copies are bounded by
+// app.storage.s3.cache.max-bytes and the least recently fetched ones are deleted first.
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+public class S3ImageStorage implements ImageStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3ImageStorage.class);
+
+    private static final String CACHE_DIR = ".s3-cache";
+    private static final String STAGING_DIR = ".staging";
+    private static final String UPLOAD_PARTS_PREFIX = ".sessions/";
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.storage.s3.bucket}")
+    private String bucket;
+
+    @Value("${app.storage.s3.prefix:}")
+    private String prefix;
+
+    @Value("${app.storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.storage.s3.secret-key:}")
+    private String secretKey;
+
+    // MinIO and most other S3-compatible servers need path-style URLs
+    @Value("${app.storage.s3.path-style-access:true}")
+    private boolean pathStyleAccess;
+
+    @Value("${app.storage.s3.cache.max-bytes:1073741824}")
+    private long cacheMaxBytes;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private S3Client s3;
+
+    // Local copies in least recently used order, with their sizes; guarded by itself
+    private final LinkedHashMap<String, Long> localCopies = new LinkedHashMap<>(256, 0.75f, true);
+    private long localCopyBytes;
+
+    @PostConstruct
+    public void init() {
+        if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+            prefix = prefix + "/";
+        }
+
+        AwsCredentialsProvider credentials = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyleAccess).build());
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        s3 = builder.build();
+        loadLocalCopies();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        s3.close();
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        Path stagingDir = Paths.get(uploadDir, STAGING_DIR);
+        Files.createDirectories(stagingDir);
+        return stagingDir.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    @Override
+    public boolean store(String name, Path stagedFile) throws IOException {
+        try {
+            if (head(name) != null) {
+                Files.deleteIfExists(stagedFile);
+                return false;
+            }
+            s3.putObject(request -> request.bucket(bucket).key(key(name)), RequestBody.fromFile(stagedFile));
+        } catch (SdkException e) {
+            Files.deleteIfExists(stagedFile);
+            throw new IOException("Failed to store " + name + " in bucket " + bucket, e);
+        }
+
+        // The uploading node will most likely serve the file next, so keep the staged bytes as its local copy
+        Path cached = cachePath(name);
+        Files.createDirectories(cached.getParent());
+        long size = Files.size(stagedFile);
+        Files.move(stagedFile, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        addLocalCopy(name, size);
+        return true;
+    }
+
+    @Override
+    public StoredObject fetch(String name) throws IOException {
+        StoredObject object = stat(name);
+        if (object == null) {
+            return null;
+        }
+
+        Path cached = cachePath(name);
+        if (Files.exists(cached) && Files.size(cached) == object.getSize()) {
+            synchronized (localCopies) {
+                localCopies.get(name);
+            }
+        } else {
+            Files.createDirectories(cached.getParent());
+            Path download = cached.resolveSibling("." + UUID.randomUUID() + ".tmp");
+            try {
+                s3.getObject(request -> request.bucket(bucket).key(key(name)), ResponseTransformer.toFile(download));
+                Files.move(download, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                addLocalCopy(name, object.getSize());
+            } catch (NoSuchKeyException e) {
+                return null;
+            } catch (SdkException e) {
+                throw new IOException("Failed to download " + name + " from bucket " + bucket, e);
+            } finally {
+                Files.deleteIfExists(download);
+            }
+        }
+        return new StoredObject(name, object.getSize(), object.getLastModified(), cached.toAbsolutePath());
+    }
+
+    @Override
+    public StoredObject stat(String name) throws IOException {
+        try {
+            HeadObjectResponse head = head(name);
+            return head == null ? null : new StoredObject(name, head.contentLength(), head.lastModified().toEpochMilli(), null);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read metadata of " + name + " from bucket " + bucket, e);
+        }
+    }
+
+    // S3 has no utime; copying an object onto itself with replaced metadata resets Last-Modified
+    @Override
+    public boolean touch(String name) throws IOException {
+        try {
+            s3.copyObject(request -> request
+                    .sourceBucket(bucket).sourceKey(key(name))
+                    .destinationBucket(bucket).destinationKey(key(name))
+                    .metadataDirective(MetadataDirective.REPLACE));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (SdkException e) {
+            throw new IOException("Failed to touch " + name + " in bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        try {
+            s3.deleteObject(request -> request.bucket(bucket).key(key(name)));
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + name + " from bucket " + bucket, e);
+        }
+        removeLocalCopy(name);
+    }
+
+    // Pages through ListObjectsV2 as the stream is consumed; upload parts under .sessions/ are skipped
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        try {
+            return s3.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(prefix))
+                    .contents()
+                    .stream()
+                    .filter(object -> !object.key().startsWith(prefix + UPLOAD_PARTS_PREFIX))
+                    .map(object -> new StoredObject(object.key().substring(object.key().lastIndexOf('/') + 1),
+                            object.size(), object.lastModified().toEpochMilli(), null));
+        } catch (SdkException e) {
+            throw new IOException("Failed to list bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void storeUploadPart(String uploadId, String partName, Path stagedFile) throws IOException {
+        try {
+            s3.putObject(request -> request.bucket(bucket).key(uploadPartsPrefix(uploadId) + partName),
+                    RequestBody.fromFile(stagedFile));
+        } catch (SdkException e) {
+            throw new IOException("Failed to store part " + partName + " of upload " + uploadId, e);
+        } finally {
+            Files.deleteIfExists(stagedFile);
+        }
+    }
+
+    @Override
+    public List<String> listUploadParts(String uploadId) throws IOException {
+        String partsPrefix = uploadPartsPrefix(uploadId);
+        try {
+            return s3.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(partsPrefix))
+                    .contents()
+                    .stream()
+                    .map(object -> object.key().substring(partsPrefix.length()))
+                    .sorted()
+                    .toList();
+        } catch (SdkException e) {
+            throw new IOException("Failed to list parts of upload " + uploadId, e);
+        }
+    }
+
+    @Override
+    public InputStream openUploadPart(String uploadId, String partName) throws IOException {
+        try {
+            return s3.getObject(request -> request.bucket(bucket).key(uploadPartsPrefix(uploadId) + partName));
+        } catch (SdkException e) {
+            throw new IOException("Failed to read part " + partName + " of upload " + uploadId, e);
+        }
+    }
+
+    @Override
+    public void deleteUploadParts(String uploadId) throws IOException {
+        try {
+            for (String partName : listUploadParts(uploadId)) {
+                s3.deleteObject(request -> request.bucket(bucket).key(uploadPartsPrefix(uploadId) + partName));
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete parts of upload " + uploadId, e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (localCopies) {
+            stats.put("localCopies", localCopies.size());
+            stats.put("localCopyBytes", localCopyBytes);
+        }
+        stats.put("maxLocalCopyBytes", cacheMaxBytes);
+        return stats;
+    }
+
+    // Copies left by a previous run, oldest first, so the bound holds across restarts; half-written downloads
+    // (dot-files) are deleted
+    private void loadLocalCopies() {
+        Path cacheRoot = Paths.get(uploadDir, CACHE_DIR);
+        if (!Files.isDirectory(cacheRoot)) {
+            return;
+        }
+        List<StoredObject> copies = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(cacheRoot)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                if (path.getFileName().toString().startsWith(".")) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                copies.add(new StoredObject(path.getFileName().toString(), Files.size(path),
+                        Files.getLastModifiedTime(path).toMillis(), path));
+            }
+        } catch (IOException e) {
+            logger.warn("Could not scan the local S3 cache {}: {}", cacheRoot, e.getMessage());
+        }
+        copies.sort(Comparator.comparingLong(StoredObject::getLastModified));
+        for (StoredObject copy : copies) {
+            addLocalCopy(copy.getName(), copy.getSize());
+        }
+    }
+
+    private void addLocalCopy(String name, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (localCopies) {
+            Long previous = localCopies.put(name, size);
+            localCopyBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> eldest = localCopies.entrySet().iterator();
+            while (localCopyBytes > cacheMaxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> victim = eldest.next();
+                // The copy just added stays, even if it alone exceeds the bound: the caller is about to serve it
+                if (victim.getKey().equals(name)) {
+                    continue;
+                }
+                localCopyBytes -= victim.getValue();
+                eldest.remove();
+                evicted.add(victim.getKey());
+            }
+        }
+        for (String victim : evicted) {
+            try {
+                Files.deleteIfExists(cachePath(victim));
+            } catch (IOException e) {
+                logger.warn("Could not delete local copy of {}: {}", victim, e.getMessage());
+            }
+            eventPublisher.publishEvent(new LocalCopyEvictedEvent(victim));
+        }
+    }
+
+    private void removeLocalCopy(String name) throws IOException {
+        synchronized (localCopies) {
+            Long size = localCopies.remove(name);
+            if (size != null) {
+                localCopyBytes -= size;
+            }
+        }
+        Files.deleteIfExists(cachePath(name));
+    }
+
+    private HeadObjectResponse head(String name) {
+        try {
+            return s3.headObject(request -> request.bucket(bucket).key(key(name)));
+        } catch (NoSuchKeyException e) {
+            return null;
+        }
+    }
+
+    private String uploadPartsPrefix(String uploadId) {
+        return prefix + UPLOAD_PARTS_PREFIX + uploadId + "/";
+    }
+
+    private String key(String name) {
+        return prefix + ImageStorage.shardedKey(name);
+    }
+
+    private Path cachePath(String name) {
+        return Paths.get(uploadDir, CACHE_DIR).resolve(ImageStorage.shardedKey(name));
+    }
+}
@@ -0,0 +1,35 @@
+package com.cataloghakim.perfume.storage;
+
+import java.nio.file.Path;
+
+public class StoredObject {
+
+    private final String name;
+    private final long size;
+    private final long lastModified;
+    private final Path localPath;
+
+    public StoredObject(String name, long size, long lastModified, Path localPath) {
+        this.name = name;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.localPath = localPath;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // A readable file on this node, or null when the object was only listed or stat'ed
+    public Path getLocalPath() {
+        return localPath;
+    }
+}
@@ -0,0 +1,320 @@
+package com.cataloghakim.perfume.bulkhead;
+
+import com.cataloghakim.perfume.datasource.WorkloadQuotaDataSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadFilterTest {
+
+    private static final int POOL_SIZE = 10;
+    private static final long SLOW_DOWNLOAD_MS = 1500;
+
+    private HikariDataSource pool;
+    private WorkloadQuotaDataSource dataSource;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:bulkhead-filter-test");
+        pool.setMaximumPoolSize(POOL_SIZE);
+        pool.setConnectionTimeout(5000);
+        dataSource = new WorkloadQuotaDataSource(pool, WorkloadClass.defaultMaxConnections(POOL_SIZE), 200);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+        dataSource.close();
+    }
+
+    @Test
+    void defaultSharesAddUpToTheWhole() {
+        assertThat(WorkloadClass.defaultMaxConnections(10)).containsExactlyInAnyOrderEntriesOf(Map.of(
+                WorkloadClass.ADMIN, 1, WorkloadClass.AUTH, 1, WorkloadClass.PUBLIC, 4,
+                WorkloadClass.FILES, 1, WorkloadClass.OTHER, 3));
+        assertThat(WorkloadClass.defaultMaxConnections(5)).allSatisfy((workloadClass, share) ->
+                assertThat(share).isEqualTo(1));
+        assertThat(WorkloadClass.defaultMaxConcurrent(200)).containsExactlyInAnyOrderEntriesOf(Map.of(
+                WorkloadClass.ADMIN, 20, WorkloadClass.AUTH, 30, WorkloadClass.PUBLIC, 80,
+                WorkloadClass.FILES, 40, WorkloadClass.OTHER, 30));
+        for (int total = WorkloadClass.values().length; total <= 300; total++) {
+            assertThat(WorkloadClass.defaultMaxConnections(total).values().stream().mapToInt(Integer::intValue).sum())
+                    .isEqualTo(total);
+            assertThat(WorkloadClass.defaultMaxConcurrent(total).values().stream().mapToInt(Integer::intValue).sum())
+                    .isEqualTo(total);
+        }
+    }
+
+    // End to end through a Tomcat connector with 20 threads: a flood of slow file downloads fills the files share
+    // and is turned away at once, so storefront reads keep the latency they had before the flood
+    @Test
+    void saturatedClassDoesNotSlowDownAnother() throws Exception {
+        BulkheadFilter filter = filter(new MockEnvironment().withProperty("server.tomcat.threads.max", "20"));
+        Path baseDir = Files.createTempDirectory("bulkhead-isolation");
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("/api", baseDir.toString());
+        FilterDef filterDef = new FilterDef();
+        filterDef.setFilterName("bulkhead");
+        filterDef.setFilter(filter);
+        context.addFilterDef(filterDef);
+        FilterMap filterMap = new FilterMap();
+        filterMap.setFilterName("bulkhead");
+        filterMap.addURLPattern("/*");
+        context.addFilterMap(filterMap);
+        Tomcat.addServlet(context, "catalog", new CatalogServlet(dataSource));
+        context.addServletMappingDecoded("/*", "catalog");
+        tomcat.getConnector().setProperty("maxThreads", "20");
+        tomcat.getConnector().setProperty("acceptCount", "200");
+        tomcat.start();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + tomcat.getConnector().getLocalPort() + "/api";
+        try {
+            long before = slowestOf(client, base + "/public/brands", 20);
+
+            List<CompletableFuture<HttpResponse<Void>>> flood = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                flood.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + "/files/large.jpg")).build(),
+                        HttpResponse.BodyHandlers.discarding()));
+            }
+            awaitInFlight(filter, WorkloadClass.FILES, 4);
+            long during = slowestOf(client, base + "/public/brands", 20);
+
+            int served = 0;
+            int rejected = 0;
+            for (CompletableFuture<HttpResponse<Void>> response : flood) {
+                int status = response.get(10, TimeUnit.SECONDS).statusCode();
+                served += status == 200 ? 1 : 0;
+                rejected += status == 503 ? 1 : 0;
+            }
+            assertThat(served).isEqualTo(4);
+            assertThat(rejected).isEqualTo(56);
+            assertThat(during).isLessThan(Math.max(before * 3, before + 250)).isLessThan(SLOW_DOWNLOAD_MS);
+        } finally {
+            client.close();
+            tomcat.stop();
+            tomcat.destroy();
+            FileSystemUtils.deleteRecursively(baseDir);
+        }
+    }
+
+    // Admin exports holding their whole quota time out further admin requests, while storefront reads still get
+    // connections from the same pool
+    @Test
+    void adminSaturatingItsQuotaLeavesConnectionsForPublicReads() throws Exception {
+        BulkheadFilter filter = filter(new MockEnvironment());
+        int adminQuota = WorkloadClass.defaultMaxConnections(POOL_SIZE).get(WorkloadClass.ADMIN);
+        CountDownLatch holding = new CountDownLatch(adminQuota);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Void>> exports = new ArrayList<>();
+        for (int i = 0; i < adminQuota; i++) {
+            exports.add(CompletableFuture.runAsync(() -> run(filter, "/admin/export", (request, response) -> {
+                try (Connection connection = dataSource.getConnection()) {
+                    assertThat(connection.isValid(1)).isTrue();
+                    holding.countDown();
+                    release.await();
+                }
+            }), executor));
+        }
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> run(filter, "/admin/export", (request, response) -> dataSource.getConnection().close()))
+                .hasRootCauseInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("admin quota");
+
+        for (int i = 0; i < WorkloadClass.defaultMaxConnections(POOL_SIZE).get(WorkloadClass.PUBLIC); i++) {
+            run(filter, "/public/brands", (request, response) -> {
+                try (Connection connection = dataSource.getConnection()) {
+                    assertThat(connection.isValid(1)).isTrue();
+                }
+            });
+        }
+
+        release.countDown();
+        for (CompletableFuture<Void> export : exports) {
+            export.get(5, TimeUnit.SECONDS);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> adminStats = (Map<String, Object>) dataSource.getStats().get("admin");
+        assertThat(adminStats).containsEntry("inUse", 0).containsEntry("timeouts", 1L);
+    }
+
+    // The JWT filter's user lookup runs inside the chain the bulkhead wraps, so it is tagged with the request's class
+    @Test
+    void downstreamFiltersRunUnderTheRequestsWorkloadClass() throws Exception {
+        BulkheadFilter filter = filter(new MockEnvironment());
+        List<WorkloadClass> seen = new ArrayList<>();
+
+        run(filter, "/auth/login", (request, response) -> seen.add(WorkloadContext.current()));
+        run(filter, "/admin/perfumes", (request, response) -> seen.add(WorkloadContext.current()));
+
+        assertThat(seen).containsExactly(WorkloadClass.AUTH, WorkloadClass.ADMIN);
+        assertThat(WorkloadContext.current()).isEqualTo(WorkloadClass.OTHER);
+    }
+
+    @Test
+    void rejectionCarriesCorsHeaders() throws Exception {
+        BulkheadFilter filter = filter(new MockEnvironment()
+                .withProperty("app.bulkhead.admin.max-concurrent", "1")
+                .withProperty("app.bulkhead.admin.max-queue", "0"));
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> busy = CompletableFuture.runAsync(() -> run(filter, "/admin/export",
+                (request, response) -> {
+                    inside.countDown();
+                    release.await();
+                }), executor);
+        assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletRequest request = request("/admin/export");
+        request.addHeader("Origin", "http://localhost:3000");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> {
+            throw new AssertionError("should have been rejected");
+        });
+
+        release.countDown();
+        busy.get(5, TimeUnit.SECONDS);
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Access-Control-Allow-Origin")).isEqualTo("http://localhost:3000");
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("\"status\":503");
+    }
+
+    private static long slowestOf(HttpClient client, String uri, int requests) throws Exception {
+        long slowest = 0;
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(uri)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertThat(response.statusCode()).isEqualTo(200);
+            slowest = Math.max(slowest, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return slowest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void awaitInFlight(BulkheadFilter filter, WorkloadClass workloadClass, int inFlight)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!((Map<String, Object>) filter.getStats().get(workloadClass.key())).get("inFlight").equals(inFlight)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private BulkheadFilter filter(MockEnvironment environment) {
+        CorsConfiguration cors = new CorsConfiguration();
+        cors.addAllowedOrigin("http://localhost:3000");
+        cors.addAllowedMethod("*");
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", cors);
+        return new BulkheadFilter(environment, new ObjectMapper().registerModule(new JavaTimeModule()), source);
+    }
+
+    private void run(BulkheadFilter filter, String path, ThrowingChain chain) {
+        FilterChain filterChain = (request, response) -> {
+            try {
+                chain.doFilter(request, response);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        try {
+            filter.doFilter(request(path), new MockHttpServletResponse(), filterChain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api" + path);
+        request.setContextPath("/api");
+        return request;
+    }
+
+    // Storefront reads run a query; file downloads block on slow upstream I/O
+    private static final class CatalogServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+
+        private final transient DataSource dataSource;
+
+        private CatalogServlet(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            if (request.getPathInfo().startsWith("/files/")) {
+                try {
+                    Thread.sleep(SLOW_DOWNLOAD_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+                resultSet.next();
+            } catch (SQLException e) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
+            response.getWriter().write("[]");
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingChain {
+        void doFilter(ServletRequest request, ServletResponse response) throws Exception;
+    }
+}
@@ -0,0 +1,106 @@
+package com.cataloghakim.perfume.config;
+
+import com.cataloghakim.perfume.datasource.ConcurrencyLimitedDataSource;
+import com.cataloghakim.perfume.datasource.FaultInjectingDataSource;
+import com.cataloghakim.perfume.datasource.WorkloadQuotaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourceConfigTest {
+
+    @Test
+    void closingContextShutsDownWrappedPool() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.datasource.fault-injection.enabled", "true")
+                .withProperty("app.datasource.concurrency-limit.enabled", "true");
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setEnvironment(environment);
+        context.register(DataSourceConfig.class, PoolConfig.class);
+        context.refresh();
+
+        DataSource dataSource = context.getBean(DataSource.class);
+        assertThat(dataSource).isInstanceOf(ConcurrencyLimitedDataSource.class);
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+
+        context.close();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    @Test
+    void workloadQuotasFollowPoolSizeAndCloseWithContext() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.bulkhead.enabled", "true")
+                .withProperty("app.bulkhead.files.max-connections", "0");
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setEnvironment(environment);
+        context.register(DataSourceConfig.class, DefaultPoolConfig.class);
+        context.refresh();
+
+        DataSource dataSource = context.getBean(DataSource.class);
+        assertThat(dataSource).isInstanceOf(WorkloadQuotaDataSource.class);
+        Map<String, Object> stats = ((WorkloadQuotaDataSource) dataSource).getStats();
+        assertThat(stats).containsOnlyKeys("admin", "auth", "public", "other");
+        assertThat(stats.get("admin")).asInstanceOf(InstanceOfAssertFactories.MAP).containsEntry("maxConnections", 1);
+        assertThat(stats.get("auth")).asInstanceOf(InstanceOfAssertFactories.MAP).containsEntry("maxConnections", 1);
+        assertThat(stats.get("public")).asInstanceOf(InstanceOfAssertFactories.MAP).containsEntry("maxConnections", 4);
+        assertThat(stats.get("other")).asInstanceOf(InstanceOfAssertFactories.MAP).containsEntry("maxConnections", 3);
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+
+        context.close();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    @Test
+    void closingOutermostWrapperShutsDownPool() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:datasource-wrapper-test");
+        ConcurrencyLimitedDataSource limited = new ConcurrencyLimitedDataSource(
+                new FaultInjectingDataSource(pool, 0, 0), 2, 1000);
+        limited.getConnection().close();
+
+        limited.close();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    @Configuration
+    static class PoolConfig {
+
+        // Declared like Boot's auto-configured pool: no explicit destroy method, so close() is inferred
+        @Bean
+        HikariDataSource dataSource() {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setJdbcUrl("jdbc:h2:mem:datasource-config-test");
+            pool.setMaximumPoolSize(2);
+            return pool;
+        }
+    }
+
+    @Configuration
+    static class DefaultPoolConfig {
+
+        // Hikari's default size of 10, as in development
+        @Bean
+        HikariDataSource dataSource() {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setJdbcUrl("jdbc:h2:mem:datasource-quota-test");
+            return pool;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.cataloghakim.perfume.config;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SecurityConfigTest {
+
+    private static SecurityTestContext context;
+    private static MockMvc mockMvc;
+
+    @BeforeAll
+    static void setUp() {
+        context = new SecurityTestContext();
+        mockMvc = context.mockMvc();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void uploadedFilesKeepSecurityHeaders() throws Exception {
+        mockMvc.perform(get("/files/logo.svg"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andExpect(header().string("X-Frame-Options", "DENY"))
+                .andExpect(header().doesNotExist("Pragma"))
+                .andExpect(header().doesNotExist("Cache-Control"));
+    }
+
+    @Test
+    void publicReadsAnswerCorsPreflight() throws Exception {
+        mockMvc.perform(get("/public/ping").header("Origin", "http://localhost:3000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Access-Control-Allow-Origin", "http://localhost:3000"));
+    }
+
+    @Test
+    void authenticatedChainStillProtectsAdmin() throws Exception {
+        mockMvc.perform(get("/admin/ping"))
+                .andExpect(status().isForbidden())
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andExpect(header().exists("Cache-Control"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.cataloghakim.perfume.config;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Cost of an anonymous GET through Spring Security's filter chain proxy (user-031), ending in a no-op chain.
+// fullChain is the path every public read took before (the authenticated chain with a permitAll rule);
+// publicReadChain is the slim @Order(1) chain. The *WithToken variants carry a bearer token, as the admin
+// frontend sends on every request: the full chain verifies it and loads the user, the slim chain ignores it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityFilterChainBenchmark {
+
+    private static final FilterChain END_OF_CHAIN = (request, response) -> { };
+
+    private SecurityTestContext context;
+    private Filter securityFilterChain;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        context = new SecurityTestContext();
+        securityFilterChain = context.springSecurityFilterChain();
+        token = context.adminToken();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse fullChain() throws Exception {
+        return filter("/auth/ping", null);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse publicReadChain() throws Exception {
+        return filter("/public/ping", null);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse fullChainWithToken() throws Exception {
+        return filter("/auth/ping", token);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse publicReadChainWithToken() throws Exception {
+        return filter("/public/ping", token);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(getClass().getSimpleName()).build()).run();
+    }
+
+    private MockHttpServletResponse filter(String path, String bearerToken) throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader("Origin", "http://localhost:3000");
+        if (bearerToken != null) {
+            request.addHeader("Authorization", "Bearer " + bearerToken);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        securityFilterChain.doFilter(request, response, END_OF_CHAIN);
+        return response;
+    }
+}
@@ -0,0 +1,123 @@
+package com.cataloghakim.perfume.config;
+
+import com.cataloghakim.perfume.security.JwtAuthenticationFilter;
+import com.cataloghakim.perfume.security.TokenRevocationList;
+import com.cataloghakim.perfume.security.VerifiedTokenCache;
+import com.cataloghakim.perfume.service.JwtService;
+import jakarta.servlet.Filter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+
+// SecurityConfig's two filter chains in front of trivial handlers, without a database or the rest of the app
+final class SecurityTestContext implements AutoCloseable {
+
+    private static final UserDetails ADMIN = User.withUsername("admin").password("unused")
+            .authorities(List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))).build();
+
+    private final AnnotationConfigWebApplicationContext context;
+    private final MockMvc mockMvc;
+    private final JwtService jwtService = newJwtService();
+
+    SecurityTestContext() {
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(TestBeans.class);
+        // Registered as ready-made singletons so their own @Autowired fields are left alone
+        context.addBeanFactoryPostProcessor(beanFactory -> {
+            beanFactory.registerSingleton("jwtService", jwtService);
+            beanFactory.registerSingleton("tokenRevocationList", mock(TokenRevocationList.class));
+        });
+        context.refresh();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+    }
+
+    MockMvc mockMvc() {
+        return mockMvc;
+    }
+
+    String adminToken() {
+        return jwtService.generateToken(ADMIN);
+    }
+
+    Filter springSecurityFilterChain() {
+        return context.getBean("springSecurityFilterChain", Filter.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @Import({SecurityConfig.class, PingController.class})
+    static class TestBeans {
+
+        @Bean
+        JwtAuthenticationFilter jwtAuthenticationFilter() {
+            return new JwtAuthenticationFilter();
+        }
+
+        @Bean
+        UserDetailsService userDetailsService() {
+            return username -> ADMIN;
+        }
+
+        @Bean
+        UserDetailsPasswordService userDetailsPasswordService() {
+            return mock(UserDetailsPasswordService.class);
+        }
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    private static JwtService newJwtService() {
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "maxSize", 64);
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", "test-secret-key-that-is-long-enough-for-hmac-sha-256");
+        ReflectionTestUtils.setField(service, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(service, "verifiedTokenCache", cache);
+        ReflectionTestUtils.invokeMethod(service, "initSigningKey");
+        return service;
+    }
+
+    @RestController
+    static class PingController {
+
+        @GetMapping({"/public/ping", "/auth/ping", "/admin/ping"})
+        String ping() {
+            return "pong";
+        }
+
+        @GetMapping("/files/{filename}")
+        String file(@PathVariable String filename) {
+            return filename;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.cataloghakim.perfume.config;
+
+import com.cataloghakim.perfume.datasource.ConcurrencyLimitedDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Platform vs virtual request threads (user-044) under a burst of concurrent requests, through a real Tomcat
+// connector. Each request holds a pooled connection for a short query and then blocks on slow I/O (an upstream
+// call such as an S3 fetch or a remote image), which is where a bounded platform pool runs out of threads:
+//   platform - Tomcat's default executor with Boot's default of 200 threads
+//   virtual  - Tomcat on virtual threads with the ConcurrencyLimitedDataSource in front of the pool, as with
+//              VIRTUAL_THREADS=true
+// One op is a burst of CONCURRENT requests; its duration is how long the slowest of them took. Throughput reports
+// bursts per second, sample time the latency percentiles (p99 and up) of a burst.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+
+    private static final int CONCURRENT = 1000;
+    private static final int POOL_SIZE = 10;
+    private static final long UPSTREAM_MS = 300;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private Path baseDir;
+    private HikariDataSource pool;
+    private Tomcat tomcat;
+    private HttpClient client;
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        baseDir = Files.createTempDirectory("virtual-thread-benchmark");
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:load;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setConnectionTimeout(30_000);
+        pool = new HikariDataSource(config);
+        boolean virtual = threads.equals("virtual");
+        DataSource dataSource = virtual
+                ? new ConcurrencyLimitedDataSource(pool, POOL_SIZE, config.getConnectionTimeout())
+                : pool;
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", baseDir.toString());
+        Tomcat.addServlet(context, "catalog", new CatalogServlet(dataSource));
+        context.addServletMappingDecoded("/catalog", "catalog");
+        tomcat.getConnector().setProperty("maxThreads", "200");
+        tomcat.getConnector().setProperty("acceptCount", Integer.toString(CONCURRENT));
+        if (virtual) {
+            tomcat.getConnector().getProtocolHandler().setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+        }
+        tomcat.start();
+
+        uri = URI.create("http://localhost:" + tomcat.getConnector().getLocalPort() + "/catalog");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        tomcat.stop();
+        tomcat.destroy();
+        pool.close();
+        FileSystemUtils.deleteRecursively(baseDir);
+    }
+
+    @Benchmark
+    public int burst() {
+        HttpRequest request = HttpRequest.newBuilder(uri).build();
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(CONCURRENT);
+        for (int i = 0; i < CONCURRENT; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            if (response.join().statusCode() == 200) {
+                ok++;
+            }
+        }
+        if (ok != CONCURRENT) {
+            throw new IllegalStateException((CONCURRENT - ok) + " requests failed");
+        }
+        return ok;
+    }
+
+    @Tag("benchmark")
+    @Test
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(getClass().getSimpleName()).build()).run();
+    }
+
+    private static final class CatalogServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+
+        private final transient DataSource dataSource;
+
+        private CatalogServlet(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+                resultSet.next();
+            } catch (SQLException e) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
+            try {
+                Thread.sleep(UPSTREAM_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.setContentType("application/json");
+            response.getWriter().write("{\"success\":true}");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.cataloghakim.perfume.controller;
+
+import com.cataloghakim.perfume.exception.GlobalExceptionHandler;
+import com.cataloghakim.perfume.exception.PasswordHashingOverloadedException;
+import com.cataloghakim.perfume.service.JwtService;
+import com.cataloghakim.perfume.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AuthControllerTest {
+
+    private static final String CREDENTIALS = "{\"username\":\"admin\",\"password\":\"secret123\"}";
+
+    private final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        AuthController controller = new AuthController();
+        ReflectionTestUtils.setField(controller, "authenticationManager", authenticationManager);
+        ReflectionTestUtils.setField(controller, "jwtService", mock(JwtService.class));
+        ReflectionTestUtils.setField(controller, "userService", mock(UserService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void hashingOverloadReachesClientAs429() throws Exception {
+        when(authenticationManager.authenticate(any()))
+                .thenThrow(new PasswordHashingOverloadedException("Too many concurrent password operations"));
+
+        mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void badCredentialsStayA400() throws Exception {
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("bad"));
+
+        mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid username or password"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.cataloghakim.perfume.controller;
+
+import com.cataloghakim.perfume.repository.BrandRepository;
+import com.cataloghakim.perfume.repository.CategoryRepository;
+import com.cataloghakim.perfume.repository.PerfumeRepository;
+import com.cataloghakim.perfume.service.BrandService;
+import com.cataloghakim.perfume.service.CatalogReadService;
+import com.cataloghakim.perfume.service.CatalogVersionService;
+import com.cataloghakim.perfume.service.CategoryService;
+import com.cataloghakim.perfume.service.PerfumeService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The servlet side of the /public contract in contract/public-catalog; public-api runs the same cases against its
+// reactive endpoints, so both apps answer every request with the same rows, in the same order, in the same shape
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.sql.init.mode=never"
+})
+@Sql("file:../contract/public-catalog/seed.sql")
+class PublicCatalogContractTest {
+
+    private static final Path CONTRACT = Path.of("..", "contract", "public-catalog");
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private PerfumeRepository perfumeRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        CatalogVersionService catalogVersionService = new CatalogVersionService();
+
+        CategoryService categoryService = new CategoryService();
+        ReflectionTestUtils.setField(categoryService, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(categoryService, "catalogVersionService", catalogVersionService);
+
+        BrandService brandService = new BrandService();
+        ReflectionTestUtils.setField(brandService, "brandRepository", brandRepository);
+        ReflectionTestUtils.setField(brandService, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(brandService, "catalogVersionService", catalogVersionService);
+
+        PerfumeService perfumeService = new PerfumeService();
+        ReflectionTestUtils.setField(perfumeService, "perfumeRepository", perfumeRepository);
+        ReflectionTestUtils.setField(perfumeService, "brandRepository", brandRepository);
+        ReflectionTestUtils.setField(perfumeService, "catalogVersionService", catalogVersionService);
+
+        CatalogReadService catalogReadService = new CatalogReadService();
+        ReflectionTestUtils.setField(catalogReadService, "staleEnabled", false);
+        ReflectionTestUtils.setField(catalogReadService, "catalogVersionService", catalogVersionService);
+        ReflectionTestUtils.setField(catalogReadService, "categoryService", categoryService);
+        ReflectionTestUtils.setField(catalogReadService, "brandService", brandService);
+        ReflectionTestUtils.setField(catalogReadService, "perfumeService", perfumeService);
+        catalogReadService.init();
+
+        CategoryController categoryController = new CategoryController();
+        ReflectionTestUtils.setField(categoryController, "categoryService", categoryService);
+        ReflectionTestUtils.setField(categoryController, "catalogReadService", catalogReadService);
+        BrandController brandController = new BrandController();
+        ReflectionTestUtils.setField(brandController, "brandService", brandService);
+        ReflectionTestUtils.setField(brandController, "catalogReadService", catalogReadService);
+        PerfumeController perfumeController = new PerfumeController();
+        ReflectionTestUtils.setField(perfumeController, "perfumeService", perfumeService);
+        ReflectionTestUtils.setField(perfumeController, "catalogReadService", catalogReadService);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(categoryController, brandController, perfumeController).build();
+    }
+
+    static List<Arguments> cases() throws IOException {
+        List<Arguments> cases = new ArrayList<>();
+        for (JsonNode contractCase : new ObjectMapper().readTree(CONTRACT.resolve("cases.json").toFile())) {
+            cases.add(Arguments.of(contractCase.get("name").asText(), contractCase));
+        }
+        return cases;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("cases")
+    void answersLikeTheContract(String name, JsonNode contractCase) throws Exception {
+        String path = contractCase.get("path").asText();
+        MockHttpServletRequestBuilder request = contractCase.get("method").asText().equals("POST")
+                ? post(path).contentType(MediaType.APPLICATION_JSON).content(contractCase.get("body").toString())
+                : get(path);
+
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        JSONAssert.assertEquals(contractCase.get("expected").toString(), body, JSONCompareMode.STRICT);
+    }
+}
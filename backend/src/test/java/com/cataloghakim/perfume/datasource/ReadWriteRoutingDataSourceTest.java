@@ -0,0 +1,127 @@
+package com.cataloghakim.perfume.datasource;
+
+import jakarta.servlet.FilterChain;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two H2 databases stand in for the primary and the replica; each answers with its own name, so every read shows
+// where it was routed
+class ReadWriteRoutingDataSourceTest {
+
+    private static final long PRIMARY_AFTER_WRITE_MS = 300;
+
+    private DataSource primary;
+    private DataSource replica;
+    private ReadWriteRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        routingDataSource = new ReadWriteRoutingDataSource(primary, replica, 5000, true, PRIMARY_AFTER_WRITE_MS);
+        routingDataSource.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Test
+    void routesReadOnlyTransactionsToTheReplica() {
+        assertThat(readOnlyServer()).isEqualTo("replica");
+
+        String readWriteServer = readWrite.execute(status -> server());
+        assertThat(readWriteServer).isEqualTo("primary");
+    }
+
+    @Test
+    void readsFromThePrimaryRightAfterACommittedWrite() throws InterruptedException {
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO notes (body) VALUES ('saved')"));
+
+        Integer notes = readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notes", Integer.class));
+
+        assertThat(notes).isEqualTo(1);
+        assertThat(readOnlyServer()).isEqualTo("primary");
+
+        Thread.sleep(PRIMARY_AFTER_WRITE_MS + 100);
+        assertThat(readOnlyServer()).isEqualTo("replica");
+    }
+
+    @Test
+    void rolledBackWriteLeavesReadsOnTheReplica() {
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO notes (body) VALUES ('discarded')");
+            status.setRollbackOnly();
+        });
+
+        assertThat(readOnlyServer()).isEqualTo("replica");
+    }
+
+    @Test
+    void adminRequestsReadFromThePrimary() throws Exception {
+        assertThat(readOnlyServerDuring("/api/categories")).isEqualTo("primary");
+        assertThat(readOnlyServerDuring("/api/auth/me")).isEqualTo("primary");
+        assertThat(readOnlyServerDuring("/api/public/categories")).isEqualTo("replica");
+        assertThat(readOnlyServerDuring("/api/files/0a1b2c3d.png")).isEqualTo("replica");
+        assertThat(routingDataSource.getStats()).containsEntry("pinnedRoutes", 2L);
+    }
+
+    @Test
+    void unusableReplicaFallsBackToThePrimary() {
+        routingDataSource.updateReplicaLag(-1);
+        assertThat(readOnlyServer()).isEqualTo("primary");
+
+        routingDataSource.updateReplicaLag(10_000);
+        assertThat(readOnlyServer()).isEqualTo("primary");
+
+        routingDataSource.updateReplicaLag(0);
+        assertThat(readOnlyServer()).isEqualTo("replica");
+    }
+
+    private String readOnlyServerDuring(String uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setContextPath("/api");
+        AtomicReference<String> server = new AtomicReference<>();
+        FilterChain chain = (req, res) -> server.set(readOnlyServer());
+        new PrimaryReadFilter().doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(PrimaryReadContext.isPinned()).isFalse();
+        return server.get();
+    }
+
+    private String readOnlyServer() {
+        return readOnly.execute(status -> server());
+    }
+
+    private String server() {
+        return jdbcTemplate.queryForObject("SELECT name FROM server", String.class);
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE server (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO server (name) VALUES (?)", name);
+        jdbcTemplate.execute("CREATE TABLE notes (body VARCHAR(20))");
+        return dataSource;
+    }
+}
@@ -0,0 +1,99 @@
+package com.cataloghakim.perfume.ratelimit;
+
+import com.cataloghakim.perfume.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadShedderTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void queuedArrivalGivesUpAfterTheBoundedWait() {
+        LoadShedder shedder = new LoadShedder("search", 1, 5, 50, 0);
+        shedder.acquire();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(shedder::acquire).isInstanceOf(ServiceOverloadedException.class);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(40L, 2000L);
+        assertThat(shedder.getStats()).containsEntry("shedTimeout", 1L).containsEntry("waiting", 0);
+    }
+
+    @Test
+    void queuedArrivalTakesTheReleasedSlot() throws Exception {
+        LoadShedder shedder = new LoadShedder("search", 1, 5, 5000, 0);
+        shedder.acquire();
+
+        CompletableFuture<Void> waiter = CompletableFuture.runAsync(shedder::acquire, executor);
+        awaitWaiting(shedder, 1);
+        shedder.release(TimeUnit.MILLISECONDS.toNanos(10));
+
+        waiter.get(5, TimeUnit.SECONDS);
+        assertThat(shedder.getStats()).containsEntry("admitted", 2L).containsEntry("inFlight", 1);
+    }
+
+    @Test
+    void fullQueueIsShedAtOnce() throws Exception {
+        LoadShedder shedder = new LoadShedder("search", 1, 1, 5000, 0);
+        shedder.acquire();
+        CompletableFuture<Void> waiter = CompletableFuture.runAsync(shedder::acquire, executor);
+        awaitWaiting(shedder, 1);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(shedder::acquire)
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasMessageContaining("busy");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(shedder.getStats()).containsEntry("shedQueueFull", 1L);
+        shedder.release(0);
+        waiter.get(5, TimeUnit.SECONDS);
+    }
+
+    // Slow recent responses shed arrivals that would queue, but a free slot still admits
+    @Test
+    void highLatencyShedsOnlyArrivalsThatWouldQueue() {
+        LoadShedder shedder = new LoadShedder("search", 1, 5, 5000, 100);
+        shedder.acquire();
+        shedder.release(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(shedder.getAverageLatencyMs()).isEqualTo(500.0);
+
+        shedder.acquire();
+        assertThatThrownBy(shedder::acquire)
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasMessageContaining("slowly");
+        assertThat(shedder.getStats()).containsEntry("shedLatency", 1L).containsEntry("admitted", 2L);
+    }
+
+    @Test
+    void averageLatencyIsSmoothed() {
+        LoadShedder shedder = new LoadShedder("search", 1, 0, 0, 0);
+        shedder.acquire();
+        shedder.release(TimeUnit.MILLISECONDS.toNanos(100));
+        shedder.acquire();
+        shedder.release(TimeUnit.MILLISECONDS.toNanos(600));
+
+        assertThat(shedder.getAverageLatencyMs()).isEqualTo(200.0);
+    }
+
+    private static void awaitWaiting(LoadShedder shedder, int waiting) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!shedder.getStats().get("waiting").equals(waiting) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
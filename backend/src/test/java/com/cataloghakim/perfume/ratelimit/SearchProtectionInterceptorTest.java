@@ -0,0 +1,117 @@
+package com.cataloghakim.perfume.ratelimit;
+
+import com.cataloghakim.perfume.exception.RateLimitExceededException;
+import com.cataloghakim.perfume.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchProtectionInterceptorTest {
+
+    private final SearchProtectionInterceptor interceptor = new SearchProtectionInterceptor();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(interceptor, "requestsPerSecond", 1.0);
+        ReflectionTestUtils.setField(interceptor, "burst", 2);
+        ReflectionTestUtils.setField(interceptor, "maxBuckets", 100);
+        ReflectionTestUtils.setField(interceptor, "clientIpHeader", "X-Forwarded-For");
+        ReflectionTestUtils.setField(interceptor, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(interceptor, "maxQueue", 0);
+        ReflectionTestUtils.setField(interceptor, "maxQueueWaitMs", 0L);
+        ReflectionTestUtils.setField(interceptor, "latencyThresholdMs", 0L);
+        interceptor.init();
+    }
+
+    // Every term maps to the same route, so varying the term does not get a fresh bucket
+    @Test
+    void rateLimitsPerClientAcrossSearchTerms() {
+        complete(search("/api/search/rose", "203.0.113.5"));
+        complete(search("/api/search/oud", "203.0.113.5"));
+
+        assertThatThrownBy(() -> interceptor.preHandle(search("/api/search/amber", "203.0.113.5"), response, null))
+                .isInstanceOfSatisfying(RateLimitExceededException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+        complete(search("/api/search/amber", "198.51.100.7"));
+    }
+
+    // Only the entry the proxy appended counts; a client-supplied first entry is ignored
+    @Test
+    void usesTheLastForwardedForEntry() {
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = search("/api/search/rose", "203.0.113.5");
+            request.addHeader("X-Forwarded-For", "10.9.9." + i + ", 203.0.113.5");
+            complete(request);
+        }
+
+        MockHttpServletRequest spoofed = search("/api/search/rose", "203.0.113.5");
+        spoofed.addHeader("X-Forwarded-For", "10.9.9.99, 203.0.113.5");
+        assertThatThrownBy(() -> interceptor.preHandle(spoofed, response, null))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void shedsWhileTheConcurrencyLimitIsTaken() throws Exception {
+        MockHttpServletRequest running = search("/api/search/rose", "203.0.113.5");
+        assertThat(interceptor.preHandle(running, response, null)).isTrue();
+
+        assertThatThrownBy(() -> interceptor.preHandle(search("/api/search/oud", "198.51.100.7"), response, null))
+                .isInstanceOf(ServiceOverloadedException.class);
+
+        interceptor.afterCompletion(running, response, null, null);
+        assertThat(loadShedding()).containsEntry("inFlight", 0).containsEntry("shedQueueFull", 1L);
+        complete(search("/api/search/oud", "198.51.100.7"));
+    }
+
+    // A rejected request never took a slot, so its afterCompletion must not release one
+    @Test
+    void rejectedRequestDoesNotReleaseASlot() {
+        MockHttpServletRequest running = search("/api/search/rose", "203.0.113.5");
+        interceptor.preHandle(running, response, null);
+        MockHttpServletRequest rejected = search("/api/search/oud", "198.51.100.7");
+        assertThatThrownBy(() -> interceptor.preHandle(rejected, response, null))
+                .isInstanceOf(ServiceOverloadedException.class);
+
+        interceptor.afterCompletion(rejected, response, null, null);
+
+        assertThat(loadShedding()).containsEntry("inFlight", 1);
+    }
+
+    @Test
+    void preflightIsNotCounted() {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest preflight = new MockHttpServletRequest("OPTIONS", "/api/search/rose");
+            preflight.addHeader(HttpHeaders.ORIGIN, "https://catalog.example.com");
+            preflight.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "GET");
+            assertThat(interceptor.preHandle(preflight, response, null)).isTrue();
+        }
+        assertThat(loadShedding()).containsEntry("admitted", 0L);
+    }
+
+    private void complete(MockHttpServletRequest request) {
+        assertThat(interceptor.preHandle(request, response, null)).isTrue();
+        interceptor.afterCompletion(request, response, null, null);
+    }
+
+    private static MockHttpServletRequest search(String uri, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr(remoteAddr);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/search/{searchTerm}");
+        return request;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> loadShedding() {
+        return (Map<String, Object>) interceptor.getStats().get("loadShedding");
+    }
+}
@@ -0,0 +1,72 @@
+package com.cataloghakim.perfume.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void allowsTheBurstThenReportsTheWaitForTheNextToken() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 3, 100);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("GET /search", "10.0.0.1")).isZero();
+        }
+        long waitNanos = limiter.tryAcquire("GET /search", "10.0.0.1");
+
+        // One token every 500 ms
+        assertThat(waitNanos).isPositive().isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(limiter.getStats()).containsEntry("allowed", 3L).containsEntry("limited", 1L);
+    }
+
+    @Test
+    void clientsAndRoutesHaveSeparateBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100);
+
+        assertThat(limiter.tryAcquire("GET /search", "10.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("GET /search", "10.0.0.1")).isPositive();
+        assertThat(limiter.tryAcquire("GET /search", "10.0.0.2")).isZero();
+        assertThat(limiter.tryAcquire("POST /search", "10.0.0.1")).isZero();
+    }
+
+    @Test
+    void refillsOverTime() throws Exception {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(50, 1, 100);
+
+        assertThat(limiter.tryAcquire("GET /search", "10.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("GET /search", "10.0.0.1")).isPositive();
+        Thread.sleep(40);
+
+        assertThat(limiter.tryAcquire("GET /search", "10.0.0.1")).isZero();
+    }
+
+    // A full table makes newcomers share one bucket per route instead of growing it
+    @Test
+    void newcomersShareAnOverflowBucketOnceTheTableIsFull() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 2);
+        limiter.tryAcquire("GET /search", "10.0.0.1");
+        limiter.tryAcquire("GET /search", "10.0.0.2");
+
+        assertThat(limiter.tryAcquire("GET /search", "10.0.0.3")).isZero();
+        assertThat(limiter.tryAcquire("GET /search", "10.0.0.4")).isPositive();
+        assertThat(limiter.getStats()).containsEntry("overflowed", 2L).containsEntry("buckets", 3);
+    }
+
+    @Test
+    void evictsOnlyRefilledBuckets() throws Exception {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(50, 1, 100);
+        limiter.tryAcquire("GET /search", "10.0.0.1");
+        Thread.sleep(40);
+        TokenBucketRateLimiter slow = new TokenBucketRateLimiter(0.1, 1, 100);
+        slow.tryAcquire("GET /search", "10.0.0.1");
+
+        limiter.evictIdle();
+        slow.evictIdle();
+
+        assertThat(limiter.getStats()).containsEntry("buckets", 0).containsEntry("evicted", 1L);
+        assertThat(slow.getStats()).containsEntry("buckets", 1).containsEntry("evicted", 0L);
+    }
+}
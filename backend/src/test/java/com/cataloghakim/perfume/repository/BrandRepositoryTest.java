@@ -0,0 +1,51 @@
+package com.cataloghakim.perfume.repository;
+
+import com.cataloghakim.perfume.entity.Brand;
+import com.cataloghakim.perfume.entity.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.sql.init.mode=never"
+})
+class BrandRepositoryTest {
+
+    private static final String NAME = "0a1b2c3d.png";
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category("Women", "", "#ffffff"));
+    }
+
+    @Test
+    void findsEveryImageUrlFormOfFilename() {
+        for (String imageUrl : new String[] {NAME, NAME + "?v=2", "/api/files/" + NAME,
+                "https://cdn.example.com/api/files/" + NAME + "?w=640"}) {
+            brandRepository.deleteAll();
+            brandRepository.save(new Brand("Brand", "", imageUrl, category));
+
+            assertThat(brandRepository.existsByImageFilename(NAME)).as(imageUrl).isTrue();
+        }
+    }
+
+    @Test
+    void ignoresOtherFilenames() {
+        brandRepository.save(new Brand("Brand", "", "/api/files/ff" + NAME, category));
+        brandRepository.save(new Brand("Other", "", NAME + ".bak", category));
+
+        assertThat(brandRepository.existsByImageFilename(NAME)).isFalse();
+    }
+}
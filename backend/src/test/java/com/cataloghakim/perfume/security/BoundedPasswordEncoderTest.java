@@ -0,0 +1,46 @@
+package com.cataloghakim.perfume.security;
+
+import com.cataloghakim.perfume.exception.PasswordHashingOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.destroy();
+    }
+
+    @Test
+    void upgradesOnlyWeakerHashes() {
+        encoder = new BoundedPasswordEncoder(10, 1, 1);
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(10).encode("secret"))).isFalse();
+        // A node that calibrated higher must not have its hashes rewritten downwards
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(11).encode("secret"))).isFalse();
+        assertThat(encoder.upgradeEncoding("{noop}secret")).isFalse();
+    }
+
+    @Test
+    void rejectsWorkBeyondQueueCapacity() throws InterruptedException {
+        encoder = new BoundedPasswordEncoder(14, 1, 1);
+        // One hash running and one queued fill the pool
+        CompletableFuture.runAsync(() -> encoder.encode("secret"));
+        CompletableFuture.runAsync(() -> encoder.encode("secret"));
+        while ((int) encoder.getStats().get("active") + (int) encoder.getStats().get("queued") < 2) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> encoder.encode("secret")).isInstanceOf(PasswordHashingOverloadedException.class);
+        assertThat(encoder.getStats()).containsEntry("rejected", 1L);
+    }
+}
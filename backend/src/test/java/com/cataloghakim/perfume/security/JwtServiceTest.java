@@ -0,0 +1,73 @@
+package com.cataloghakim.perfume.security;
+
+import com.cataloghakim.perfume.service.JwtService;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "test-secret-key-that-is-long-enough-for-hmac-sha-256-signing";
+
+    private final UserDetails admin = User.withUsername("admin").password("unused")
+            .authorities(List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))).build();
+
+    @Test
+    void verifiesOnceAndServesRepeatsFromCache() {
+        JwtService jwtService = VerifiedTokenCacheBenchmark.newJwtService(SECRET, 60_000L, 16);
+        String token = jwtService.generateToken(admin);
+
+        Claims first = jwtService.verifyToken(token);
+        Claims second = jwtService.verifyToken(token);
+
+        assertThat(first.getSubject()).isEqualTo("admin");
+        assertThat(second).isSameAs(first);
+        assertThat(jwtService.getVerifiedTokenCacheStats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void rejectsTamperedAndExpiredTokens() {
+        JwtService jwtService = VerifiedTokenCacheBenchmark.newJwtService(SECRET, 60_000L, 16);
+        String token = jwtService.generateToken(admin);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        JwtService expiring = VerifiedTokenCacheBenchmark.newJwtService(SECRET, -1_000L, 16);
+
+        assertThat(jwtService.verifyToken(tampered)).isNull();
+        assertThat(expiring.verifyToken(expiring.generateToken(admin))).isNull();
+    }
+
+    @Test
+    void keepsOnlyMaxSizeTokens() {
+        JwtService jwtService = VerifiedTokenCacheBenchmark.newJwtService(SECRET, 60_000L, 2);
+        for (String name : List.of("a", "b", "c")) {
+            jwtService.verifyToken(jwtService.generateToken(User.withUsername(name).password("unused")
+                    .authorities(List.of()).build()));
+        }
+
+        assertThat(jwtService.getVerifiedTokenCacheStats()).containsEntry("size", 2);
+    }
+
+    @Test
+    void tokenRevokedInTheSameSecondIsRejected() {
+        JwtService jwtService = VerifiedTokenCacheBenchmark.newJwtService(SECRET, 60_000L, 16);
+        TokenRevocationList revocationList = TokenRevocationListTest.emptyRevocationList();
+        long before = System.currentTimeMillis();
+        Claims claims = jwtService.verifyToken(jwtService.generateToken(admin));
+
+        Date issuedAt = JwtService.issuedAt(claims);
+        assertThat(issuedAt.getTime()).isBetween(before, System.currentTimeMillis());
+        revocationList.revokeIssuedBefore("admin", issuedAt.toInstant());
+
+        assertThat(revocationList.isRevoked("admin", issuedAt)).isTrue();
+        assertThat(revocationList.isRevoked("admin", claims.getIssuedAt())).isTrue();
+        assertThat(revocationList.isRevoked("admin", new Date(issuedAt.getTime() + 1))).isFalse();
+    }
+}
@@ -0,0 +1,92 @@
+package com.cataloghakim.perfume.security;
+
+import com.cataloghakim.perfume.entity.TokenRevocation;
+import com.cataloghakim.perfume.repository.TokenRevocationRepository;
+import com.cataloghakim.perfume.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationListTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenRevocationRepository tokenRevocationRepository = mock(TokenRevocationRepository.class);
+    private final TokenRevocationList revocationList = new TokenRevocationList();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(revocationList, "bloomBits", 1024);
+        ReflectionTestUtils.setField(revocationList, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(revocationList, "userRepository", userRepository);
+        ReflectionTestUtils.setField(revocationList, "tokenRevocationRepository", tokenRevocationRepository);
+        when(userRepository.findDisabledUsernames()).thenReturn(List.of());
+        when(tokenRevocationRepository.findAll()).thenReturn(List.of());
+        revocationList.load();
+    }
+
+    @Test
+    void picksUpRevocationWrittenByAnotherNode() {
+        Date issuedAt = Date.from(Instant.now().minusSeconds(60));
+        assertThat(revocationList.isRevoked("alice", issuedAt)).isFalse();
+
+        when(tokenRevocationRepository.findAll())
+                .thenReturn(List.of(new TokenRevocation("alice", Instant.now())));
+        revocationList.reload();
+
+        assertThat(revocationList.isRevoked("alice", issuedAt)).isTrue();
+        assertThat(revocationList.isRevoked("alice", Date.from(Instant.now().plusSeconds(1)))).isFalse();
+    }
+
+    @Test
+    void followsDisablesAndEnablesMadeElsewhere() {
+        when(userRepository.findDisabledUsernames()).thenReturn(List.of("bob"));
+        revocationList.reload();
+        assertThat(revocationList.isRevoked("bob", new Date())).isTrue();
+
+        when(userRepository.findDisabledUsernames()).thenReturn(List.of());
+        revocationList.reload();
+        assertThat(revocationList.isRevoked("bob", new Date())).isFalse();
+    }
+
+    // The disable commits while the reload's query is running, so the query result does not include it yet
+    @Test
+    void reloadDoesNotDropADisableCommittedDuringItsQuery() {
+        when(userRepository.findDisabledUsernames()).thenAnswer(invocation -> {
+            revocationList.disable("dave");
+            return List.of();
+        });
+        revocationList.reload();
+        assertThat(revocationList.isRevoked("dave", new Date())).isTrue();
+
+        when(userRepository.findDisabledUsernames()).thenReturn(List.of("dave"));
+        revocationList.reload();
+        assertThat(revocationList.isRevoked("dave", new Date())).isTrue();
+
+        when(userRepository.findDisabledUsernames()).thenReturn(List.of());
+        revocationList.reload();
+        assertThat(revocationList.isRevoked("dave", new Date())).isFalse();
+    }
+
+    @Test
+    void dropsCutoffsOlderThanTokenLifetime() {
+        when(tokenRevocationRepository.findAll())
+                .thenReturn(List.of(new TokenRevocation("carol", Instant.now().minusSeconds(2 * 86_400))));
+        revocationList.reload();
+
+        assertThat(revocationList.getStats()).containsEntry("revokedUsers", 0);
+    }
+
+    static TokenRevocationList emptyRevocationList() {
+        TokenRevocationListTest test = new TokenRevocationListTest();
+        test.setUp();
+        return test.revocationList;
+    }
+}
@@ -0,0 +1,102 @@
+package com.cataloghakim.perfume.security;
+
+import com.cataloghakim.perfume.entity.User;
+import com.cataloghakim.perfume.repository.UserRepository;
+import com.cataloghakim.perfume.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserDetailsCacheTest {
+
+    private final UserDetailsCache cache = new UserDetailsCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 30L);
+        ReflectionTestUtils.setField(cache, "maxSize", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void servesCopiesUntilTheEntryExpires() {
+        cache.put(details("alice", true), cache.stamp());
+
+        UserDetails first = cache.get("alice");
+        assertThat(first).isNotNull().isNotSameAs(cache.get("alice"));
+
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        cache.put(details("bob", true), cache.stamp());
+        assertThat(cache.get("bob")).isNull();
+        assertThat(cache.getStats()).containsEntry("size", 1);
+    }
+
+    // A load that read the row before an update must not cache it after the update's eviction
+    @Test
+    void loadStartedBeforeAnEvictionIsNotCached() {
+        long stamp = cache.stamp();
+        cache.evict("alice");
+
+        cache.put(details("alice", true), stamp);
+
+        assertThat(cache.get("alice")).isNull();
+    }
+
+    // The update evicts before it commits; a request that re-reads the old row in between gets it cached with a
+    // current stamp, so the eviction after completion is what removes it
+    @Test
+    void evictsAgainOnceTheUpdateCompletes() {
+        UserRepository userRepository = mock(UserRepository.class);
+        User updated = user(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(updated));
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user(true)));
+        UserService userService = new UserService();
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "userDetailsCache", cache);
+        ReflectionTestUtils.setField(userService, "tokenRevocationList", mock(TokenRevocationList.class));
+
+        TransactionSynchronizationManager.initSynchronization();
+        userService.disableUser(1L);
+        assertThat(userService.loadUserByUsername("alice").isEnabled()).isTrue();
+        assertThat(cache.get("alice")).isNotNull();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertThat(cache.get("alice")).isNull();
+    }
+
+    private static User user(boolean enabled) {
+        User user = new User("alice", "hash", "alice@example.com", Set.of("ROLE_ADMIN"));
+        user.setEnabled(enabled);
+        return user;
+    }
+
+    private static UserDetails details(String username, boolean enabled) {
+        return new CatalogUserDetails(username, "hash", username + "@example.com", enabled,
+                Set.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    }
+}
@@ -0,0 +1,98 @@
+package com.cataloghakim.perfume.security;
+
+import com.cataloghakim.perfume.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per-request JWT cost of the filter before and after the verified-token cache (user-028):
+// perRequestParsing is the old path (a new key and parser per claim, three parses per request),
+// singleParse is a cache miss, cachedClaims is a repeat request with the same token.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerifiedTokenCacheBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hmac-sha-256";
+
+    private JwtService jwtService;
+    private JwtParser sharedParser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = newJwtService(SECRET, 86_400_000L, 2048);
+        sharedParser = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build();
+        token = jwtService.generateToken(User.withUsername("admin").password("unused")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))).build());
+        jwtService.verifyToken(token);
+    }
+
+    @Benchmark
+    public boolean perRequestParsing() {
+        String username = parseWithNewParser(token).getSubject();
+        boolean sameUser = username.equals(parseWithNewParser(token).getSubject());
+        return sameUser && parseWithNewParser(token).getExpiration().after(new Date());
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return sharedParser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims cachedClaims() {
+        return jwtService.verifyToken(token);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(getClass().getSimpleName()).build()).run();
+    }
+
+    static JwtService newJwtService(String secret, long expirationMs, int cacheSize) {
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "maxSize", cacheSize);
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", secret);
+        ReflectionTestUtils.setField(service, "jwtExpiration", expirationMs);
+        ReflectionTestUtils.setField(service, "verifiedTokenCache", cache);
+        ReflectionTestUtils.invokeMethod(service, "initSigningKey");
+        return service;
+    }
+
+    private Claims parseWithNewParser(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+}
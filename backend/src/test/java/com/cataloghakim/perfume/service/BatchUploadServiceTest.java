@@ -0,0 +1,127 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.storage.LocalImageStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class BatchUploadServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3, 4};
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 5, 6, 7, 8};
+
+    @TempDir
+    Path uploadDir;
+
+    private final ImageVariantService imageVariantService = mock(ImageVariantService.class);
+    private final BatchUploadService batchUploadService = new BatchUploadService();
+
+    @BeforeEach
+    void setUp() {
+        LocalImageStorage imageStorage = new LocalImageStorage();
+        ReflectionTestUtils.setField(imageStorage, "uploadDir", uploadDir.toString());
+
+        FileStorageService fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "maxUploadSize", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(fileStorageService, "metadataCacheMaxEntries", 100);
+        ReflectionTestUtils.setField(fileStorageService, "metadataCacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(fileStorageService, "hotImageCache", mock(HotImageCache.class));
+        ReflectionTestUtils.setField(fileStorageService, "imageStorage", imageStorage);
+        ReflectionTestUtils.setField(fileStorageService, "imageIndexService", mock(ImageIndexService.class));
+        fileStorageService.init();
+
+        ReflectionTestUtils.setField(batchUploadService, "concurrency", 2);
+        ReflectionTestUtils.setField(batchUploadService, "maxFiles", 4);
+        ReflectionTestUtils.setField(batchUploadService, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(batchUploadService, "imageVariantService", imageVariantService);
+        batchUploadService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchUploadService.shutdown();
+    }
+
+    // One bad entry fails on its own: the rest of the archive is stored and reported in archive order
+    @Test
+    void zipWithBadEntriesStoresTheRestAndReportsEachFailure() throws Exception {
+        byte[] zip = zip(
+                "a.png", PNG,
+                "notes.txt", "not an image".getBytes(StandardCharsets.UTF_8),
+                "__MACOSX/._a.png", PNG,
+                "huge.png", Arrays.copyOf(PNG, 2048),
+                "photos/b.jpg", JPEG);
+
+        List<Map<String, Object>> manifest = batchUploadService.storeZip(new ByteArrayInputStream(zip));
+
+        assertThat(manifest).extracting(result -> result.get("originalName"))
+                .containsExactly("a.png", "notes.txt", "huge.png", "photos/b.jpg");
+        assertThat(manifest).extracting(result -> result.get("success")).containsExactly(true, false, false, true);
+        assertThat(manifest.get(0).get("filename")).asString().endsWith(".png");
+        assertThat(manifest.get(1).get("message")).asString().contains("Only image files");
+        assertThat(manifest.get(2).get("message")).asString().contains("maximum upload size");
+        assertThat(manifest.get(3).get("url")).asString().startsWith("/api/files/").endsWith(".jpg");
+        verify(imageVariantService, times(2)).scheduleVariants(anyString());
+        assertThat(storedFiles()).hasSize(2);
+    }
+
+    @Test
+    void filesOverTheBatchLimitAreRejectedIndividually() throws Exception {
+        List<MultipartFile> parts = List.of(
+                part("1.png", Arrays.copyOf(PNG, 13)), part("2.png", Arrays.copyOf(PNG, 14)),
+                part("3.png", Arrays.copyOf(PNG, 15)), part("4.png", Arrays.copyOf(PNG, 16)),
+                part("5.png", Arrays.copyOf(PNG, 17)));
+
+        List<Map<String, Object>> manifest = batchUploadService.storeParts(parts);
+
+        assertThat(manifest).extracting(result -> result.get("success")).containsExactly(true, true, true, true, false);
+        assertThat(manifest.get(4).get("message")).asString().contains("limit of 4 files");
+        assertThat(storedFiles()).hasSize(4);
+    }
+
+    private static MultipartFile part(String name, byte[] content) {
+        return new MockMultipartFile("files", name, "image/png", content);
+    }
+
+    private static byte[] zip(Object... namesAndContents) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) namesAndContents[i]));
+                zip.write((byte[]) namesAndContents[i + 1]);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private List<Path> storedFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            return files.filter(Files::isRegularFile).filter(path -> !path.toString().endsWith(".tmp")).toList();
+        }
+    }
+}
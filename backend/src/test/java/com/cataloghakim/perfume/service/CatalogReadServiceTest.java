@@ -0,0 +1,171 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.config.DataSourceConfig;
+import com.cataloghakim.perfume.datasource.FaultInjectingDataSource;
+import com.cataloghakim.perfume.dto.BrandDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Outage drills against a real pool: FaultInjectingDataSource fails or delays every connection checkout, and the
+// catalog reads keep answering from the snapshot. Tests run outside a test transaction, so each read checks out
+// its own connection through the fault injector.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog-read-outage;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.sql.init.mode=never",
+        "app.datasource.fault-injection.enabled=true",
+        "app.catalog.stale.failure-threshold=2",
+        "app.catalog.stale.open-duration-ms=0",
+        "app.catalog.single-flight.max-wait-ms=200"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DataSourceConfig.class, CatalogReadService.class, CatalogVersionService.class, CategoryService.class,
+        BrandService.class, PerfumeService.class})
+@Sql(statements = {"DELETE FROM perfumes", "DELETE FROM brands", "DELETE FROM categories"})
+@Sql("file:../contract/public-catalog/seed.sql")
+class CatalogReadServiceTest {
+
+    @MockBean
+    private ImageIndexService imageIndexService;
+
+    @MockBean
+    private CatalogSnapshotStore catalogSnapshotStore;
+
+    @Autowired
+    private CatalogReadService catalogReadService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private FaultInjectingDataSource faults;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        faults = dataSource.unwrap(FaultInjectingDataSource.class);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        catalogReadService.maintainSnapshot();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        faults.configure(0, 0);
+        // Closes the breaker again for the next test
+        catalogReadService.maintainSnapshot();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void outageServesTheSnapshotUntilTheDatabaseRecovers() {
+        List<BrandDTO> fresh = catalogReadService.getAllBrands();
+        assertThat(staleSince()).isNull();
+
+        faults.configure(0, 1.0);
+        List<BrandDTO> duringOutage = catalogReadService.getAllBrands();
+        assertThat(duringOutage).extracting(BrandDTO::getId).containsExactlyElementsOf(ids(fresh));
+        assertThat(staleSince()).isNotNull();
+
+        catalogReadService.getAllBrands();
+        assertThat(breaker()).containsEntry("state", "OPEN");
+        long failedCheckouts = (Long) faults.getStats().get("failed");
+        assertThat(catalogReadService.getBrandsByCategory(2L)).extracting(BrandDTO::getId).containsExactly(1L, 2L);
+        assertThat(faults.getStats()).containsEntry("failed", failedCheckouts);
+
+        faults.configure(0, 0);
+        catalogReadService.maintainSnapshot();
+        assertThat(breaker()).containsEntry("state", "CLOSED");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(catalogReadService.getAllBrands()).extracting(BrandDTO::getId).containsExactlyElementsOf(ids(fresh));
+        assertThat(staleSince()).isNull();
+    }
+
+    @Test
+    void readersCoalescedOnAHungQueryFallBackToTheSnapshot() throws Exception {
+        faults.configure(1000, 0);
+        CompletableFuture<List<BrandDTO>> leader = CompletableFuture.supplyAsync(
+                catalogReadService::getAllBrands, executor);
+        awaitInFlight();
+
+        long start = System.nanoTime();
+        List<BrandDTO> brands = catalogReadService.getAllBrands();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(brands).extracting(BrandDTO::getId).containsExactly(1L, 2L, 3L);
+        assertThat(staleSince()).isNotNull();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).extracting(BrandDTO::getId).containsExactly(1L, 2L, 3L);
+        assertThat(singleFlight()).containsEntry("waitTimeouts", 1L);
+    }
+
+    // A write through another node does not bump this node's catalog version; the snapshot still catches up
+    @Test
+    void snapshotCatchesUpWithWritesFromOtherNodesOnceTooOld() {
+        String imageUrl = "/api/files/written-elsewhere.png";
+        new JdbcTemplate(dataSource).update(
+                "INSERT INTO brands (id, name, description, image_url, category_id) VALUES (10, 'Hermes', '', ?, 1)",
+                imageUrl);
+
+        catalogReadService.maintainSnapshot();
+        assertThat(catalogReadService.getSnapshotImageUrls()).doesNotContain(imageUrl);
+
+        ReflectionTestUtils.setField(catalogReadService, "lastRefreshMillis", System.currentTimeMillis() - 600_001);
+        catalogReadService.maintainSnapshot();
+        assertThat(catalogReadService.getSnapshotImageUrls()).contains(imageUrl);
+    }
+
+    private Object staleSince() {
+        return RequestContextHolder.currentRequestAttributes()
+                .getAttribute(CatalogReadService.STALE_SINCE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> breaker() {
+        Map<String, Object> serveStale = (Map<String, Object>) catalogReadService.getStats().get("serveStale");
+        return (Map<String, Object>) serveStale.get("circuitBreaker");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> singleFlight() {
+        return (Map<String, Object>) catalogReadService.getStats().get("singleFlight");
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight().get("inFlight").equals(0) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Long> ids(List<BrandDTO> brands) {
+        return brands.stream().map(BrandDTO::getId).toList();
+    }
+}
@@ -0,0 +1,141 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.repository.BrandRepository;
+import com.cataloghakim.perfume.repository.CategoryRepository;
+import com.cataloghakim.perfume.repository.PerfumeRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogSyncServiceTest {
+
+    private static final String HEADER = "number,name,brand,category";
+
+    @TempDir
+    Path feedDir;
+
+    private final PerfumeRepository perfumeRepository = mock(PerfumeRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final CatalogVersionService catalogVersionService = new CatalogVersionService();
+    private final CatalogSyncService catalogSyncService = new CatalogSyncService();
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(catalogSyncService, "perfumeRepository", perfumeRepository);
+        ReflectionTestUtils.setField(catalogSyncService, "brandRepository", mock(BrandRepository.class));
+        ReflectionTestUtils.setField(catalogSyncService, "categoryRepository", mock(CategoryRepository.class));
+        ReflectionTestUtils.setField(catalogSyncService, "catalogVersionService", catalogVersionService);
+        ReflectionTestUtils.setField(catalogSyncService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(catalogSyncService, "entityManager", mock(EntityManager.class));
+        ReflectionTestUtils.setField(catalogSyncService, "batchSize", 200);
+        ReflectionTestUtils.setField(catalogSyncService, "maxDeleteRatio", 0.5);
+    }
+
+    @Test
+    void headerOnlyFeedDeletesNothing() throws Exception {
+        storedSyncedRows(10);
+        long version = catalogVersionService.getVersion();
+
+        assertThatThrownBy(() -> catalogSyncService.syncFeed(feed(HEADER)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("no valid rows");
+
+        verify(perfumeRepository, never()).deleteAllByIdInBatch(anyList());
+        verify(transactionManager).rollback(any());
+        assertThat(catalogVersionService.getVersion()).isEqualTo(version);
+    }
+
+    @Test
+    void truncatedFeedOverDeleteRatioIsRejected() throws Exception {
+        storedSyncedRows(10);
+
+        // 3 of 10 rows left: deleting the other 7 is over the 0.5 ratio
+        assertThatThrownBy(() -> catalogSyncService.syncFeed(feed(HEADER, row(0), row(1), row(2))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("would delete 7 of 10");
+
+        verify(perfumeRepository, never()).deleteAllByIdInBatch(anyList());
+    }
+
+    @Test
+    void deletionsWithinRatioAreApplied() throws Exception {
+        storedSyncedRows(10);
+        String[] lines = new String[9];
+        lines[0] = HEADER;
+        for (int i = 0; i < 8; i++) {
+            lines[i + 1] = row(i);
+        }
+
+        catalogSyncService.syncFeed(feed(lines));
+
+        verify(perfumeRepository).deleteAllByIdInBatch(List.of(8L, 9L));
+    }
+
+    @Test
+    void handEnteredPerfumeIsReportedAsConflictAndLeftAlone() throws Exception {
+        List<Object[]> state = new ArrayList<>();
+        state.add(new Object[] {0L, "N0", hashOf(0)});
+        state.add(new Object[] {1L, "N1", null});
+        when(perfumeRepository.findSyncState()).thenReturn(state);
+
+        catalogSyncService.syncFeed(feed(HEADER, row(0), row(1)));
+
+        verify(perfumeRepository, never()).saveAll(anyList());
+        verify(perfumeRepository, never()).deleteAllByIdInBatch(anyList());
+        assertThat(catalogSyncService.getStatus())
+                .containsEntry("unchanged", 1L)
+                .containsEntry("updated", 0L)
+                .containsEntry("conflicts", 1L)
+                .containsEntry("conflictNumbers", List.of("N1"));
+    }
+
+    // Stored rows carry the hash their feed row would produce, so only deletions differ
+    private void storedSyncedRows(int count) throws NoSuchAlgorithmException {
+        List<Object[]> state = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            state.add(new Object[] {(long) i, "N" + i, hashOf(i)});
+        }
+        when(perfumeRepository.findSyncState()).thenReturn(state);
+    }
+
+    // Same hash as CatalogSyncService.FeedRow: SHA-256 of the unit-separator joined fields
+    private String hashOf(int i) throws NoSuchAlgorithmException {
+        String joined = String.join("\u001F", "N" + i, "Perfume " + i, "Brand", "Category");
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(joined.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String row(int i) {
+        return "N" + i + ",Perfume " + i + ",Brand,Category";
+    }
+
+    private Path feed(String... lines) throws IOException {
+        Path feed = Files.createTempFile(feedDir, "feed", ".csv");
+        Files.write(feed, List.of(lines));
+        return feed;
+    }
+}
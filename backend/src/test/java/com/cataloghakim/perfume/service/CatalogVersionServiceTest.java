@@ -0,0 +1,54 @@
+package com.cataloghakim.perfume.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogVersionServiceTest {
+
+    private final CatalogVersionService catalogVersionService = new CatalogVersionService();
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void bumpsImmediatelyOutsideTransaction() {
+        long before = catalogVersionService.getVersion();
+
+        catalogVersionService.bump();
+
+        assertThat(catalogVersionService.getVersion()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void bumpsOnlyAfterCommit() {
+        long before = catalogVersionService.getVersion();
+        TransactionSynchronizationManager.initSynchronization();
+
+        catalogVersionService.bump();
+        assertThat(catalogVersionService.getVersion()).isEqualTo(before);
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        assertThat(catalogVersionService.getVersion()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void rollbackLeavesVersionAlone() {
+        long before = catalogVersionService.getVersion();
+        TransactionSynchronizationManager.initSynchronization();
+
+        catalogVersionService.bump();
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(catalogVersionService.getVersion()).isEqualTo(before);
+    }
+}
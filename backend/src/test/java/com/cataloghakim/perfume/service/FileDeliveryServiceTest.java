@@ -0,0 +1,156 @@
+package com.cataloghakim.perfume.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileDeliveryServiceTest {
+
+    private static final String BODY = "0123456789";
+
+    @TempDir
+    Path uploadDir;
+
+    private final FileDeliveryService fileDeliveryService = new FileDeliveryService();
+    private StoredFile file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path path = Files.writeString(uploadDir.resolve("abcd.png"), BODY, StandardCharsets.US_ASCII);
+        file = new StoredFile("abcd.png", path, BODY.length(), Files.getLastModifiedTime(path).toMillis(), "image/png");
+
+        // A zero budget keeps the hot cache out of the way, so bodies come from the file
+        HotImageCache hotImageCache = new HotImageCache();
+        ReflectionTestUtils.setField(hotImageCache, "maxBytes", 0L);
+        ReflectionTestUtils.setField(hotImageCache, "maxEntryBytes", 0L);
+        ReflectionTestUtils.setField(fileDeliveryService, "hotImageCache", hotImageCache);
+    }
+
+    @Test
+    void servesFullBody() throws Exception {
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/files/abcd.png"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"abcd.png\"");
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+    }
+
+    @Test
+    void servesSingleRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/abcd.png");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void servesSuffixRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/abcd.png");
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/abcd.png");
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/abcd.png");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other.png\"");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+
+    @Test
+    void handsBodyToSendfileWhenSupported() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/abcd.png");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=4-");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.getPath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(4L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(10L);
+    }
+
+    // A miss never reads the file on the request thread, even when the cache has room for it
+    @Test
+    void missGoesToSendfileAndTheNextRequestIsServedFromMemory() throws Exception {
+        HotImageCache hotImageCache = new HotImageCache();
+        ReflectionTestUtils.setField(hotImageCache, "maxBytes", 1024L);
+        ReflectionTestUtils.setField(hotImageCache, "maxEntryBytes", 1024L);
+        ReflectionTestUtils.setField(hotImageCache, "loadQueueCapacity", 4);
+        hotImageCache.init();
+        ReflectionTestUtils.setField(fileDeliveryService, "hotImageCache", hotImageCache);
+        try {
+            MockHttpServletRequest miss = new MockHttpServletRequest("GET", "/files/abcd.png");
+            miss.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+            miss.addHeader(HttpHeaders.RANGE, "bytes=4-");
+            assertThat(serve(miss).getContentAsByteArray()).isEmpty();
+            assertThat(miss.getAttribute("org.apache.tomcat.sendfile.filename")).isNotNull();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (hotImageCache.getStats().get("admissions").equals(0L) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            MockHttpServletRequest hit = new MockHttpServletRequest("GET", "/files/abcd.png");
+            hit.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+            hit.addHeader(HttpHeaders.RANGE, "bytes=4-");
+            assertThat(serve(hit).getContentAsString()).isEqualTo("456789");
+            assertThat(hit.getAttribute("org.apache.tomcat.sendfile.filename")).isNull();
+        } finally {
+            hotImageCache.shutdown();
+        }
+    }
+
+    @Test
+    void answersIfNoneMatchWithoutFile() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/abcd.png");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abcd.png\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(fileDeliveryService.writeNotModifiedByETag("abcd.png", request, response)).isTrue();
+        assertThat(response.getStatus()).isEqualTo(304);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileDeliveryService.serve(file, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,212 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.storage.ImageStorage;
+import com.cataloghakim.perfume.storage.LocalImageStorage;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of /files for 1 MB images under concurrency (user-033), through a real Tomcat connector:
+//   stream   - the old path: stat, UrlResource exists()/isReadable(), copy through the servlet output buffer
+//   sendfile - cached metadata, body handed to Tomcat's sendfile (hot cache disabled)
+//   hotCache - cached metadata, body written from the off-heap hot image cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class FileServingBenchmark {
+
+    private static final int FILE_COUNT = 16;
+    private static final int FILE_SIZE = 1024 * 1024;
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    @Param({"stream", "sendfile", "hotCache"})
+    public String mode;
+
+    private Path uploadDir;
+    private Tomcat tomcat;
+    private HttpClient client;
+    private URI[] uris;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        uploadDir = Files.createTempDirectory("file-serving-benchmark");
+        String[] names = new String[FILE_COUNT];
+        byte[] body = new byte[FILE_SIZE];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            ThreadLocalRandom.current().nextBytes(body);
+            names[i] = String.format("%064x", i + 1) + ".jpg";
+            Path path = uploadDir.resolve(ImageStorage.shardedKey(names[i]));
+            Files.createDirectories(path.getParent());
+            Files.write(path, body);
+        }
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(uploadDir.resolve(".tomcat").toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", uploadDir.toString());
+        Tomcat.addServlet(context, "files", servletFor(mode));
+        context.addServletMappingDecoded("/files/*", "files");
+        tomcat.getConnector();
+        tomcat.start();
+
+        int port = tomcat.getConnector().getLocalPort();
+        uris = new URI[FILE_COUNT];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            uris[i] = URI.create("http://localhost:" + port + "/files/" + names[i]);
+        }
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        tomcat.stop();
+        tomcat.destroy();
+        FileSystemUtils.deleteRecursively(uploadDir);
+    }
+
+    @Benchmark
+    public long serveImage() throws Exception {
+        URI uri = uris[ThreadLocalRandom.current().nextInt(FILE_COUNT)];
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            long read = body.transferTo(DISCARD);
+            if (response.statusCode() != 200 || read != FILE_SIZE) {
+                throw new IllegalStateException("Unexpected response " + response.statusCode() + ", " + read + " bytes");
+            }
+            return read;
+        }
+    }
+
+    @Tag("benchmark")
+    @Test
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(getClass().getSimpleName()).build()).run();
+    }
+
+    private HttpServlet servletFor(String mode) {
+        if (mode.equals("stream")) {
+            return new LegacyFileServlet(uploadDir);
+        }
+        HotImageCache hotImageCache = new HotImageCache();
+        long hotCacheBytes = mode.equals("hotCache") ? 64L * 1024 * 1024 : 0;
+        ReflectionTestUtils.setField(hotImageCache, "maxBytes", hotCacheBytes);
+        ReflectionTestUtils.setField(hotImageCache, "maxEntryBytes", 2L * 1024 * 1024);
+        ReflectionTestUtils.setField(hotImageCache, "loadQueueCapacity", 64);
+        hotImageCache.init();
+
+        LocalImageStorage imageStorage = new LocalImageStorage();
+        ReflectionTestUtils.setField(imageStorage, "uploadDir", uploadDir.toString());
+
+        FileStorageService fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "metadataCacheMaxEntries", 10_000);
+        ReflectionTestUtils.setField(fileStorageService, "metadataCacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(fileStorageService, "imageStorage", imageStorage);
+        ReflectionTestUtils.setField(fileStorageService, "hotImageCache", hotImageCache);
+        fileStorageService.init();
+
+        FileDeliveryService fileDeliveryService = new FileDeliveryService();
+        ReflectionTestUtils.setField(fileDeliveryService, "hotImageCache", hotImageCache);
+        return new FileServlet(fileStorageService, fileDeliveryService);
+    }
+
+    // What FileUploadController.serveFile does for an original
+    private static final class FileServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileStorageService fileStorageService;
+        private final transient FileDeliveryService fileDeliveryService;
+
+        private FileServlet(FileStorageService fileStorageService, FileDeliveryService fileDeliveryService) {
+            this.fileStorageService = fileStorageService;
+            this.fileDeliveryService = fileDeliveryService;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            String filename = request.getPathInfo().substring(1);
+            if (fileDeliveryService.writeNotModifiedByETag(filename, request, response)) {
+                return;
+            }
+            StoredFile storedFile = fileStorageService.getStoredFile(filename);
+            if (storedFile == null) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            fileDeliveryService.serve(storedFile, request, response);
+        }
+    }
+
+    // The serveFile implementation from before user-033
+    private static final class LegacyFileServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path uploadDir;
+
+        private LegacyFileServlet(Path uploadDir) {
+            this.uploadDir = uploadDir;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            String filename = request.getPathInfo().substring(1);
+            Path filePath = uploadDir.resolve(ImageStorage.shardedKey(filename)).normalize();
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            Resource resource = new UrlResource(filePath.toUri());
+            if (!resource.exists() || !resource.isReadable()) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            response.setContentType(FileStorageService.resolveContentType(filename));
+            response.setContentLengthLong(attributes.size());
+            try (InputStream in = resource.getInputStream()) {
+                StreamUtils.copy(in, response.getOutputStream());
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.exception.FileTooLargeException;
+import com.cataloghakim.perfume.exception.UnsupportedImageException;
+import com.cataloghakim.perfume.storage.LocalImageStorage;
+import com.cataloghakim.perfume.storage.StoredObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class FileStorageServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3, 4};
+
+    @TempDir
+    Path uploadDir;
+
+    private final HotImageCache hotImageCache = mock(HotImageCache.class);
+    private final ImageIndexService imageIndexService = mock(ImageIndexService.class);
+    private final LocalImageStorage imageStorage = new LocalImageStorage();
+    private final FileStorageService fileStorageService = new FileStorageService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(imageStorage, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "maxUploadSize", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(fileStorageService, "metadataCacheMaxEntries", 100);
+        ReflectionTestUtils.setField(fileStorageService, "metadataCacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(fileStorageService, "hotImageCache", hotImageCache);
+        ReflectionTestUtils.setField(fileStorageService, "imageStorage", imageStorage);
+        ReflectionTestUtils.setField(fileStorageService, "imageIndexService", imageIndexService);
+        fileStorageService.init();
+    }
+
+    // The declared type says image, the bytes do not
+    @Test
+    void rejectsSpoofedContentType() throws Exception {
+        MockMultipartFile spoofed = new MockMultipartFile("file", "photo.png", "image/png",
+                "<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> fileStorageService.storeFile(spoofed)).isInstanceOf(UnsupportedImageException.class);
+        assertThat(stagedFiles()).isEmpty();
+        verify(imageIndexService, never()).record(any());
+    }
+
+    // No Content-Length: the cap is enforced while streaming, and the partial staging file is removed
+    @Test
+    void abortsOversizedStreamWithoutLeavingAStagedFile() throws Exception {
+        byte[] oversized = Arrays.copyOf(PNG, 4096);
+
+        assertThatThrownBy(() -> fileStorageService.storeStream(new ByteArrayInputStream(oversized), -1))
+                .isInstanceOf(FileTooLargeException.class);
+        assertThat(stagedFiles()).isEmpty();
+        try (Stream<StoredObject> objects = imageStorage.list()) {
+            assertThat(objects).isEmpty();
+        }
+    }
+
+    @Test
+    void identicalUploadDedupesToTheStoredObject() throws Exception {
+        String first = upload(PNG);
+        long storedAt = imageStorage.stat(first).getLastModified();
+        Files.setLastModifiedTime(imageStorage.stat(first).getLocalPath(), FileTime.fromMillis(storedAt - 60_000));
+
+        String second = upload(PNG);
+
+        assertThat(second).isEqualTo(first).matches("[0-9a-f]{64}\\.png");
+        try (Stream<StoredObject> objects = imageStorage.list()) {
+            assertThat(objects).hasSize(1);
+        }
+        assertThat(stagedFiles()).isEmpty();
+        // Refreshed so the orphan collector's grace period starts over
+        assertThat(imageStorage.stat(first).getLastModified()).isGreaterThan(storedAt - 60_000);
+    }
+
+    // Another node deleted the object between the two uploads; the dedupe hit must not leave a dangling name
+    @Test
+    void dedupeHitStoresTheUploadAgainWhenTheObjectIsGone() throws Exception {
+        String filename = upload(PNG);
+        imageStorage.delete(filename);
+
+        assertThat(upload(PNG)).isEqualTo(filename);
+        assertThat(imageStorage.stat(filename)).isNotNull();
+        assertThat(fileStorageService.getStoredFile(filename).getSize()).isEqualTo(PNG.length);
+    }
+
+    @Test
+    void deleteOnAnotherNodeIsNoticedOnceTheCachedMetadataExpires() throws Exception {
+        String filename = upload(PNG);
+        assertThat(fileStorageService.getStoredFile(filename)).isNotNull();
+        imageStorage.delete(filename);
+
+        assertThat(fileStorageService.getStoredFile(filename)).isNotNull();
+        verify(hotImageCache, never()).invalidate(filename);
+
+        ReflectionTestUtils.setField(fileStorageService, "metadataCacheTtlMs", 0L);
+        assertThat(fileStorageService.getStoredFile(filename)).isNull();
+        verify(hotImageCache).invalidate(filename);
+    }
+
+    private List<Path> stagedFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            return files.filter(path -> path.toString().endsWith(".tmp")).toList();
+        }
+    }
+
+    private String upload(byte[] content) throws Exception {
+        return fileStorageService.storeStream(new ByteArrayInputStream(content), content.length);
+    }
+}
@@ -0,0 +1,174 @@
+package com.cataloghakim.perfume.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotImageCacheTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private final HotImageCache hotImageCache = new HotImageCache();
+
+    @BeforeEach
+    void setUp() {
+        // Room for two 100-byte images
+        ReflectionTestUtils.setField(hotImageCache, "maxBytes", 200L);
+        ReflectionTestUtils.setField(hotImageCache, "maxEntryBytes", 100L);
+        ReflectionTestUtils.setField(hotImageCache, "loadQueueCapacity", 4);
+        hotImageCache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotImageCache.shutdown();
+    }
+
+    @Test
+    void servesLoadedImageFromMemory() throws Exception {
+        StoredFile file = image("aaaa.png", 100);
+
+        assertThat(hotImageCache.get(file)).isNull();
+        assertThat(hotImageCache.load(file)).isNotNull();
+        Files.delete(file.getPath());
+
+        ByteBuffer cached = hotImageCache.get(file);
+        assertThat(cached).isNotNull();
+        assertThat(cached.remaining()).isEqualTo(100);
+        assertThat(cached.isDirect()).isTrue();
+        assertThat(hotImageCache.getStats()).containsEntry("residentBytes", 100L);
+    }
+
+    @Test
+    void rejectsColdCandidateWhenFullOfHotImages() throws Exception {
+        StoredFile hot1 = image("aaaa.png", 100);
+        StoredFile hot2 = image("bbbb.png", 100);
+        StoredFile cold = image("cccc.png", 100);
+        hotImageCache.load(hot1);
+        hotImageCache.load(hot2);
+        for (int i = 0; i < 5; i++) {
+            hotImageCache.get(hot1);
+            hotImageCache.get(hot2);
+        }
+
+        hotImageCache.get(cold);
+
+        assertThat(hotImageCache.load(cold)).isNull();
+        assertThat(hotImageCache.get(hot1)).isNotNull();
+        assertThat(hotImageCache.get(hot2)).isNotNull();
+    }
+
+    @Test
+    void frequentCandidateEvictsLeastRecentlyUsedEntry() throws Exception {
+        StoredFile older = image("aaaa.png", 100);
+        StoredFile newer = image("bbbb.png", 100);
+        StoredFile candidate = image("cccc.png", 100);
+        hotImageCache.load(older);
+        Thread.sleep(5);
+        hotImageCache.load(newer);
+        Thread.sleep(5);
+        hotImageCache.get(newer);
+        for (int i = 0; i < 5; i++) {
+            hotImageCache.get(candidate);
+        }
+
+        assertThat(hotImageCache.load(candidate)).isNotNull();
+
+        assertThat(hotImageCache.get(older)).isNull();
+        assertThat(hotImageCache.get(newer)).isNotNull();
+        assertThat(hotImageCache.get(candidate)).isNotNull();
+        assertThat(hotImageCache.getStats()).containsEntry("evictions", 1L);
+    }
+
+    @Test
+    void missIsLoadedInTheBackground() throws Exception {
+        StoredFile file = image("aaaa.png", 100);
+        StoredFile tooLarge = image("bbbb.png", 101);
+
+        assertThat(hotImageCache.get(file)).isNull();
+        hotImageCache.loadLater(file);
+        hotImageCache.loadLater(tooLarge);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hotImageCache.get(file) == null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(hotImageCache.get(file)).isNotNull();
+        assertThat(hotImageCache.getStats()).containsEntry("residentBytes", 100L).containsEntry("pendingLoads", 0);
+    }
+
+    @Test
+    void invalidateDropsFileAndItsVariants() throws Exception {
+        StoredFile original = image("aaaa.png", 100);
+        StoredFile variant = image("aaaa-w320.png", 100);
+        hotImageCache.load(original);
+        hotImageCache.load(variant);
+
+        hotImageCache.invalidate("aaaa.png");
+
+        assertThat(hotImageCache.get(original)).isNull();
+        assertThat(hotImageCache.get(variant)).isNull();
+        assertThat(hotImageCache.getStats()).containsEntry("residentBytes", 0L);
+    }
+
+    @Test
+    void dropsEntryWhenFileChanged() throws Exception {
+        StoredFile file = image("aaaa.png", 100);
+        hotImageCache.load(file);
+
+        StoredFile rewritten = new StoredFile(file.getFilename(), file.getPath(), file.getSize(),
+                file.getLastModified() + 1000, file.getContentType());
+
+        assertThat(hotImageCache.get(rewritten)).isNull();
+        assertThat(hotImageCache.getStats()).containsEntry("entries", 0);
+    }
+
+    @Test
+    void concurrentHitsAllSeeTheCachedBody() throws Exception {
+        StoredFile file = image("aaaa.png", 100);
+        hotImageCache.load(file);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    int found = 0;
+                    for (int j = 0; j < 10_000; j++) {
+                        ByteBuffer cached = hotImageCache.get(file);
+                        if (cached != null && cached.remaining() == 100) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get()).isEqualTo(10_000);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(hotImageCache.getStats()).containsEntry("hits", 80_000L);
+    }
+
+    private StoredFile image(String name, int size) throws Exception {
+        Path path = Files.write(uploadDir.resolve(name), new byte[size]);
+        return new StoredFile(name, path, size, Files.getLastModifiedTime(path).toMillis(), "image/png");
+    }
+}
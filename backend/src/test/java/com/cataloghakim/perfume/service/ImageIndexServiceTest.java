@@ -0,0 +1,228 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.entity.Brand;
+import com.cataloghakim.perfume.entity.Category;
+import com.cataloghakim.perfume.entity.ImageMetadata;
+import com.cataloghakim.perfume.entity.JobLease;
+import com.cataloghakim.perfume.repository.BrandRepository;
+import com.cataloghakim.perfume.repository.CategoryRepository;
+import com.cataloghakim.perfume.repository.ImageMetadataRepository;
+import com.cataloghakim.perfume.repository.JobLeaseRepository;
+import com.cataloghakim.perfume.storage.ImageStorage;
+import com.cataloghakim.perfume.storage.StoredObject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs against H2 without the test-managed transaction, so each batch commits the way it does in production
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImageIndexServiceTest {
+
+    @SpyBean
+    private ImageMetadataRepository imageMetadataRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @TempDir
+    Path tempDir;
+
+    private final ImageStorage imageStorage = mock(ImageStorage.class);
+    private final CatalogVersionService catalogVersionService = mock(CatalogVersionService.class);
+    private final List<Boolean> decodedInTransaction = Collections.synchronizedList(new ArrayList<>());
+    private ImageIndexService imageIndexService;
+    private Path png;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        imageIndexService = newService(newJobLeaseService());
+        png = tempDir.resolve("image.png");
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        image.getGraphics().setColor(Color.RED);
+        image.getGraphics().fillRect(0, 0, 16, 16);
+        ImageIO.write(image, "png", png.toFile());
+        when(imageStorage.list()).thenAnswer(invocation -> Stream.empty());
+        when(imageStorage.fetch(anyString())).thenAnswer(invocation ->
+                new StoredObject(invocation.getArgument(0), Files.size(png), 0, png));
+    }
+
+    @AfterEach
+    void tearDown() {
+        brandRepository.deleteAll();
+        categoryRepository.deleteAll();
+        imageMetadataRepository.deleteAll();
+        jobLeaseRepository.deleteAll();
+    }
+
+    @Test
+    void backfillFillsPlaceholdersAcrossPages() throws Exception {
+        List<ImageMetadata> images = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            String filename = String.format("%064x.png", i);
+            images.add(new ImageMetadata(filename, filename.substring(0, 64), 100, null, null, "image/png",
+                    Instant.now()));
+        }
+        images.add(new ImageMetadata("logo.svg", "logo", 100, null, null, "image/svg+xml", Instant.now()));
+        imageMetadataRepository.saveAll(images);
+        Category category = categoryRepository.save(new Category("Women", "", "#ffffff"));
+        Brand brand = brandRepository.save(new Brand("Brand", "", "/api/files/" + images.get(7).getFilename(),
+                category));
+
+        imageIndexService.backfill();
+
+        assertThat(imageMetadataRepository.findAll())
+                .filteredOn(image -> !image.getContentType().equals("image/svg+xml"))
+                .hasSize(250)
+                .allSatisfy(image -> assertThat(image.getBlurHash()).isNotNull());
+        verify(imageStorage, times(250)).fetch(anyString());
+        Brand updated = brandRepository.findById(brand.getId()).orElseThrow();
+        assertThat(updated.getImageBlurHash()).isNotNull();
+        Set<Long> brandIds = new TransactionTemplate(transactionManager).execute(status -> Set.copyOf(
+                imageMetadataRepository.findById(images.get(7).getFilename()).orElseThrow().getBrandIds()));
+        assertThat(brandIds).containsExactly(brand.getId());
+        verify(catalogVersionService).bump();
+        assertThat(decodedInTransaction).hasSize(250).containsOnly(false);
+    }
+
+    @Test
+    void backfillIndexesStoredObjectsOutsideTransactions() throws Exception {
+        when(imageStorage.list()).thenAnswer(invocation -> Stream.of(
+                new StoredObject(String.format("%064x.png", 1), Files.size(png), 0, png),
+                new StoredObject(String.format("%064x.png", 2), Files.size(png), 0, png)));
+
+        imageIndexService.backfill();
+
+        assertThat(imageMetadataRepository.findAll()).hasSize(2)
+                .allSatisfy(image -> assertThat(image.getBlurHash()).isNotNull());
+        assertThat(decodedInTransaction).hasSize(2).containsOnly(false);
+    }
+
+    @Test
+    void recordDecodesImageBeforeItsTransaction() throws Exception {
+        StoredFile file = new StoredFile(String.format("%064x.png", 1), png, Files.size(png), 0, "image/png");
+
+        imageIndexService.record(file);
+
+        assertThat(imageMetadataRepository.findById(file.getFilename()).orElseThrow().getBlurHash()).isNotNull();
+        assertThat(decodedInTransaction).containsExactly(false);
+    }
+
+    @Test
+    void backfillSkipsWhileAnotherNodeHoldsTheLease() throws Exception {
+        jobLeaseRepository.save(new JobLease("image-index-backfill", "other-node",
+                Instant.now().plus(Duration.ofMinutes(5))));
+
+        imageIndexService.backfill();
+
+        verify(imageStorage, never()).list();
+    }
+
+    @Test
+    void completedBackfillIsNotRepeatedByOtherNodes() throws Exception {
+        imageIndexService.backfill();
+        newService(newJobLeaseService()).backfill();
+
+        verify(imageStorage, times(1)).list();
+    }
+
+    @Test
+    void recordToleratesConcurrentInsertOfSameFile() throws Exception {
+        StoredFile file = new StoredFile(String.format("%064x.png", 1), png, Files.size(png), 0, "image/png");
+        imageIndexService.record(file);
+        // Both requests passed the existence check before either inserted
+        doReturn(false).when(imageMetadataRepository).existsById(file.getFilename());
+
+        assertThatCode(() -> imageIndexService.record(file)).doesNotThrowAnyException();
+        assertThat(imageMetadataRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyOneNodeAcquiresLease() {
+        JobLeaseService first = newJobLeaseService();
+        JobLeaseService second = newJobLeaseService();
+
+        assertThat(first.tryAcquire("job", Duration.ofMinutes(1))).isTrue();
+        assertThat(second.tryAcquire("job", Duration.ofMinutes(1))).isFalse();
+        assertThat(first.tryAcquire("job", Duration.ofMinutes(1))).isTrue();
+
+        first.release("job");
+        assertThat(second.tryAcquire("job", Duration.ofMinutes(1))).isTrue();
+    }
+
+    private JobLeaseService newJobLeaseService() {
+        JobLeaseService jobLeaseService = new JobLeaseService();
+        ReflectionTestUtils.setField(jobLeaseService, "jobLeaseRepository", jobLeaseRepository);
+        ReflectionTestUtils.setField(jobLeaseService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(jobLeaseService, "transactionManager", transactionManager);
+        return jobLeaseService;
+    }
+
+    // Notes whether a transaction was open each time an image was decoded
+    private ImageIndexService newService(JobLeaseService jobLeaseService) {
+        ImageIndexService service = new ImageIndexService() {
+            @Override
+            ImagePlaceholder computePlaceholder(Path path) {
+                decodedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+                return super.computePlaceholder(path);
+            }
+        };
+        ReflectionTestUtils.setField(service, "imageMetadataRepository", imageMetadataRepository);
+        ReflectionTestUtils.setField(service, "brandRepository", brandRepository);
+        ReflectionTestUtils.setField(service, "imageStorage", imageStorage);
+        ReflectionTestUtils.setField(service, "catalogVersionService", catalogVersionService);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(service, "jobLeaseService", jobLeaseService);
+        ReflectionTestUtils.setField(service, "entityManager", entityManager);
+        return service;
+    }
+}
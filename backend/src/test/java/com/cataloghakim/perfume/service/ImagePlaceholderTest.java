@@ -0,0 +1,77 @@
+package com.cataloghakim.perfume.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImagePlaceholderTest {
+
+    @TempDir
+    Path dir;
+
+    // Expected hash from the reference BlurHash encoder for the 32x16 flat red sample; the reference basis uses
+    // x / width rather than pixel centres, so even a flat image has small AC components
+    @Test
+    void solidImageHasItsColorAsDominantAndDcComponent() throws Exception {
+        ImagePlaceholder placeholder = ImagePlaceholder.compute(png("red.png", 64, 32, Color.RED, Color.RED));
+
+        assertThat(placeholder.getWidth()).isEqualTo(64);
+        assertThat(placeholder.getHeight()).isEqualTo(32);
+        assertThat(placeholder.getDominantColor()).isEqualTo("#ff0000");
+        assertThat(placeholder.getBlurHash()).isEqualTo("LKTI:j,YfQ,Y|co1fQo1fQfQfQfQ");
+    }
+
+    @Test
+    void dominantColorIsTheLargestArea() throws Exception {
+        ImagePlaceholder placeholder = ImagePlaceholder.compute(png("split.png", 40, 40, Color.BLUE, Color.WHITE));
+
+        assertThat(placeholder.getDominantColor()).isEqualTo("#0000ff");
+        // 4x3 components: size flag, maximum, 4-character DC and eleven 2-character AC values
+        assertThat(placeholder.getBlurHash()).hasSize(28).startsWith("L");
+    }
+
+    // Only a few rows are decoded, however large the upload is
+    @Test
+    void largeImageKeepsItsFullDimensions() throws Exception {
+        ImagePlaceholder placeholder = ImagePlaceholder.compute(png("large.png", 4000, 1000, Color.GREEN, Color.GREEN));
+
+        assertThat(placeholder.getWidth()).isEqualTo(4000);
+        assertThat(placeholder.getHeight()).isEqualTo(1000);
+        assertThat(placeholder.getDominantColor()).isEqualTo("#00ff00");
+    }
+
+    @Test
+    void undecodableFileHasNoPlaceholder() throws Exception {
+        Path svg = Files.writeString(dir.resolve("logo.svg"), "<svg xmlns=\"http://www.w3.org/2000/svg\"/>",
+                StandardCharsets.UTF_8);
+
+        assertThat(ImagePlaceholder.compute(svg)).isNull();
+        assertThat(ImagePlaceholder.compute(dir.resolve("missing.png"))).isNull();
+    }
+
+    // Left three quarters in the first color, the rest in the second
+    private Path png(String name, int width, int height, Color main, Color rest) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(main);
+            graphics.fillRect(0, 0, width * 3 / 4, height);
+            graphics.setColor(rest);
+            graphics.fillRect(width * 3 / 4, 0, width - width * 3 / 4, height);
+        } finally {
+            graphics.dispose();
+        }
+        Path path = dir.resolve(name);
+        ImageIO.write(image, "png", path.toFile());
+        return path;
+    }
+}
@@ -0,0 +1,111 @@
+package com.cataloghakim.perfume.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageVariantServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private final FileStorageService fileStorageService = new FileStorageService();
+    private final ImageVariantService imageVariantService = new ImageVariantService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(fileStorageService, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(imageVariantService, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(imageVariantService, "variantWidths", new int[] {160, 320});
+        ReflectionTestUtils.setField(imageVariantService, "variantThreads", 1);
+        ReflectionTestUtils.setField(imageVariantService, "variantQueueCapacity", 10);
+        ReflectionTestUtils.setField(imageVariantService, "jpegQuality", 0.82f);
+        ReflectionTestUtils.setField(imageVariantService, "variantCacheMaxEntries", 2);
+        imageVariantService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageVariantService.shutdown();
+    }
+
+    @Test
+    void missingVariantIsQueuedAndTheOriginalServedUntilReady() throws Exception {
+        StoredFile original = image("aaaa.png", 800);
+
+        ImageVariantService.ResolvedVariant first = imageVariantService.resolveVariant(original, 300, null);
+        assertThat(first.file()).isSameAs(original);
+        assertThat(first.pending()).isTrue();
+
+        ImageVariantService.ResolvedVariant ready = awaitVariant(original, 300);
+        assertThat(ready.pending()).isFalse();
+        assertThat(ready.file().getFilename()).isEqualTo("aaaa-w320.png");
+        assertThat(ImageIO.read(ready.file().getPath().toFile()).getWidth()).isEqualTo(320);
+        // The variant is visible before its task has finished its bookkeeping
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!stats().get("queuedOnDemand").equals(0) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(stats()).containsEntry("generatedOnDemand", 1L).containsEntry("queuedOnDemand", 0);
+    }
+
+    @Test
+    void smallerOriginalIsServedAsIsAndNotPending() throws Exception {
+        StoredFile original = image("aaaa.png", 100);
+
+        ImageVariantService.ResolvedVariant variant = imageVariantService.resolveVariant(original, 160, null);
+
+        assertThat(variant.file()).isSameAs(original);
+        assertThat(variant.pending()).isFalse();
+    }
+
+    @Test
+    void cachesStayBoundedAndEvictLeastRecentlyUsed() throws Exception {
+        for (String name : new String[] {"aaaa.png", "bbbb.png", "cccc.png"}) {
+            StoredFile original = image(name, 400);
+            imageVariantService.resolveVariant(original, 160, null);
+            awaitVariant(original, 160);
+        }
+
+        assertThat((Integer) stats().get("cachedVariants")).isLessThanOrEqualTo(2);
+        assertThat((Long) stats().get("cacheEvictions")).isPositive();
+        // An evicted entry is found on disk again rather than regenerated
+        ImageVariantService.ResolvedVariant again =
+                imageVariantService.resolveVariant(image("aaaa.png", 400), 160, null);
+        assertThat(again.pending()).isFalse();
+        assertThat(stats()).containsEntry("generated", 3L);
+    }
+
+    private ImageVariantService.ResolvedVariant awaitVariant(StoredFile original, int width) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        ImageVariantService.ResolvedVariant variant = imageVariantService.resolveVariant(original, width, null);
+        while (variant.pending() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            variant = imageVariantService.resolveVariant(original, width, null);
+        }
+        return variant;
+    }
+
+    private StoredFile image(String name, int width) throws Exception {
+        Path path = uploadDir.resolve(name);
+        if (!Files.exists(path)) {
+            ImageIO.write(new BufferedImage(width, width / 2, BufferedImage.TYPE_INT_RGB), "png", path.toFile());
+        }
+        return new StoredFile(name, path, Files.size(path), Files.getLastModifiedTime(path).toMillis(), "image/png");
+    }
+
+    private Map<String, Object> stats() {
+        return imageVariantService.getStats();
+    }
+}
@@ -0,0 +1,151 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.repository.BrandRepository;
+import com.cataloghakim.perfume.repository.ImageMetadataRepository;
+import com.cataloghakim.perfume.storage.ImageStorage;
+import com.cataloghakim.perfume.storage.StoredObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrphanImageCollectorTest {
+
+    private static final long OLD = System.currentTimeMillis() - Duration.ofDays(2).toMillis();
+
+    private final BrandRepository brandRepository = mock(BrandRepository.class);
+    private final ImageMetadataRepository imageMetadataRepository = mock(ImageMetadataRepository.class);
+    private final CatalogReadService catalogReadService = mock(CatalogReadService.class);
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final ImageStorage imageStorage = mock(ImageStorage.class);
+    private final JobLeaseService jobLeaseService = mock(JobLeaseService.class);
+    private final OrphanImageCollector collector = new OrphanImageCollector();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(collector, "enabled", true);
+        ReflectionTestUtils.setField(collector, "gracePeriodHours", 24L);
+        ReflectionTestUtils.setField(collector, "batchSize", 50);
+        ReflectionTestUtils.setField(collector, "batchPauseMs", 0L);
+        ReflectionTestUtils.setField(collector, "maxDeletesPerRun", 1000);
+        ReflectionTestUtils.setField(collector, "brandRepository", brandRepository);
+        ReflectionTestUtils.setField(collector, "imageMetadataRepository", imageMetadataRepository);
+        ReflectionTestUtils.setField(collector, "catalogReadService", catalogReadService);
+        ReflectionTestUtils.setField(collector, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(collector, "imageStorage", imageStorage);
+        ReflectionTestUtils.setField(collector, "jobLeaseService", jobLeaseService);
+        ReflectionTestUtils.setField(collector, "intervalMs", 3_600_000L);
+
+        when(brandRepository.findAllImageUrls()).thenReturn(List.of());
+        when(imageMetadataRepository.findReferencedFilenames()).thenReturn(List.of());
+        when(catalogReadService.getSnapshotImageUrls()).thenReturn(List.of());
+        when(jobLeaseService.tryAcquire(anyString(), any(Duration.class))).thenReturn(true);
+    }
+
+    @Test
+    void deletesOldUnreferencedFile() throws Exception {
+        stored(object("aaaa.png", OLD));
+
+        collector.collect();
+
+        verify(fileStorageService).deleteFile("aaaa.png");
+        assertThat(lastRun()).containsEntry("deleted", 1L);
+    }
+
+    @Test
+    void keepsFilesReferencedFromAnyColumn() throws Exception {
+        when(brandRepository.findAllImageUrls()).thenReturn(List.of("/api/files/aaaa.png"));
+        when(imageMetadataRepository.findReferencedFilenames()).thenReturn(List.of("bbbb.png"));
+        when(catalogReadService.getSnapshotImageUrls()).thenReturn(List.of("cccc.png"));
+        stored(object("aaaa.png", OLD), object("bbbb.png", OLD), object("cccc.png", OLD));
+
+        collector.collect();
+
+        verify(fileStorageService, never()).deleteFile(anyString());
+        assertThat(lastRun()).containsEntry("orphans", 0L);
+    }
+
+    @Test
+    void keepsFileReferencedAfterLiveSetWasLoaded() throws Exception {
+        stored(object("aaaa.png", OLD));
+        when(brandRepository.existsByImageFilename("aaaa.png")).thenReturn(true);
+
+        collector.collect();
+
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void keepsFileTouchedAfterListing() throws Exception {
+        StoredObject listed = object("aaaa.png", OLD);
+        when(imageStorage.list()).thenReturn(Stream.of(listed));
+        when(imageStorage.stat("aaaa.png")).thenReturn(object("aaaa.png", System.currentTimeMillis()));
+
+        collector.collect();
+
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void gracePeriodNeverDropsBelowMinimum() throws Exception {
+        ReflectionTestUtils.setField(collector, "gracePeriodHours", 0L);
+        stored(object("aaaa.png", System.currentTimeMillis() - Duration.ofMinutes(10).toMillis()));
+
+        collector.collect();
+
+        assertThat(collector.getGracePeriod()).isEqualTo(Duration.ofHours(1));
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void skipsRunWhileAnotherNodeHoldsTheLease() throws Exception {
+        when(jobLeaseService.tryAcquire(anyString(), any(Duration.class))).thenReturn(false);
+        stored(object("aaaa.png", OLD));
+
+        collector.collect();
+
+        verify(imageStorage, never()).list();
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void holdsTheLeaseAfterARunAndReleasesItOnFailure() throws Exception {
+        stored(object("aaaa.png", OLD));
+        collector.collect();
+        verify(jobLeaseService).tryAcquire("orphan-image-gc", Duration.ofMinutes(54));
+        verify(jobLeaseService, never()).release(anyString());
+
+        when(imageStorage.list()).thenThrow(new IOException("listing failed"));
+        collector.collect();
+        verify(jobLeaseService).release("orphan-image-gc");
+    }
+
+    private void stored(StoredObject... objects) throws Exception {
+        when(imageStorage.list()).thenReturn(Stream.of(objects));
+        for (StoredObject object : objects) {
+            when(imageStorage.stat(object.getName())).thenReturn(object);
+        }
+    }
+
+    private StoredObject object(String name, long lastModified) {
+        return new StoredObject(name, 100, lastModified, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> lastRun() {
+        return (Map<String, Object>) collector.getStats().get("lastRun");
+    }
+}
@@ -0,0 +1,229 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.exception.UnsupportedImageException;
+import com.cataloghakim.perfume.repository.BrandRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RemoteImageMirrorServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G'};
+
+    private final BrandRepository brandRepository = mock(BrandRepository.class);
+    private final BrandService brandService = mock(BrandService.class);
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final ImageVariantService imageVariantService = mock(ImageVariantService.class);
+
+    // Responses per path, served in order; the last one repeats
+    private final Map<String, List<Response>> responses = new HashMap<>();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+    private String base;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+        when(fileStorageService.storeStream(any(InputStream.class), anyLong())).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).readAllBytes();
+            return "0a1b.png";
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void mirrorsNothingWithoutAllowlist() {
+        RemoteImageMirrorService service = newService("", true);
+        respond("/a.png", new Response(200, PNG, null));
+        brandsReference(base + "/a.png");
+
+        service.mirrorAll();
+
+        assertThat(requests).isEmpty();
+        assertThat(service.getStats()).containsEntry("failed", 1L);
+    }
+
+    @Test
+    void refusesAllowedHostResolvingToLoopback() {
+        RemoteImageMirrorService service = newService("localhost", false);
+        respond("/a.png", new Response(200, PNG, null));
+        brandsReference(base + "/a.png");
+
+        service.mirrorAll();
+
+        assertThat(requests).isEmpty();
+    }
+
+    @Test
+    void mirrorsAndRewritesBrand() throws Exception {
+        RemoteImageMirrorService service = newService("localhost", true);
+        respond("/a.png", new Response(200, PNG, null));
+        brandsReference(base + "/a.png");
+
+        service.mirrorAll();
+
+        verify(brandService).replaceImageUrl(1L, base + "/a.png", "0a1b.png");
+        verify(imageVariantService).scheduleVariants("0a1b.png");
+    }
+
+    @Test
+    void followsRedirectsWithinAllowlist() throws Exception {
+        RemoteImageMirrorService service = newService("localhost", true);
+        respond("/old.png", new Response(301, new byte[0], "/new.png"));
+        respond("/new.png", new Response(200, PNG, null));
+        brandsReference(base + "/old.png");
+
+        service.mirrorAll();
+
+        assertThat(requests).containsExactly("/old.png", "/new.png");
+        verify(brandService).replaceImageUrl(1L, base + "/old.png", "0a1b.png");
+    }
+
+    @Test
+    void refusesRedirectToHostOutsideAllowlist() throws Exception {
+        RemoteImageMirrorService service = newService("localhost", true);
+        respond("/a.png", new Response(302, new byte[0],
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/internal"));
+        brandsReference(base + "/a.png");
+
+        service.mirrorAll();
+
+        assertThat(requests).containsExactly("/a.png");
+        verify(brandService, never()).replaceImageUrl(any(), anyString(), anyString());
+    }
+
+    @Test
+    void doesNotRetryPermanentFailures() throws Exception {
+        RemoteImageMirrorService service = newService("localhost", true);
+        respond("/missing.png", new Response(404, new byte[0], null));
+        respond("/page.html", new Response(200, "<html>".getBytes(StandardCharsets.UTF_8), null));
+        when(fileStorageService.storeStream(any(InputStream.class), eq(6L)))
+                .thenThrow(new UnsupportedImageException("Only image files are allowed"));
+        brandsReference(base + "/missing.png", base + "/page.html");
+
+        service.mirrorAll();
+
+        assertThat(requests).containsExactlyInAnyOrder("/missing.png", "/page.html");
+        assertThat(service.getStats()).containsEntry("failed", 2L);
+    }
+
+    @Test
+    void retriesTransientFailures() throws Exception {
+        RemoteImageMirrorService service = newService("localhost", true);
+        respond("/a.png", new Response(503, new byte[0], null), new Response(429, new byte[0], null),
+                new Response(200, PNG, null));
+        brandsReference(base + "/a.png");
+
+        service.mirrorAll();
+
+        assertThat(requests).containsExactly("/a.png", "/a.png", "/a.png");
+        verify(brandService).replaceImageUrl(1L, base + "/a.png", "0a1b.png");
+    }
+
+    @Test
+    void classifiesAddresses() throws Exception {
+        for (String address : new String[] {"127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+                "100.64.0.1", "0.0.0.0", "::1", "fe80::1", "fd00::1"}) {
+            assertThat(RemoteImageMirrorService.isPublicAddress(InetAddress.getByName(address))).as(address).isFalse();
+        }
+        for (String address : new String[] {"93.184.216.34", "100.128.0.1", "2606:2800:220:1::1"}) {
+            assertThat(RemoteImageMirrorService.isPublicAddress(InetAddress.getByName(address))).as(address).isTrue();
+        }
+    }
+
+    // publicDns stands in for a CDN host: the test server runs on loopback, which the real check refuses
+    private RemoteImageMirrorService newService(String allowedHosts, boolean publicDns) {
+        RemoteImageMirrorService service = publicDns ? new RemoteImageMirrorService() {
+            @Override
+            InetAddress[] resolve(String host) throws UnknownHostException {
+                return new InetAddress[] {InetAddress.getByName("93.184.216.34")};
+            }
+        } : new RemoteImageMirrorService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "concurrency", 2);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "backoffMs", 1L);
+        ReflectionTestUtils.setField(service, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(service, "allowedHostsProperty", allowedHosts);
+        ReflectionTestUtils.setField(service, "brandRepository", brandRepository);
+        ReflectionTestUtils.setField(service, "brandService", brandService);
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(service, "imageVariantService", imageVariantService);
+        service.init();
+        return service;
+    }
+
+    private void brandsReference(String... urls) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < urls.length; i++) {
+            rows.add(new Object[] {(long) i + 1, urls[i]});
+        }
+        when(brandRepository.findRemoteImageReferences()).thenReturn(rows);
+    }
+
+    private void respond(String path, Response... sequence) {
+        responses.put(path, new ArrayList<>(List.of(sequence)));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            requests.add(path);
+            List<Response> sequence = responses.get(path);
+            if (sequence == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            Response response;
+            synchronized (sequence) {
+                response = sequence.size() > 1 ? sequence.remove(0) : sequence.get(0);
+            }
+            if (response.location != null) {
+                exchange.getResponseHeaders().set("Location", response.location);
+            }
+            if (response.status == 429 || response.status == 503) {
+                exchange.getResponseHeaders().set("Retry-After", "0");
+            }
+            exchange.sendResponseHeaders(response.status, response.body.length == 0 ? -1 : response.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body);
+            }
+        }
+    }
+
+    private record Response(int status, byte[] body, String location) {
+    }
+}
@@ -0,0 +1,186 @@
+package com.cataloghakim.perfume.service;
+
+import com.cataloghakim.perfume.entity.UploadSession;
+import com.cataloghakim.perfume.exception.UploadOffsetConflictException;
+import com.cataloghakim.perfume.repository.UploadSessionRepository;
+import com.cataloghakim.perfume.storage.LocalImageStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Two service instances stand in for two nodes behind a load balancer: they share only the database and storage
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ResumableUploadServiceTest {
+
+    private static final String USER = "admin";
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @TempDir
+    Path uploadDir;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final AtomicReference<byte[]> stored = new AtomicReference<>();
+    private LocalImageStorage imageStorage;
+    private ResumableUploadService node1;
+    private ResumableUploadService node2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        imageStorage = new LocalImageStorage();
+        ReflectionTestUtils.setField(imageStorage, "uploadDir", uploadDir.toString());
+        when(fileStorageService.getMaxUploadBytes()).thenReturn(1024L * 1024);
+        when(fileStorageService.storeStream(any(InputStream.class), anyLong())).thenAnswer(invocation -> {
+            stored.set(((InputStream) invocation.getArgument(0)).readAllBytes());
+            return "0a1b.png";
+        });
+        node1 = newNode();
+        node2 = newNode();
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadSessionRepository.deleteAll();
+    }
+
+    @Test
+    void chunksSentToDifferentNodesAssembleInOrder() throws Exception {
+        byte[] file = randomBytes(300_000);
+        UploadSession session = node1.createSession(file.length, "photo.png", USER);
+
+        node2.appendChunk(session.getId(), 0, chunk(file, 0, 100_000), 100_000, USER);
+        node1.appendChunk(session.getId(), 100_000, chunk(file, 100_000, 200_000), 100_000, USER);
+        UploadSession last = node2.appendChunk(session.getId(), 200_000, chunk(file, 200_000, 300_000), 100_000, USER);
+
+        assertThat(last.getReceivedBytes()).isEqualTo(file.length);
+        assertThat(node1.finalizeUpload(session.getId(), USER)).isEqualTo("0a1b.png");
+        assertThat(stored.get()).isEqualTo(file);
+        assertThat(uploadSessionRepository.existsById(session.getId())).isFalse();
+        assertThat(imageStorage.listUploadParts(session.getId())).isEmpty();
+    }
+
+    @Test
+    void retriedChunkOverlapIsReadOnce() throws Exception {
+        byte[] file = randomBytes(30_000);
+        UploadSession session = node1.createSession(file.length, "photo.png", USER);
+
+        node1.appendChunk(session.getId(), 0, chunk(file, 0, 10_000), 10_000, USER);
+        // The client missed the response and resends from an earlier offset, with more data
+        node2.appendChunk(session.getId(), 5_000, chunk(file, 5_000, 20_000), 15_000, USER);
+        node1.appendChunk(session.getId(), 0, chunk(file, 0, 10_000), 10_000, USER);
+        node2.appendChunk(session.getId(), 20_000, chunk(file, 20_000, 30_000), 10_000, USER);
+
+        node2.finalizeUpload(session.getId(), USER);
+
+        assertThat(stored.get()).isEqualTo(file);
+    }
+
+    @Test
+    void droppedConnectionKeepsWhatArrived() throws Exception {
+        byte[] file = randomBytes(20_000);
+        UploadSession session = node1.createSession(file.length, "photo.png", USER);
+        InputStream dropsAfter8k = new InputStream() {
+            private final InputStream in = chunk(file, 0, 8_000);
+
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b == -1) {
+                    throw new IOException("Connection reset");
+                }
+                return b;
+            }
+        };
+
+        assertThatThrownBy(() -> node1.appendChunk(session.getId(), 0, dropsAfter8k, 20_000, USER))
+                .isInstanceOf(IOException.class);
+        assertThat(node2.getSession(session.getId(), USER).getReceivedBytes()).isEqualTo(8_000);
+
+        node2.appendChunk(session.getId(), 8_000, chunk(file, 8_000, 20_000), 12_000, USER);
+        node1.finalizeUpload(session.getId(), USER);
+        assertThat(stored.get()).isEqualTo(file);
+    }
+
+    @Test
+    void chunkArrivingDuringAbortLeavesNoParts() throws Exception {
+        byte[] file = randomBytes(10_000);
+        UploadSession session = node1.createSession(file.length, "photo.png", USER);
+        InputStream abortedMidway = new InputStream() {
+            private final InputStream in = chunk(file, 0, 10_000);
+            private boolean aborted;
+
+            @Override
+            public int read() throws IOException {
+                if (!aborted) {
+                    aborted = true;
+                    node2.abort(session.getId(), USER);
+                }
+                return in.read();
+            }
+        };
+
+        assertThat(node1.appendChunk(session.getId(), 0, abortedMidway, 10_000, USER)).isNull();
+        assertThat(imageStorage.listUploadParts(session.getId())).isEmpty();
+    }
+
+    @Test
+    void rejectsChunksPastReceivedBytes() {
+        UploadSession session = node1.createSession(1000, "photo.png", USER);
+
+        assertThatThrownBy(() -> node2.appendChunk(session.getId(), 10, chunk(new byte[10], 0, 10), 10, USER))
+                .isInstanceOf(UploadOffsetConflictException.class);
+        assertThatThrownBy(() -> node2.finalizeUpload(session.getId(), USER))
+                .isInstanceOf(UploadOffsetConflictException.class);
+    }
+
+    @Test
+    void rejectsNonPositiveSize() {
+        assertThatThrownBy(() -> node1.createSession(0, "photo.png", USER))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ResumableUploadService newNode() {
+        ResumableUploadService service = new ResumableUploadService();
+        ReflectionTestUtils.setField(service, "sessionTtlHours", 24L);
+        ReflectionTestUtils.setField(service, "uploadSessionRepository", uploadSessionRepository);
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(service, "imageStorage", imageStorage);
+        return service;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static InputStream chunk(byte[] file, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(file, from, to));
+    }
+}
@@ -0,0 +1,105 @@
+package com.cataloghakim.perfume.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void waiterSharesTheLeadersResult() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(5000);
+        CountDownLatch leading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            leading.countDown();
+            await(release);
+            return "leader";
+        }), executor);
+        assertThat(leading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(
+                () -> singleFlight.execute("key", () -> "own load", () -> "fallback"), executor);
+        awaitCoalesced(singleFlight);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("leader");
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo("leader");
+        assertThat(singleFlight.getStats()).containsEntry("executions", 1L).containsEntry("waitTimeouts", 0L);
+    }
+
+    @Test
+    void waiterTakesFallbackWhenLeaderHangs() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(100);
+        CountDownLatch leading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            leading.countDown();
+            await(release);
+            return "leader";
+        }), executor);
+        assertThat(leading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long start = System.nanoTime();
+        String value = singleFlight.execute("key", () -> "own load", () -> "fallback");
+
+        assertThat(value).isEqualTo("fallback");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        assertThat(singleFlight.getStats()).containsEntry("waitTimeouts", 1L);
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("leader");
+    }
+
+    @Test
+    void waiterSeesTheLeadersException() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(5000);
+        CountDownLatch leading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            leading.countDown();
+            await(release);
+            throw new IllegalStateException("database down");
+        }), executor);
+        assertThat(leading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(
+                () -> singleFlight.execute("key", () -> "own load", () -> "fallback"), executor);
+        awaitCoalesced(singleFlight);
+        release.countDown();
+
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("database down");
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private static void awaitCoalesced(SingleFlight singleFlight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!singleFlight.getStats().get("coalescedWaiters").equals(1L) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.cataloghakim.perfume.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedLruCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntryOnceFull() {
+        StripedLruCache<String, Integer> cache = new StripedLruCache<>(2, 1);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        cache.put("c", 3);
+
+        assertThat(cache.get("a")).isEqualTo(1);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo(3);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsAcceptingNewEntriesPastCapacity() {
+        StripedLruCache<String, Integer> cache = new StripedLruCache<>(100, 16);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("file-" + i, i);
+        }
+
+        assertThat(cache.get("file-999")).isEqualTo(999);
+        assertThat(cache.size()).isLessThanOrEqualTo(100 + 16);
+        assertThat(cache.getEvictions()).isEqualTo(1000 - cache.size());
+    }
+
+    @Test
+    void zeroCapacityCachesNothing() {
+        StripedLruCache<String, Integer> cache = new StripedLruCache<>(0, 16);
+        cache.put("a", 1);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void removeDropsEntry() {
+        StripedLruCache<String, Integer> cache = new StripedLruCache<>(10, 4);
+        cache.put("a", 1);
+
+        assertThat(cache.remove("a")).isEqualTo(1);
+        assertThat(cache.get("a")).isNull();
+    }
+}
@@ -0,0 +1,221 @@
+package com.cataloghakim.perfume.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory stand-in for the subset of the S3 REST API S3ImageStorage uses, with path-style addressing:
+// HEAD/GET/PUT/DELETE object, copy-in-place and ListObjectsV2 (single page)
+final class FakeS3Server implements AutoCloseable {
+
+    private final HttpServer server;
+    private final String bucket;
+    private final Map<String, StoredBlob> objects = new ConcurrentSkipListMap<>();
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    FakeS3Server(String bucket) throws IOException {
+        this.bucket = bucket;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    boolean contains(String key) {
+        return objects.containsKey(key);
+    }
+
+    int downloads() {
+        return downloads.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8);
+            String bucketPrefix = "/" + bucket;
+            if (!path.startsWith(bucketPrefix)) {
+                send(exchange, 404, error("NoSuchBucket"));
+                return;
+            }
+            String key = path.length() > bucketPrefix.length() + 1 ? path.substring(bucketPrefix.length() + 1) : "";
+            switch (exchange.getRequestMethod()) {
+                case "HEAD" -> head(exchange, key);
+                case "GET" -> {
+                    if (key.isEmpty()) {
+                        list(exchange);
+                    } else {
+                        get(exchange, key);
+                    }
+                }
+                case "PUT" -> put(exchange, key);
+                case "DELETE" -> {
+                    objects.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> send(exchange, 405, error("MethodNotAllowed"));
+            }
+        }
+    }
+
+    private void head(HttpExchange exchange, String key) throws IOException {
+        StoredBlob blob = objects.get(key);
+        if (blob == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        objectHeaders(exchange, blob);
+        exchange.getResponseHeaders().set("Content-Length", Integer.toString(blob.body.length));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void get(HttpExchange exchange, String key) throws IOException {
+        StoredBlob blob = objects.get(key);
+        if (blob == null) {
+            send(exchange, 404, error("NoSuchKey"));
+            return;
+        }
+        downloads.incrementAndGet();
+        objectHeaders(exchange, blob);
+        exchange.sendResponseHeaders(200, blob.body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(blob.body);
+        }
+    }
+
+    private void put(HttpExchange exchange, String key) throws IOException {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource != null) {
+            String sourceKey = URLDecoder.decode(copySource, StandardCharsets.UTF_8)
+                    .replaceFirst("^/?" + bucket + "/", "");
+            StoredBlob source = objects.get(sourceKey);
+            if (source == null) {
+                send(exchange, 404, error("NoSuchKey"));
+                return;
+            }
+            StoredBlob copy = new StoredBlob(source.body, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+            objects.put(key, copy);
+            send(exchange, 200, "<CopyObjectResult><ETag>" + copy.etag() + "</ETag><LastModified>"
+                    + copy.lastModified + "</LastModified></CopyObjectResult>");
+            return;
+        }
+
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String contentSha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (contentSha != null && contentSha.startsWith("STREAMING-")) {
+            body = decodeAwsChunked(body);
+        }
+        StoredBlob blob = new StoredBlob(body, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        objects.put(key, blob);
+        exchange.getResponseHeaders().set("ETag", blob.etag());
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String prefix = "";
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("prefix=")) {
+                    prefix = URLDecoder.decode(parameter.substring("prefix=".length()), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(bucket).append("</Name><Prefix>").append(prefix).append("</Prefix>")
+                .append("<IsTruncated>false</IsTruncated>");
+        for (Map.Entry<String, StoredBlob> entry : objects.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                xml.append("<Contents><Key>").append(entry.getKey()).append("</Key>")
+                        .append("<LastModified>").append(entry.getValue().lastModified).append("</LastModified>")
+                        .append("<ETag>").append(entry.getValue().etag()).append("</ETag>")
+                        .append("<Size>").append(entry.getValue().body.length).append("</Size>")
+                        .append("<StorageClass>STANDARD</StorageClass></Contents>");
+            }
+        }
+        send(exchange, 200, xml.append("</ListBucketResult>").toString());
+    }
+
+    private void objectHeaders(HttpExchange exchange, StoredBlob blob) {
+        exchange.getResponseHeaders().set("ETag", blob.etag());
+        exchange.getResponseHeaders().set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(blob.lastModified.atZone(ZoneOffset.UTC)));
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+    }
+
+    private void send(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private String error(String code) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code><Message>" + code
+                + "</Message></Error>";
+    }
+
+    // Signed streaming uploads arrive as <hex-size>;chunk-signature=...\r\n<bytes>\r\n, ending with a 0-size chunk
+    private static byte[] decodeAwsChunked(byte[] encoded) throws IOException {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        InputStream in = new ByteArrayInputStream(encoded);
+        while (true) {
+            String header = readLine(in);
+            int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            if (size == 0) {
+                return decoded.toByteArray();
+            }
+            decoded.write(in.readNBytes(size));
+            readLine(in);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private record StoredBlob(byte[] body, Instant lastModified) {
+        private String etag() {
+            try {
+                return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(body)) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
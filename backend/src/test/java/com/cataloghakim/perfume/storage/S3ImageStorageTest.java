@@ -0,0 +1,164 @@
+package com.cataloghakim.perfume.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class S3ImageStorageTest {
+
+    private static final String BUCKET = "catalog";
+
+    @TempDir
+    Path uploadDir;
+
+    private FakeS3Server server;
+    private final List<Object> events = new ArrayList<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new FakeS3Server(BUCKET);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void storesFetchesListsAndDeletesThroughS3() throws Exception {
+        S3ImageStorage storage = newStorage(1024 * 1024);
+
+        assertThat(storage.store("aaaa.png", staged(100))).isTrue();
+        assertThat(storage.store("aaaa.png", staged(100))).isFalse();
+        assertThat(server.contains("uploads/aa/aa/aaaa.png")).isTrue();
+
+        StoredObject stat = storage.stat("aaaa.png");
+        assertThat(stat.getSize()).isEqualTo(100);
+        assertThat(storage.stat("ffff.png")).isNull();
+
+        try (Stream<StoredObject> objects = storage.list()) {
+            assertThat(objects.map(StoredObject::getName)).containsExactly("aaaa.png");
+        }
+
+        assertThat(storage.touch("aaaa.png")).isTrue();
+        storage.delete("aaaa.png");
+        assertThat(server.contains("uploads/aa/aa/aaaa.png")).isFalse();
+        assertThat(storage.fetch("aaaa.png")).isNull();
+        assertThat(storage.touch("aaaa.png")).isFalse();
+        storage.shutdown();
+    }
+
+    @Test
+    void downloadsMissingLocalCopyOnce() throws Exception {
+        S3ImageStorage uploader = newStorage(1024 * 1024);
+        uploader.store("aaaa.png", staged(100));
+        uploader.shutdown();
+
+        // A second node, with its own empty cache directory
+        S3ImageStorage otherNode = newStorage(1024 * 1024, uploadDir.resolve("node2"));
+        StoredObject first = otherNode.fetch("aaaa.png");
+        StoredObject second = otherNode.fetch("aaaa.png");
+
+        assertThat(Files.size(first.getLocalPath())).isEqualTo(100);
+        assertThat(second.getLocalPath()).isEqualTo(first.getLocalPath());
+        assertThat(server.downloads()).isEqualTo(1);
+        otherNode.shutdown();
+    }
+
+    @Test
+    void evictsLeastRecentlyFetchedCopiesOverTheBound() throws Exception {
+        S3ImageStorage storage = newStorage(250);
+        storage.store("aaaa.png", staged(100));
+        storage.store("bbbb.png", staged(100));
+        Path aaaa = storage.fetch("aaaa.png").getLocalPath();
+
+        storage.store("cccc.png", staged(100));
+
+        assertThat(Files.exists(aaaa)).isTrue();
+        assertThat(events).containsExactly(new LocalCopyEvictedEvent("bbbb.png"));
+        assertThat(storage.getStats()).containsEntry("localCopies", 2).containsEntry("localCopyBytes", 200L);
+
+        // Evicted copies are downloaded again on demand
+        StoredObject refetched = storage.fetch("bbbb.png");
+        assertThat(Files.size(refetched.getLocalPath())).isEqualTo(100);
+        assertThat(server.downloads()).isEqualTo(1);
+        storage.shutdown();
+    }
+
+    @Test
+    void boundHoldsForCopiesLeftByPreviousRun() throws Exception {
+        S3ImageStorage firstRun = newStorage(1024 * 1024);
+        firstRun.store("aaaa.png", staged(100));
+        firstRun.store("bbbb.png", staged(100));
+        firstRun.store("cccc.png", staged(100));
+        firstRun.shutdown();
+
+        S3ImageStorage restarted = newStorage(250);
+
+        assertThat(restarted.getStats()).containsEntry("localCopies", 2).containsEntry("localCopyBytes", 200L);
+        restarted.shutdown();
+    }
+
+    @Test
+    void uploadPartsAreReadableFromOtherNodesButNotListed() throws Exception {
+        S3ImageStorage node1 = newStorage(1024 * 1024);
+        node1.store("aaaa.png", staged(100));
+        node1.storeUploadPart("upload-1", "0000000000000000010-0000000000000000020-b", staged(10));
+        node1.storeUploadPart("upload-1", "0000000000000000000-0000000000000000010-a", staged(10));
+
+        S3ImageStorage node2 = newStorage(1024 * 1024, uploadDir.resolve("node2"));
+        assertThat(node2.listUploadParts("upload-1")).containsExactly(
+                "0000000000000000000-0000000000000000010-a", "0000000000000000010-0000000000000000020-b");
+        try (InputStream part = node2.openUploadPart("upload-1", "0000000000000000000-0000000000000000010-a")) {
+            assertThat(part.readAllBytes()).hasSize(10);
+        }
+        try (Stream<StoredObject> objects = node2.list()) {
+            assertThat(objects.map(StoredObject::getName)).containsExactly("aaaa.png");
+        }
+
+        node2.deleteUploadParts("upload-1");
+        assertThat(node1.listUploadParts("upload-1")).isEmpty();
+        node1.shutdown();
+        node2.shutdown();
+    }
+
+    private S3ImageStorage newStorage(long cacheMaxBytes) {
+        return newStorage(cacheMaxBytes, uploadDir);
+    }
+
+    private S3ImageStorage newStorage(long cacheMaxBytes, Path dir) {
+        S3ImageStorage storage = new S3ImageStorage();
+        ReflectionTestUtils.setField(storage, "uploadDir", dir.toString());
+        ReflectionTestUtils.setField(storage, "bucket", BUCKET);
+        ReflectionTestUtils.setField(storage, "prefix", "uploads");
+        ReflectionTestUtils.setField(storage, "endpoint", server.endpoint());
+        ReflectionTestUtils.setField(storage, "region", "us-east-1");
+        ReflectionTestUtils.setField(storage, "accessKey", "test");
+        ReflectionTestUtils.setField(storage, "secretKey", "test");
+        ReflectionTestUtils.setField(storage, "pathStyleAccess", true);
+        ReflectionTestUtils.setField(storage, "cacheMaxBytes", cacheMaxBytes);
+        ReflectionTestUtils.setField(storage, "eventPublisher",
+                (ApplicationEventPublisher) events::add);
+        storage.init();
+        return storage;
+    }
+
+    private Path staged(int size) throws Exception {
+        Path staged = Files.createTempFile(uploadDir, "staged", ".tmp");
+        byte[] body = new byte[size];
+        body[0] = (byte) size;
+        return Files.write(staged, body);
+    }
+}
@@ -0,0 +1,28 @@
+-- The columns the public catalog reads, as the backend's JPA entities map them. Only the public-api contract test
+-- creates tables from this; the backend's test lets Hibernate create them and then loads seed.sql on top.
+CREATE TABLE categories (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE,
+    description VARCHAR(255),
+    color VARCHAR(255)
+);
+
+CREATE TABLE brands (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    image_url VARCHAR(255),
+    image_blur_hash VARCHAR(64),
+    image_dominant_color VARCHAR(7),
+    image_width INTEGER,
+    image_height INTEGER,
+    category_id BIGINT NOT NULL REFERENCES categories (id)
+);
+
+CREATE TABLE perfumes (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    number VARCHAR(255) NOT NULL,
+    brand_id BIGINT NOT NULL REFERENCES brands (id),
+    sync_hash VARCHAR(64)
+);
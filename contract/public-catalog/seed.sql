@@ -0,0 +1,17 @@
+-- Rows are inserted out of id order, so a response only matches cases.json when it is sorted by id
+INSERT INTO categories (id, name, description, color) VALUES
+(2, 'Women', 'Perfumes designed for women', '#be185d'),
+(1, 'Men', 'Perfumes designed for men', '#1e40af');
+
+INSERT INTO brands (id, name, description, image_url, image_blur_hash, image_dominant_color, image_width, image_height, category_id) VALUES
+(3, 'Dior', 'Luxury French fashion house', '/api/files/0a1b2c3d.png', 'LEHV6nWB2yk8pyo0adR*.7kCMdnj', '#1e40af', 640, 480, 1),
+(1, 'Chanel', 'Iconic French luxury brand', NULL, NULL, NULL, NULL, NULL, 2),
+(2, 'Gucci', 'Italian luxury fashion brand', 'https://cdn.example.com/gucci.png', NULL, NULL, NULL, NULL, 2);
+
+-- Numbers are text: between '10' and '55' come '10', '100', '5' and '55', but not '9'
+INSERT INTO perfumes (id, name, number, brand_id) VALUES
+(5, 'Sauvage', '9', 3),
+(1, 'No 5', '5', 1),
+(2, 'Bloom', '10', 2),
+(4, 'Homme Intense', '100', 3),
+(3, 'Coco Mademoiselle', '55', 1);
@@ -12,9 +12,14 @@ const BrandCard = ({ brand }) => {
       <div className="relative">
         {brand.imageUrl && !imageError ? (
           <img 
-            src={getImageUrl(brand.imageUrl)} 
+            src={getImageUrl(brand.imageUrl, 640)} 
             alt={brand.name}
+            width={brand.imageWidth || undefined}
+            height={brand.imageHeight || undefined}
+            loading="lazy"
+            decoding="async"
             className="w-full h-48 object-cover"
+            style={brand.imageDominantColor ? { backgroundColor: brand.imageDominantColor } : undefined}
             onError={() => setImageError(true)}
           />
         ) : (
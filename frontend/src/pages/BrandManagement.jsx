@@ -999,7 +999,7 @@ const BrandManagement = () => {
                         {brand.imageUrl && (
                           <div className="mt-4">
                             <img 
-                              src={getImageUrl(brand.imageUrl)} 
+                              src={getImageUrl(brand.imageUrl, 640)} 
                               alt={brand.name} 
                               className="w-full h-40 object-cover rounded-xl border border-slate-200 shadow-md"
                             />
@@ -172,7 +172,7 @@ const ImageManagement = () => {
                     </div>
                     <div className="aspect-w-1 aspect-h-1 mb-3">
                       <img
-                        src={getImageUrl(brand.imageUrl)}
+                        src={getImageUrl(brand.imageUrl, 320)}
                         alt={`${brand.name} logo`}
                         className="w-full h-32 object-cover rounded-lg border border-gray-200"
                       />
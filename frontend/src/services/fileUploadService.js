@@ -3,26 +3,83 @@ import { authService } from './authService';
 
 const API_BASE_URL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8080/api';
 
-// Create axios instance with auth headers
-const createAuthenticatedRequest = () => {
-  const token = authService.getToken();
-  return {
-    headers: {
-      'Authorization': `Bearer ${token}`,
-      'Content-Type': 'multipart/form-data',
+// Files above the threshold are sent in chunks that survive dropped connections and page reloads
+const RESUMABLE_THRESHOLD = 2 * 1024 * 1024;
+const CHUNK_SIZE = 1024 * 1024;
+const MAX_CHUNK_RETRIES = 5;
+
+const authHeaders = () => ({
+  'Authorization': `Bearer ${authService.getToken()}`
+});
+
+const getUploadOffset = async (uploadId) => {
+  const response = await axios.get(`${API_BASE_URL}/admin/uploads/${uploadId}`, { headers: authHeaders() });
+  return response.data.offset;
+};
+
+const uploadResumable = async (file) => {
+  const sessionKey = `upload:${file.name}:${file.size}:${file.lastModified}`;
+  let uploadId = localStorage.getItem(sessionKey);
+  let offset = 0;
+
+  // Resume a session left over from an earlier attempt at the same file
+  if (uploadId) {
+    try {
+      offset = await getUploadOffset(uploadId);
+    } catch {
+      uploadId = null;
+    }
+  }
+  if (!uploadId) {
+    const response = await axios.post(`${API_BASE_URL}/admin/uploads`,
+      { size: file.size, filename: file.name },
+      { headers: authHeaders() });
+    uploadId = response.data.uploadId;
+    localStorage.setItem(sessionKey, uploadId);
+  }
+
+  let failures = 0;
+  while (offset < file.size) {
+    try {
+      const response = await axios.put(
+        `${API_BASE_URL}/admin/uploads/${uploadId}?offset=${offset}`,
+        file.slice(offset, offset + CHUNK_SIZE),
+        { headers: { ...authHeaders(), 'Content-Type': 'application/octet-stream' } }
+      );
+      offset = response.data.offset;
+      failures = 0;
+    } catch (error) {
+      if (++failures > MAX_CHUNK_RETRIES) {
+        throw error;
+      }
+      await new Promise(resolve => setTimeout(resolve, 1000 * 2 ** (failures - 1)));
+      // The server keeps partial chunks, so continue from whatever it actually received
+      try {
+        offset = await getUploadOffset(uploadId);
+      } catch {
+        // Still offline; retry the same chunk after the next backoff
+      }
     }
-  };
+  }
+
+  const response = await axios.post(`${API_BASE_URL}/admin/uploads/${uploadId}/finalize`, null,
+    { headers: authHeaders() });
+  localStorage.removeItem(sessionKey);
+  return response;
 };
 
 export const fileUploadService = {
-  // Upload a file and return the file info
+  // Upload a file and return the file info; the raw body is streamed so the server writes it only once
   uploadFile: async (file) => {
     try {
-      const formData = new FormData();
-      formData.append('file', file);
-      
-      const config = createAuthenticatedRequest();
-      const response = await axios.post(`${API_BASE_URL}/admin/upload`, formData, config);
+      const response = file.size > RESUMABLE_THRESHOLD
+        ? await uploadResumable(file)
+        : await axios.post(`${API_BASE_URL}/admin/upload/stream`, file, {
+            headers: {
+              ...authHeaders(),
+              'Content-Type': file.type || 'application/octet-stream',
+            }
+          });
       
       if (response.data.success) {
         return {
@@ -73,9 +130,8 @@ export const fileUploadService = {
       return filename;
     }
     
-    // Otherwise, construct the full URL with cache busting (assumes just filename)
-    const timestamp = Date.now() + Math.random();
-    return `${API_BASE_URL}/files/${filename}?_t=${timestamp}`;
+    // Otherwise, construct the full URL (assumes just filename); stored files are immutable
+    return `${API_BASE_URL}/files/${filename}`;
   },
 
   // Validate file before upload
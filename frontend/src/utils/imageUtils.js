@@ -21,15 +21,21 @@ export const getCacheBustedImageUrl = (imageUrl) => {
 };
 
 /**
- * Gets image URL for display with cache busting
+ * Gets image URL for display
+ * Uploaded files are named after their content hash and served as immutable,
+ * so the URL is stable and the browser cache can be used as-is
  * @param {string} filename - The image filename
- * @returns {string} - Full image URL with cache busting
+ * @param {number} [width] - Display width; the server returns the nearest resized variant
+ * @returns {string} - Full image URL
  */
-export const getImageUrl = (filename) => {
+export const getImageUrl = (filename, width) => {
   if (!filename) return '';
   
+  // External images are used as entered
+  if (filename.startsWith('http')) {
+    return filename;
+  }
+  
   const baseUrl = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8080/api';
-  // Use a more unique timestamp to prevent any caching
-  const timestamp = Date.now() + Math.random();
-  return `${baseUrl}/files/${filename}?_t=${timestamp}`;
+  return width ? `${baseUrl}/files/${filename}?w=${width}` : `${baseUrl}/files/${filename}`;
 };
@@ -0,0 +1,14 @@
+package com.cataloghakim.perfume.publicapi;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@SpringBootApplication
+@EnableScheduling
+public class PublicApiApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(PublicApiApplication.class, args);
+    }
+}
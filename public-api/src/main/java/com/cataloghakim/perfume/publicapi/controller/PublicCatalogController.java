@@ -0,0 +1,59 @@
+package com.cataloghakim.perfume.publicapi.controller;
+
+import com.cataloghakim.perfume.publicapi.dto.BrandDTO;
+import com.cataloghakim.perfume.publicapi.dto.CategoryDTO;
+import com.cataloghakim.perfume.publicapi.dto.PerfumeDTO;
+import com.cataloghakim.perfume.publicapi.dto.SearchRequestDTO;
+import com.cataloghakim.perfume.publicapi.repository.CatalogReadRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+// The /public/** contract of the backend's CategoryController, BrandController and PerfumeController
+@RestController
+@RequestMapping("/public")
+public class PublicCatalogController {
+
+    @Autowired
+    private CatalogReadRepository catalogReadRepository;
+
+    @GetMapping("/categories")
+    public Flux<CategoryDTO> getPublicCategories() {
+        return catalogReadRepository.findAllCategories();
+    }
+
+    @GetMapping("/brands")
+    public ResponseEntity<Flux<BrandDTO>> getPublicBrands() {
+        return ResponseEntity.ok()
+                .header("Cache-Control", "no-cache, no-store, must-revalidate")
+                .header("Pragma", "no-cache")
+                .header("Expires", "0")
+                .body(catalogReadRepository.findAllBrands());
+    }
+
+    @GetMapping("/brands/category/{categoryId}")
+    public Flux<BrandDTO> getPublicBrandsByCategory(@PathVariable Long categoryId) {
+        return catalogReadRepository.findBrandsByCategory(categoryId);
+    }
+
+    @GetMapping("/perfumes")
+    public Flux<PerfumeDTO> getPublicPerfumes() {
+        return catalogReadRepository.findAllPerfumes();
+    }
+
+    @GetMapping("/perfumes/brand/{brandId}")
+    public Flux<PerfumeDTO> getPublicPerfumesByBrand(@PathVariable Long brandId) {
+        return catalogReadRepository.findPerfumesByBrand(brandId);
+    }
+
+    @GetMapping("/perfumes/category/{categoryId}")
+    public Flux<PerfumeDTO> getPublicPerfumesByCategory(@PathVariable Long categoryId) {
+        return catalogReadRepository.findPerfumesByCategory(categoryId);
+    }
+
+    @PostMapping("/perfumes/search")
+    public Flux<PerfumeDTO> publicSearchAndFilter(@RequestBody SearchRequestDTO searchRequest) {
+        return catalogReadRepository.searchAndFilter(searchRequest);
+    }
+}
@@ -0,0 +1,17 @@
+package com.cataloghakim.perfume.publicapi.dto;
+
+import java.util.List;
+
+// Same JSON shape as the backend's BrandDTO; perfumes is never populated there either
+public record BrandDTO(Long id,
+                       String name,
+                       String description,
+                       String imageUrl,
+                       String imageBlurHash,
+                       String imageDominantColor,
+                       Integer imageWidth,
+                       Integer imageHeight,
+                       Long categoryId,
+                       String categoryName,
+                       List<PerfumeDTO> perfumes) {
+}
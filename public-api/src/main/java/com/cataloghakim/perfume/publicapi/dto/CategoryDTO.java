@@ -0,0 +1,7 @@
+package com.cataloghakim.perfume.publicapi.dto;
+
+import java.util.List;
+
+// Same JSON shape as the backend's CategoryDTO; brands is never populated there either
+public record CategoryDTO(Long id, String name, String description, String color, List<BrandDTO> brands) {
+}
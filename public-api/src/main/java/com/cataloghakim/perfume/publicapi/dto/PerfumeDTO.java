@@ -0,0 +1,10 @@
+package com.cataloghakim.perfume.publicapi.dto;
+
+public record PerfumeDTO(Long id,
+                         String name,
+                         String number,
+                         Long brandId,
+                         String brandName,
+                         Long categoryId,
+                         String categoryName) {
+}
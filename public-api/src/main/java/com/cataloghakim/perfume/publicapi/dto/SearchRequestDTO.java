@@ -0,0 +1,4 @@
+package com.cataloghakim.perfume.publicapi.dto;
+
+public record SearchRequestDTO(String searchTerm, String brandName, Integer minNumber, Integer maxNumber) {
+}
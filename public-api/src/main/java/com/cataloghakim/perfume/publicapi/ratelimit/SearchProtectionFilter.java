@@ -0,0 +1,111 @@
+package com.cataloghakim.perfume.publicapi.ratelimit;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The backend's SearchProtectionInterceptor for the reactive search endpoint: a per-client token bucket first (429),
+// then a cap on searches in flight (503). A waiting search holds no thread here, so there is no queue with a timeout
+// as in the backend; max-concurrent + max-queue searches may be in flight and the R2DBC pool queues their queries.
+@Component
+public class SearchProtectionFilter implements WebFilter {
+
+    static final String SEARCH_PATH = "/public/perfumes/search";
+
+    @Value("${app.rate-limit.search.requests-per-second:2}")
+    private double requestsPerSecond;
+
+    @Value("${app.rate-limit.search.burst:10}")
+    private int burst;
+
+    @Value("${app.rate-limit.max-buckets:100000}")
+    private int maxBuckets;
+
+    @Value("${app.rate-limit.client-ip-header:}")
+    private String clientIpHeader;
+
+    @Value("${app.load-shedding.search.max-concurrent:3}")
+    private int maxConcurrent;
+
+    @Value("${app.load-shedding.search.max-queue:20}")
+    private int maxQueue;
+
+    private TokenBucketRateLimiter rateLimiter;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        rateLimiter = new TokenBucketRateLimiter(requestsPerSecond, burst, maxBuckets);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.POST
+                || !request.getPath().pathWithinApplication().value().equals(SEARCH_PATH)) {
+            return chain.filter(exchange);
+        }
+
+        long waitNanos = rateLimiter.tryAcquire("POST " + SEARCH_PATH, resolveClientIp(request));
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (long) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, "Too many search requests, please slow down");
+        }
+
+        if (inFlight.incrementAndGet() > maxConcurrent + maxQueue) {
+            inFlight.decrementAndGet();
+            return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, "Search is busy, please retry shortly");
+        }
+        return chain.filter(exchange).doFinally(signal -> inFlight.decrementAndGet());
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        rateLimiter.evictIdle();
+    }
+
+    // Same body fields as the backend's GlobalExceptionHandler.ErrorResponse, minus the timestamp
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, String message) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        String body = "{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase()
+                + "\",\"message\":\"" + message
+                + "\",\"path\":\"uri=" + exchange.getRequest().getPath().value() + "\"}";
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    // Behind a proxy the last X-Forwarded-For entry is the one the proxy itself appended, so clients cannot forge it
+    private String resolveClientIp(ServerHttpRequest request) {
+        if (!clientIpHeader.isEmpty()) {
+            String forwarded = request.getHeaders().getFirst(clientIpHeader);
+            if (forwarded != null && !forwarded.isBlank()) {
+                String last = forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+                if (!last.isEmpty()) {
+                    return last;
+                }
+            }
+        }
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : "unknown";
+    }
+}
@@ -0,0 +1,124 @@
+package com.cataloghakim.perfume.publicapi.repository;
+
+import com.cataloghakim.perfume.publicapi.dto.BrandDTO;
+import com.cataloghakim.perfume.publicapi.dto.CategoryDTO;
+import com.cataloghakim.perfume.publicapi.dto.PerfumeDTO;
+import com.cataloghakim.perfume.publicapi.dto.SearchRequestDTO;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+// Reads the tables the backend's JPA entities map to, flattening each row straight into the response DTO. Lists are
+// ordered by id like the backend's, which contract/public-catalog checks for both apps.
+@Repository
+public class CatalogReadRepository {
+
+    private static final String BRAND_COLUMNS =
+            "SELECT b.id, b.name, b.description, b.image_url, b.image_blur_hash, b.image_dominant_color, " +
+            "b.image_width, b.image_height, c.id AS category_id, c.name AS category_name " +
+            "FROM brands b JOIN categories c ON c.id = b.category_id";
+
+    private static final String PERFUME_COLUMNS =
+            "SELECT p.id, p.name, p.number, b.id AS brand_id, b.name AS brand_name, " +
+            "c.id AS category_id, c.name AS category_name " +
+            "FROM perfumes p JOIN brands b ON b.id = p.brand_id JOIN categories c ON c.id = b.category_id";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Flux<CategoryDTO> findAllCategories() {
+        return databaseClient.sql("SELECT id, name, description, color FROM categories ORDER BY id")
+                .map(this::toCategory)
+                .all();
+    }
+
+    public Flux<BrandDTO> findAllBrands() {
+        return databaseClient.sql(BRAND_COLUMNS + " ORDER BY b.id")
+                .map(this::toBrand)
+                .all();
+    }
+
+    public Flux<BrandDTO> findBrandsByCategory(Long categoryId) {
+        return databaseClient.sql(BRAND_COLUMNS + " WHERE b.category_id = :categoryId ORDER BY b.id")
+                .bind("categoryId", categoryId)
+                .map(this::toBrand)
+                .all();
+    }
+
+    public Flux<PerfumeDTO> findAllPerfumes() {
+        return databaseClient.sql(PERFUME_COLUMNS + " ORDER BY p.id")
+                .map(this::toPerfume)
+                .all();
+    }
+
+    public Flux<PerfumeDTO> findPerfumesByBrand(Long brandId) {
+        return databaseClient.sql(PERFUME_COLUMNS + " WHERE p.brand_id = :brandId ORDER BY p.id")
+                .bind("brandId", brandId)
+                .map(this::toPerfume)
+                .all();
+    }
+
+    public Flux<PerfumeDTO> findPerfumesByCategory(Long categoryId) {
+        return databaseClient.sql(PERFUME_COLUMNS + " WHERE b.category_id = :categoryId ORDER BY p.id")
+                .bind("categoryId", categoryId)
+                .map(this::toPerfume)
+                .all();
+    }
+
+    // Mirrors PerfumeRepository.searchAndFilter; number is a text column, so the bounds compare as text there too
+    public Flux<PerfumeDTO> searchAndFilter(SearchRequestDTO request) {
+        String sql = PERFUME_COLUMNS + " WHERE " +
+                "(CAST(:searchTerm AS text) IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+                "LOWER(b.name) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
+                "(CAST(:brandName AS text) IS NULL OR LOWER(b.name) LIKE LOWER(CONCAT('%', :brandName, '%'))) AND " +
+                "(CAST(:minNumber AS text) IS NULL OR p.number >= :minNumber) AND " +
+                "(CAST(:maxNumber AS text) IS NULL OR p.number <= :maxNumber) ORDER BY p.id";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        spec = bindText(spec, "searchTerm", request.searchTerm());
+        spec = bindText(spec, "brandName", request.brandName());
+        spec = bindText(spec, "minNumber", request.minNumber() == null ? null : request.minNumber().toString());
+        spec = bindText(spec, "maxNumber", request.maxNumber() == null ? null : request.maxNumber().toString());
+        return spec.map(this::toPerfume).all();
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindText(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private CategoryDTO toCategory(Readable row) {
+        return new CategoryDTO(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("description", String.class),
+                row.get("color", String.class),
+                null);
+    }
+
+    private BrandDTO toBrand(Readable row) {
+        return new BrandDTO(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("description", String.class),
+                row.get("image_url", String.class),
+                row.get("image_blur_hash", String.class),
+                row.get("image_dominant_color", String.class),
+                row.get("image_width", Integer.class),
+                row.get("image_height", Integer.class),
+                row.get("category_id", Long.class),
+                row.get("category_name", String.class),
+                null);
+    }
+
+    private PerfumeDTO toPerfume(Readable row) {
+        return new PerfumeDTO(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("number", String.class),
+                row.get("brand_id", Long.class),
+                row.get("brand_name", String.class),
+                row.get("category_id", Long.class),
+                row.get("category_name", String.class));
+    }
+}
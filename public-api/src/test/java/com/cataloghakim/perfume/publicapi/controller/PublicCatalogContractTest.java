@@ -0,0 +1,63 @@
+package com.cataloghakim.perfume.publicapi.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// The reactive side of the /public contract in contract/public-catalog; the backend runs the same cases against
+// its servlet endpoints, so both apps answer every request with the same rows, in the same order, in the same shape
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///contract?options=DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=file:../contract/public-catalog/schema.sql",
+        "spring.sql.init.data-locations=file:../contract/public-catalog/seed.sql"
+})
+class PublicCatalogContractTest {
+
+    private static final Path CONTRACT = Path.of("..", "contract", "public-catalog");
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    static List<Arguments> cases() throws IOException {
+        List<Arguments> cases = new ArrayList<>();
+        for (JsonNode contractCase : new ObjectMapper().readTree(CONTRACT.resolve("cases.json").toFile())) {
+            cases.add(Arguments.of(contractCase.get("name").asText(), contractCase));
+        }
+        return cases;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("cases")
+    void answersLikeTheContract(String name, JsonNode contractCase) throws Exception {
+        WebTestClient.RequestBodySpec request = webTestClient
+                .method(HttpMethod.valueOf(contractCase.get("method").asText()))
+                .uri(contractCase.get("path").asText());
+        if (contractCase.has("body")) {
+            request.contentType(MediaType.APPLICATION_JSON).bodyValue(contractCase.get("body").toString());
+        }
+
+        String body = request.exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        JSONAssert.assertEquals(contractCase.get("expected").toString(), body, JSONCompareMode.STRICT);
+    }
+}
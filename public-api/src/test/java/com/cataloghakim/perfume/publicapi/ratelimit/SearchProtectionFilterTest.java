@@ -0,0 +1,100 @@
+package com.cataloghakim.perfume.publicapi.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchProtectionFilterTest {
+
+    private final SearchProtectionFilter filter = new SearchProtectionFilter();
+    private final AtomicInteger passed = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> {
+        passed.incrementAndGet();
+        return Mono.empty();
+    };
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(filter, "requestsPerSecond", 1.0);
+        ReflectionTestUtils.setField(filter, "burst", 2);
+        ReflectionTestUtils.setField(filter, "maxBuckets", 100);
+        ReflectionTestUtils.setField(filter, "clientIpHeader", "");
+        ReflectionTestUtils.setField(filter, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(filter, "maxQueue", 1);
+        filter.init();
+    }
+
+    @Test
+    void limitsEachClientToItsBurst() {
+        assertThat(search("203.0.113.7").getResponse().getStatusCode()).isNull();
+        assertThat(search("203.0.113.7").getResponse().getStatusCode()).isNull();
+
+        MockServerWebExchange limited = search("203.0.113.7");
+
+        assertThat(limited.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(limited.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(limited.getResponse().getBodyAsString().block()).contains("\"status\":429");
+        assertThat(search("198.51.100.4").getResponse().getStatusCode()).isNull();
+        assertThat(passed).hasValue(3);
+    }
+
+    @Test
+    void shedsSearchesBeyondTheInFlightCap() {
+        ReflectionTestUtils.setField(filter, "burst", 100);
+        filter.init();
+        List<Sinks.Empty<Void>> pending = new ArrayList<>();
+        WebFilterChain slowChain = exchange -> {
+            Sinks.Empty<Void> sink = Sinks.empty();
+            pending.add(sink);
+            return sink.asMono();
+        };
+
+        filter.filter(searchExchange("203.0.113.7"), slowChain).subscribe();
+        filter.filter(searchExchange("203.0.113.7"), slowChain).subscribe();
+        MockServerWebExchange shed = searchExchange("203.0.113.7");
+        filter.filter(shed, slowChain).block();
+
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(pending).hasSize(2);
+
+        pending.get(0).tryEmitEmpty();
+        filter.filter(searchExchange("203.0.113.7"), slowChain).subscribe();
+        assertThat(pending).hasSize(3);
+    }
+
+    @Test
+    void leavesOtherRoutesAlone() {
+        for (int i = 0; i < 5; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/public/perfumes")
+                    .remoteAddress(new InetSocketAddress("203.0.113.7", 40000)));
+            filter.filter(exchange, chain).block();
+        }
+
+        assertThat(passed).hasValue(5);
+    }
+
+    private MockServerWebExchange search(String clientIp) {
+        MockServerWebExchange exchange = searchExchange(clientIp);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private MockServerWebExchange searchExchange(String clientIp) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post(SearchProtectionFilter.SEARCH_PATH)
+                .remoteAddress(new InetSocketAddress(clientIp, 40000)));
+    }
+}